@@ -1,8 +1,16 @@
 # lms_server.py
 # TCP 소켓과 간단한 HTTP 서버로 과제/공지/영상/채팅을 처리하는 백엔드입니다.
+import hashlib
+import bisect
+import json
 import os
+import queue
+import re
 import socket
+import struct
 import threading
+import time
+import zlib
 from datetime import datetime, date
 from http.server import BaseHTTPRequestHandler, HTTPServer
 from urllib.parse import urlparse
@@ -13,6 +21,7 @@ from mysql.connector import Error
 HOST = ""          # 빈 문자열이면 0.0.0.0에 바인딩된다.
 PORT = 5051        # 컨테이너 내부 TCP 포트 (docker -p 6000:5051 로 매핑)
 HTTP_PORT = 8081   # 영상 스트리밍 HTTP 포트
+KEEPALIVE_IDLE_TIMEOUT = 60  # keep-alive 연결에서 요청 없이 버티는 최대 시간(초)
 
 # DB 설정 (Docker 컨테이너에서 host.docker.internal 로 접속)
 DB_CONFIG = {
@@ -37,8 +46,15 @@ USERS = {
 }
 
 # 메모리에만 쌓이는 채팅 메시지 목록
-# 각 메시지: (보낸 사람, 받는 사람, 내용)
+# 각 메시지: (id, 보낸 사람, 받는 사람, 내용, 받은 시각(epoch ms)). id는 서버 전체에서 1부터 하나씩 늘어난다
 MESSAGES = []
+# 대화(두 사람)별 메시지 목록 (id 순). 목록 조회 때 전체 MESSAGES를 훑지 않는다
+CONVERSATIONS = {}
+MESSAGES_LOCK = threading.Lock()
+# 채팅 구독: 사용자 ID → 구독 연결마다 하나씩 둔 큐 목록 (MESSAGES_LOCK 안에서만 만진다)
+CHAT_SUBSCRIBERS = {}
+CHAT_PAGE_MAX = 500          # CHAT_LIST 페이지 조회 한 번에 돌려주는 최대 메시지 수
+CHAT_HEARTBEAT_SECONDS = 20   # 구독 연결에 보낼 메시지가 이만큼 없으면 PING (클라이언트 읽기 타임아웃보다 짧게)
 
 
 # ---------------------------
@@ -58,9 +74,10 @@ def handle_login(parts):
     - 학생이면: OK|STUDENT|이름
     - 교수이면: OK|TEACHER|이름
     - 아니면:   ERR|INVALID_CREDENTIALS
+    응답 필드들을 튜플로 돌려준다.
     """
     if len(parts) != 3:
-        return "ERR|BAD_REQUEST\n"
+        return ("ERR", "BAD_REQUEST")
 
     _, user_id, pw = parts
 
@@ -82,7 +99,7 @@ def handle_login(parts):
             if row:
                 display_name = row[0] or user_id
                 print(f"[LOGIN] {user_id} STUDENT ({display_name})")
-                return f"OK|STUDENT|{display_name}\n"
+                return ("OK", "STUDENT", display_name)
 
             # 2) 교수 찾기
             cur.execute(
@@ -98,14 +115,14 @@ def handle_login(parts):
             if row:
                 display_name = row[0] or user_id
                 print(f"[LOGIN] {user_id} TEACHER ({display_name})")
-                return f"OK|TEACHER|{display_name}\n"
+                return ("OK", "TEACHER", display_name)
 
     except Error as e:
         print(f"[ERROR][LOGIN] {e}")
-        return "ERR|SERVER_ERROR\n"
+        return ("ERR", "SERVER_ERROR")
 
     # 둘 다 못 찾으면
-    return "ERR|INVALID_CREDENTIALS\n"
+    return ("ERR", "INVALID_CREDENTIALS")
 
 
 # ---------------------------
@@ -116,13 +133,23 @@ def handle_chat_post(parts):
     parts: ["CHAT_POST", from_id, to_id, message]
     """
     if len(parts) != 4:
-        return "ERR|BAD_REQUEST\n"
+        return ("ERR", "BAD_REQUEST")
 
     _, from_id, to_id, message = parts
 
-    MESSAGES.append((from_id, to_id, message))
-    print(f"[CHAT] {from_id} -> {to_id}: {message}")
-    return "OK\n"
+    with MESSAGES_LOCK:
+        entry = (len(MESSAGES) + 1, from_id, to_id, message, int(time.time() * 1000))
+        MESSAGES.append(entry)
+        CONVERSATIONS.setdefault(conversation_key(from_id, to_id), []).append(entry)
+        for user_id in {from_id, to_id}:
+            for q in CHAT_SUBSCRIBERS.get(user_id, ()):
+                q.put(entry)
+    print(f"[CHAT] #{entry[0]} {from_id} -> {to_id}: {message}")
+    return ("OK",)
+
+
+def conversation_key(user_a, user_b):
+    return (user_a, user_b) if user_a <= user_b else (user_b, user_a)
 
 
 def handle_chat_list(conn, parts):
@@ -132,22 +159,151 @@ def handle_chat_list(conn, parts):
       MSG|from|to|message
       ...
       END
+    parts: ["CHAT_LIST", userA, userB, afterId]  → afterId보다 뒤 메시지만, id를 붙여서:
+      CHAT|id|from|to|sentAt|message   (sentAt: 서버가 받은 시각, epoch 밀리초)
+      ...
+      END
+    parts: ["CHAT_LIST", userA, userB, afterId, beforeId, limit]  → 페이지 조회
+      afterId < id < beforeId 인 메시지 중 가장 최근 limit개 (빈 값이면 그 조건 없음), 응답은 위와 같다.
+      처음 열 때는 beforeId 없이 최근 한 페이지, 위로 올리면 받은 가장 오래된 id를 beforeId로 그 앞 페이지.
+    """
+    if len(parts) not in (3, 4, 6):
+        conn.send_line("ERR", "BAD_REQUEST")
+        return
+
+    user_a, user_b = parts[1], parts[2]
+    after_id = before_id = limit = None
+    if len(parts) >= 4:
+        try:
+            after_id = int(parts[3]) if parts[3] else 0
+            if len(parts) == 6:
+                before_id = int(parts[4]) if parts[4] else None
+                limit = min(int(parts[5]), CHAT_PAGE_MAX) if parts[5] else CHAT_PAGE_MAX
+        except ValueError:
+            conn.send_line("ERR", "BAD_REQUEST")
+            return
+        if limit is not None and limit <= 0:
+            conn.send_line("ERR", "BAD_REQUEST")
+            return
+
+    with MESSAGES_LOCK:
+        conversation = CONVERSATIONS.get(conversation_key(user_a, user_b), [])
+        if after_id is None:
+            rows = list(conversation)
+        else:
+            start = bisect.bisect_right(conversation, after_id, key=lambda m: m[0])
+            end = len(conversation)
+            if before_id is not None:
+                end = bisect.bisect_left(conversation, before_id, key=lambda m: m[0])
+            if limit is not None:
+                start = max(start, end - limit)
+            rows = conversation[start:end]
+
+    if after_id is None:
+        out = [("MSG", m[1], m[2], m[3]) for m in rows]
+    else:
+        out = [chat_row(m) for m in rows]
+    conn.send_rows(out)
+
+
+def handle_chat_subscribe(conn, parts):
+    """
+    parts: ["CHAT_SUBSCRIBE", userId, afterId]
+    OK|SUBSCRIBED|lastId 로 답한 뒤 이 연결은 구독 전용이 된다 (다른 명령은 받지 않는다).
+    userId가 보내거나 받은 메시지가 올라올 때마다 바로 보낸다 (END 없음, 바이너리면 프레임 하나에 여러 행):
+      CHAT|id|from|to|sentAt|message   (CHAT_LIST와 같은 행)
+    afterId보다 뒤 메시지가 이미 있으면 그것부터 보낸다 (다시 붙을 때 끊긴 사이 메시지를 놓치지 않게).
+    afterId가 비어 있으면 지금부터. 보낼 게 없으면 CHAT_HEARTBEAT_SECONDS마다 PING 한 행.
     """
     if len(parts) != 3:
-        resp = "ERR|BAD_REQUEST\n"
-        conn.sendall(resp.encode("utf-8"))
+        conn.send_line("ERR", "BAD_REQUEST")
         return
 
-    _, user_a, user_b = parts
+    user_id = parts[1]
+    after_id = None
+    if parts[2]:
+        try:
+            after_id = max(0, int(parts[2]))
+        except ValueError:
+            conn.send_line("ERR", "BAD_REQUEST")
+            return
+
+    q = queue.Queue()
+    with MESSAGES_LOCK:
+        last_id = len(MESSAGES)
+        # id가 1부터 빈틈없이 늘어나므로 MESSAGES[after_id:]가 곧 afterId 뒤 메시지
+        backlog = [] if after_id is None else [m for m in MESSAGES[after_id:] if user_id in (m[1], m[2])]
+        CHAT_SUBSCRIBERS.setdefault(user_id, []).append(q)
+
+    print(f"[CHAT] subscribe {user_id} after {after_id}")
+    try:
+        conn.send_line("OK", "SUBSCRIBED", last_id)
+        if backlog:
+            conn.send_rows([chat_row(m) for m in backlog], end=False)
+        while True:
+            try:
+                entries = [q.get(timeout=CHAT_HEARTBEAT_SECONDS)]
+            except queue.Empty:
+                conn.send_line("PING")
+                continue
+            # 그 사이 더 쌓였으면 한 번에
+            while True:
+                try:
+                    entries.append(q.get_nowait())
+                except queue.Empty:
+                    break
+            conn.send_rows([chat_row(m) for m in entries], end=False)
+    except OSError:
+        pass   # 클라이언트가 끊었다
+    finally:
+        with MESSAGES_LOCK:
+            queues = CHAT_SUBSCRIBERS.get(user_id, [])
+            if q in queues:
+                queues.remove(q)
+            if not queues:
+                CHAT_SUBSCRIBERS.pop(user_id, None)
+        print(f"[CHAT] unsubscribe {user_id}")
+
+
+def chat_row(entry):
+    msg_id, from_id, to_id, msg, sent_at = entry
+    return ("CHAT", msg_id, from_id, to_id, sent_at, msg)
+
+
+# ---------------------------
+# 목록 버전 (조건부 목록 조회)
+# ---------------------------
+# 목록마다 버전 번호를 두고, 그 목록을 바꾸는 명령이 커밋한 뒤에 올린다.
+# 목록 요청 끝에 마지막으로 받은 버전을 붙이면(ASSIGN_LIST|userId|version)
+# 그 사이 바뀐 게 없을 때 DB를 조회하지 않고 NOT_MODIFIED|version 한 줄(END 없음)로 답한다.
+# 버전 필드를 붙인 요청(빈 값 포함)에는 목록 앞에 VERSION|version 한 줄을 먼저 보낸다.
+# 서버를 다시 띄우면 접두어가 바뀌어 예전 버전은 모두 맞지 않게 된다.
+# (이 서버를 거치지 않고 DB를 직접 고쳤다면 서버를 재시작해야 클라이언트가 새 목록을 받는다)
+LIST_VERSION_PREFIX = f"{os.getpid():x}{int(time.time()):x}"
+LIST_VERSIONS = {"ASSIGN": 0, "NOTICE": 0, "VIDEO": 0, "STUDENT": 0}
+LIST_VERSIONS_LOCK = threading.Lock()
+
+
+def bump_list_version(kind):
+    with LIST_VERSIONS_LOCK:
+        LIST_VERSIONS[kind] += 1
 
-    lines = []
-    for (from_id, to_id, msg) in MESSAGES:
-        if ((from_id == user_a and to_id == user_b) or
-                (from_id == user_b and to_id == user_a)):
-            lines.append(f"MSG|{from_id}|{to_id}|{msg}\n")
 
-    lines.append("END\n")
-    conn.sendall("".join(lines).encode("utf-8"))
+def list_version_head(conn, parts, kind):
+    """
+    목록 핸들러 앞부분. 조건부 요청이 아니면 [],
+    바뀐 게 없어 NOT_MODIFIED로 이미 답했으면 None,
+    아니면 목록 앞에 붙일 [VERSION 행].
+    버전은 DB 조회 전에 읽는다 (조회 중에 바뀌면 다음 요청에서 다시 받게 된다).
+    """
+    if len(parts) < 3:
+        return []
+    with LIST_VERSIONS_LOCK:
+        current = f"{LIST_VERSION_PREFIX}.{LIST_VERSIONS[kind]}"
+    if parts[2] == current:
+        conn.send_line("NOT_MODIFIED", current)
+        return None
+    return [("VERSION", current)]
 
 
 # ---------------------------
@@ -156,19 +312,23 @@ def handle_chat_list(conn, parts):
 # ---------------------------
 def handle_assign_list(conn, parts):
     """
-    parts: ["ASSIGN_LIST", userId]
+    parts: ["ASSIGN_LIST", userId(, 마지막 버전)]
     응답:
+      (VERSION|version)
       ASSIGN|id|title|due|summary
       ...
       END
+    또는 NOT_MODIFIED|version
     """
-    if len(parts) != 2:
-        resp = "ERR|BAD_REQUEST\n"
-        conn.sendall(resp.encode("utf-8"))
+    if len(parts) not in (2, 3):
+        conn.send_line("ERR", "BAD_REQUEST")
         return
 
     user_id = parts[1]
     print(f"[ASSIGN_LIST] for {user_id}")
+    head = list_version_head(conn, parts, "ASSIGN")
+    if head is None:
+        return
 
     try:
         with get_connection() as c:
@@ -189,33 +349,106 @@ def handle_assign_list(conn, parts):
             rows = cur.fetchall()
     except Error as e:
         print(f"[ERROR][ASSIGN_LIST] {e}")
-        conn.sendall(f"ERR|DB_ERROR|{e}\n".encode("utf-8"))
+        conn.send_line("ERR", "DB_ERROR", e)
         return
 
-    lines = []
-    for (task_id, week_id, start_date, end_date, title, content) in rows:
-        # 주차 라벨
-        label_week = f"{week_id}주차" if week_id is not None else "과제"
+    conn.send_rows(head + [assign_row(row) for row in rows])
 
-        # 제목 포맷: [1주차] N-Echo 구현
-        title = title or ""
-        full_title = f"[{label_week}] {title}" if title else label_week
 
-        # 마감일 표시 문자열
-        due_str = (
-            end_date.strftime("%Y-%m-%d %H:%M")
-            if hasattr(end_date, "strftime")
-            else str(end_date)
-        )
+def assign_row(row):
+    """task_detail 한 행 → ASSIGN|id|title|due|summary 응답 필드"""
+    task_id, week_id, start_date, end_date, title, content = row
+
+    # 주차 라벨
+    label_week = f"{week_id}주차" if week_id is not None else "과제"
+
+    # 제목 포맷: [1주차] N-Echo 구현
+    title = title or ""
+    full_title = f"[{label_week}] {title}" if title else label_week
+
+    # 마감일 표시 문자열
+    due_str = (
+        end_date.strftime("%Y-%m-%d %H:%M")
+        if hasattr(end_date, "strftime")
+        else str(end_date)
+    )
+
+    # 요약은 content 첫 줄 50자
+    content = content or ""
+    summary = content.strip().splitlines()[0][:50] if content.strip() else ""
+
+    return ("ASSIGN", task_id, full_title, due_str, summary)
+
+
+# ---------------------------
+# 파일 바디 수신 공용
+# ---------------------------
+RECV_BUF_SIZE = 256 * 1024
+
+
+def recv_into_file(conn, f, size):
+    """size 바이트를 받아 열린 파일 f에 쓰고 CRC32를 돌려준다.
+    버퍼 하나를 재사용해서 조각마다 bytes를 새로 만들지 않는다."""
+    buf = bytearray(min(RECV_BUF_SIZE, max(size, 1)))
+    view = memoryview(buf)
+    remaining = size
+    crc = 0
+    while remaining > 0:
+        n = conn.recv_into(view, min(len(buf), remaining))
+        if n == 0:
+            raise IOError("연결이 끊어졌습니다(파일 수신 중).")
+        f.write(view[:n])
+        crc = zlib.crc32(view[:n], crc)
+        remaining -= n
+    return crc
+
+
+def recv_to_file(conn, path, size):
+    """size 바이트를 받아 path에 쓴다."""
+    with open(path, "wb") as f:
+        recv_into_file(conn, f, size)
+
+
+def recv_discard(conn, size):
+    """거절한 요청의 바디를 읽어서 버린다 (다음 명령과 섞이지 않도록)."""
+    buf = bytearray(min(RECV_BUF_SIZE, max(size, 1)))
+    view = memoryview(buf)
+    remaining = size
+    while remaining > 0:
+        n = conn.recv_into(view, min(len(buf), remaining))
+        if n == 0:
+            raise IOError("연결이 끊어졌습니다(파일 수신 중).")
+        remaining -= n
+
+
+def stored_upload_name(owner_id, user_id, filename):
+    """업로드 파일을 저장할 이름. (원래 파일명, 저장 파일명)"""
+    safe_filename = filename.replace("/", "_").replace("\\", "_")
+    ts = datetime.now().strftime("%Y%m%d_%H%M%S")
+    return safe_filename, f"{owner_id}_{user_id}_{ts}_{safe_filename}"
 
-        # 요약은 content 첫 줄 50자
-        content = content or ""
-        summary = content.strip().splitlines()[0][:50] if content.strip() else ""
 
-        lines.append(f"ASSIGN|{task_id}|{full_title}|{due_str}|{summary}\n")
+def record_submission(task_id, user_id, safe_filename, stored_name):
+    with get_connection() as c:
+        cur = c.cursor()
+        # file_name 컬럼까지 포함해서 INSERT
+        sql = """
+            INSERT INTO task_submission(task_id, student_id, submitted_at, file_name, file_path)
+            VALUES (%s, %s, NOW(), %s, %s)
+        """
+        cur.execute(sql, (task_id, user_id, safe_filename, os.path.basename(stored_name)))
+        c.commit()
+    print(f"[DB] Insert submission: task={task_id}, student={user_id}")
 
-    lines.append("END\n")
-    conn.sendall("".join(lines).encode("utf-8"))
+
+def record_video(week_id, stored_name):
+    with get_connection() as c:
+        cur = c.cursor()
+        sql = "INSERT INTO video(week_id, lecture_id, video_path) VALUES (%s, %s, %s)"
+        cur.execute(sql, (week_id, 1, stored_name))
+        c.commit()
+        bump_list_version("VIDEO")
+    print(f"[DB] Insert video: week={week_id}, path={stored_name}")
 
 
 # ---------------------------
@@ -224,67 +457,47 @@ def handle_assign_list(conn, parts):
 # ---------------------------
 def handle_assign_submit_file(conn, parts, first_line_raw, addr):
     if len(parts) != 5:
-        resp = "ERR|BAD_REQUEST\n"
-        conn.sendall(resp.encode("utf-8"))
+        conn.send_line("ERR", "BAD_REQUEST")
         return
 
     _, user_id, task_id, filename, filesize_str = parts
     try:
         filesize = int(filesize_str)
     except ValueError:
-        conn.sendall(b"ERR|BAD_FILESIZE\n")
+        conn.send_line("ERR", "BAD_FILESIZE")
         return
 
     print(f"[RECV FILE HEADER] user={user_id} task={task_id} file={filename} size={filesize}")
 
-    conn.sendall(b"OK\n")
+    conn.send_line("OK")
 
-    safe_filename = filename.replace("/", "_").replace("\\", "_")
-    ts = datetime.now().strftime("%Y%m%d_%H%M%S")
-    stored_name = f"{task_id}_{user_id}_{ts}_{safe_filename}"
+    safe_filename, stored_name = stored_upload_name(task_id, user_id, filename)
     stored_path = os.path.join(SUBMISSION_DIR, stored_name)
 
-    remaining = filesize
     try:
-        with open(stored_path, "wb") as f:
-            while remaining > 0:
-                chunk = conn.recv(min(64 * 1024, remaining))
-                if not chunk:
-                    raise IOError("연결이 끊어졌습니다(파일 수신 중).")
-                f.write(chunk)
-                remaining -= len(chunk)
+        recv_to_file(conn, stored_path, filesize)
     except Exception as e:
         print(f"[ERROR][SUBMIT_FILE] {addr}: {e}")
         try:
-            conn.sendall(b"ERR|FILE_RECV_ERROR\n")
+            conn.send_line("ERR", "FILE_RECV_ERROR")
         except Exception:
             pass
         return
 
     print(f"[SUBMIT_FILE] user={user_id} assignment={task_id} file={filename} size={filesize} path={stored_path}")
 
-    rel_name = os.path.basename(stored_name)
     try:
-        with get_connection() as c:
-            cur = c.cursor()
-            # file_name 컬럼까지 포함해서 INSERT
-            sql = """
-                INSERT INTO task_submission(task_id, student_id, submitted_at, file_name, file_path)
-                VALUES (%s, %s, NOW(), %s, %s)
-            """
-            cur.execute(sql, (task_id, user_id, safe_filename, rel_name))
-            c.commit()
-        print(f"[DB] Insert submission: task={task_id}, student={user_id}")
+        record_submission(task_id, user_id, safe_filename, stored_name)
     except Error as e:
         print(f"[ERROR][SUBMIT_FILE][DB] {e}")
         try:
-            conn.sendall(f"ERR|DB_ERROR|{e}\n".encode("utf-8"))
+            conn.send_line("ERR", "DB_ERROR", e)
         except Exception:
             pass
         return
 
     try:
-        conn.sendall(b"DONE\n")
+        conn.send_line("DONE")
     except Exception:
         pass
     print(f"[SUBMIT_FILE] Saved and recorded: {stored_path}")
@@ -296,7 +509,7 @@ def handle_assign_submit_file(conn, parts, first_line_raw, addr):
 # ---------------------------
 def handle_assign_submission_list(conn, parts):
     if len(parts) != 3:
-        conn.sendall(b"ERR|BAD_REQUEST\n")
+        conn.send_line("ERR", "BAD_REQUEST")
         return
     _, user_id, task_id = parts
 
@@ -334,10 +547,10 @@ def handle_assign_submission_list(conn, parts):
                 rows = cur.fetchall()
     except Error as e:
         print(f"[ERROR][ASSIGN_SUBMISSION_LIST] {e}")
-        conn.sendall(f"ERR|DB_ERROR|{e}\n".encode("utf-8"))
+        conn.send_line("ERR", "DB_ERROR", e)
         return
 
-    lines = []
+    out = []
     for student_id, student_name, submitted_at, file_path in rows:
         ts_str = (
             submitted_at.strftime("%Y-%m-%d %H:%M:%S")
@@ -346,9 +559,8 @@ def handle_assign_submission_list(conn, parts):
         )
         student_name = student_name or ""
         file_path = file_path or ""
-        lines.append(f"SUBMIT|{student_id}|{student_name}|{ts_str}|{file_path}\n")
-    lines.append("END\n")
-    conn.sendall("".join(lines).encode("utf-8"))
+        out.append(("SUBMIT", student_id, student_name, ts_str, file_path))
+    conn.send_rows(out)
 
 
 # ---------------------------
@@ -359,7 +571,7 @@ def handle_assign_submission_list(conn, parts):
 def handle_assign_download_file(conn, parts):
     # 요청: ASSIGN_DOWNLOAD_FILE|userId|filePath
     if len(parts) != 3:
-        conn.sendall(b"ERR|BAD_REQUEST\n")
+        conn.send_line("ERR", "BAD_REQUEST")
         return
 
     _, user_id, file_path = parts
@@ -373,25 +585,21 @@ def handle_assign_download_file(conn, parts):
     if not os.path.exists(full_path) or not os.path.isfile(full_path):
         print(f"[WARN][ASSIGN_DOWNLOAD_FILE] not found: {full_path}")
         try:
-            conn.sendall(b"ERR|NOT_FOUND\n")
+            conn.send_line("ERR", "NOT_FOUND")
         except Exception:
             pass
         return
 
     size = os.path.getsize(full_path)
-    header = f"OK|{size}\n"
     try:
-        conn.sendall(header.encode("utf-8"))
+        conn.send_line("OK", size)
+        # sendfile: 가능하면 커널에서 바로 소켓으로 보낸다 (안 되면 내부적으로 send로 대체)
         with open(full_path, "rb") as f:
-            while True:
-                chunk = f.read(64 * 1024)
-                if not chunk:
-                    break
-                conn.sendall(chunk)
+            conn.sendfile(f, 0, size)
     except Exception as e:
         print(f"[ERROR][ASSIGN_DOWNLOAD_FILE] {e}")
         try:
-            conn.sendall(b"ERR|TRANSFER_ERROR\n")
+            conn.send_line("ERR", "TRANSFER_ERROR")
         except Exception:
             pass
 
@@ -399,11 +607,14 @@ def handle_assign_download_file(conn, parts):
 # ---------------------------
 # 공지 목록 (NOTICE_LIST)
 # notice: (notice_id, professor_id, date, content, attachment_file)
-# 응답: NOTICE|id|title|content|createdAt
+# 응답: NOTICE|id|title|content|createdAt  (버전을 붙이면 목록 버전 참고)
 # ---------------------------
 def handle_notice_list(conn, parts):
-    if len(parts) != 2:
-        conn.sendall(b"ERR|BAD_REQUEST\n")
+    if len(parts) not in (2, 3):
+        conn.send_line("ERR", "BAD_REQUEST")
+        return
+    head = list_version_head(conn, parts, "NOTICE")
+    if head is None:
         return
 
     try:
@@ -419,35 +630,36 @@ def handle_notice_list(conn, parts):
     except Error as e:
         print(f"[ERROR][NOTICE_LIST] {e}")
         try:
-            conn.sendall(f"ERR|DB_ERROR|{e}\n".encode("utf-8"))
+            conn.send_line("ERR", "DB_ERROR", e)
         except Exception:
             pass
         return
 
-    lines = []
-    for nid, content, date_val in rows:
-        content = content or ""
+    try:
+        conn.send_rows(head + [notice_row(row) for row in rows])
+    except Exception as e:
+        print(f"[ERROR][NOTICE_LIST][SEND] {e}")
 
-        # 제목: content의 첫 줄 일부만 사용
-        first_line = content.strip().splitlines()[0] if content.strip() else ""
-        title = first_line[:20] + ("..." if len(first_line) > 20 else "")
-        if not title:
-            title = f"공지 {nid}"
 
-        # createdAt 표시용 문자열 (DATE 타입이므로 yyyy-MM-dd 정도로)
-        if hasattr(date_val, "strftime"):
-            ts_str = date_val.strftime("%Y-%m-%d")
-        else:
-            ts_str = str(date_val)
+def notice_row(row):
+    """notice 한 행(notice_id, content, date) → NOTICE|id|title|content|createdAt 응답 필드"""
+    nid, content, date_val = row
+    content = content or ""
 
-        # 프로토콜: NOTICE|id|title|content|createdAt
-        lines.append(f"NOTICE|{nid}|{title}|{content}|{ts_str}\n")
+    # 제목: content의 첫 줄 일부만 사용
+    first_line = content.strip().splitlines()[0] if content.strip() else ""
+    title = first_line[:20] + ("..." if len(first_line) > 20 else "")
+    if not title:
+        title = f"공지 {nid}"
 
-    lines.append("END\n")
-    try:
-        conn.sendall("".join(lines).encode("utf-8"))
-    except Exception as e:
-        print(f"[ERROR][NOTICE_LIST][SEND] {e}")
+    # createdAt 표시용 문자열 (DATE 타입이므로 yyyy-MM-dd 정도로)
+    if hasattr(date_val, "strftime"):
+        ts_str = date_val.strftime("%Y-%m-%d")
+    else:
+        ts_str = str(date_val)
+
+    # 프로토콜: NOTICE|id|title|content|createdAt
+    return ("NOTICE", nid, title, content, ts_str)
 
 
 # ---------------------------
@@ -459,7 +671,7 @@ def handle_notice_list(conn, parts):
 # 요청: NOTICE_CREATE|userId|content
 def handle_notice_create(conn, parts):
     if len(parts) != 3:
-        conn.sendall(b"ERR|BAD_REQUEST\n")
+        conn.send_line("ERR", "BAD_REQUEST")
         return
 
     _, user_id, content = parts
@@ -475,12 +687,13 @@ def handle_notice_create(conn, parts):
             """
             cur.execute(sql, (user_id, content))
             c.commit()
+            bump_list_version("NOTICE")
 
-        conn.sendall(b"OK\n")
+        conn.send_line("OK")
     except Error as e:
         print(f"[ERROR][NOTICE_CREATE] {e}")
         try:
-            conn.sendall(f"ERR|DB_ERROR|{e}\n".encode("utf-8"))
+            conn.send_line("ERR", "DB_ERROR", e)
         except Exception:
             pass
 
@@ -493,7 +706,7 @@ def handle_notice_create(conn, parts):
 # ---------------------------
 def handle_notice_update(conn, parts):
     if len(parts) != 4:
-        conn.sendall(b"ERR|BAD_REQUEST\n")
+        conn.send_line("ERR", "BAD_REQUEST")
         return
 
     _, user_id, notice_id, content = parts
@@ -508,12 +721,13 @@ def handle_notice_update(conn, parts):
             """
             cur.execute(sql, (content, notice_id))
             c.commit()
+            bump_list_version("NOTICE")
 
-        conn.sendall(b"OK\n")
+        conn.send_line("OK")
     except Error as e:
         print(f"[ERROR][NOTICE_UPDATE] {e}")
         try:
-            conn.sendall(f"ERR|DB_ERROR|{e}\n".encode("utf-8"))
+            conn.send_line("ERR", "DB_ERROR", e)
         except Exception:
             pass
 
@@ -524,7 +738,7 @@ def handle_notice_update(conn, parts):
 # ---------------------------
 def handle_notice_delete(conn, parts):
     if len(parts) != 3:
-        conn.sendall(b"ERR|BAD_REQUEST\n")
+        conn.send_line("ERR", "BAD_REQUEST")
         return
 
     _, user_id, notice_id = parts
@@ -535,12 +749,13 @@ def handle_notice_delete(conn, parts):
             sql = "DELETE FROM notice WHERE notice_id = %s"
             cur.execute(sql, (notice_id,))
             c.commit()
+            bump_list_version("NOTICE")
 
-        conn.sendall(b"OK\n")
+        conn.send_line("OK")
     except Error as e:
         print(f"[ERROR][NOTICE_DELETE] {e}")
         try:
-            conn.sendall(f"ERR|DB_ERROR|{e}\n".encode("utf-8"))
+            conn.send_line("ERR", "DB_ERROR", e)
         except Exception:
             pass
 
@@ -554,11 +769,15 @@ def handle_notice_delete(conn, parts):
 #       progress: 내가 본 경우 100, 아니면 0 (교수는 항상 0)
 # ---------------------------
 def handle_video_list(conn, parts):
-    if len(parts) != 2:
-        conn.sendall(b"ERR|BAD_REQUEST\n")
+    if len(parts) not in (2, 3):
+        conn.send_line("ERR", "BAD_REQUEST")
         return
 
-    _, user_id = parts  # 학생/교수 아이디
+    user_id = parts[1]  # 학생/교수 아이디
+    # 시청 여부가 들어 있어서 누가 VIDEO_WATCH를 해도 버전이 오른다 (사용자별로 나누진 않음)
+    head = list_version_head(conn, parts, "VIDEO")
+    if head is None:
+        return
 
     try:
         with get_connection() as c:
@@ -581,18 +800,19 @@ def handle_video_list(conn, parts):
             rows = cur.fetchall()
     except Error as e:
         print(f"[ERROR][VIDEO_LIST] {e}")
-        conn.sendall(f"ERR|DB_ERROR|{e}\n".encode("utf-8"))
+        conn.send_line("ERR", "DB_ERROR", e)
         return
 
-    lines = []
-    for vid, week_label, video_path, is_attended in rows:
-        week_label = week_label or ""
-        title = f"[{week_label}] 강의 영상"
-        progress = 100 if is_attended else 0  # 본 적 있으면 100%, 아니면 0%
-        lines.append(f"VIDEO|{vid}|{title}|{week_label}|{progress}\n")
+    conn.send_rows(head + [video_row(row) for row in rows])
+
 
-    lines.append("END\n")
-    conn.sendall("".join(lines).encode("utf-8"))
+def video_row(row):
+    """video 조회 한 행 → VIDEO|id|title|weekLabel|progress 응답 필드"""
+    vid, week_label, video_path, is_attended = row
+    week_label = week_label or ""
+    title = f"[{week_label}] 강의 영상"
+    progress = 100 if is_attended else 0  # 본 적 있으면 100%, 아니면 0%
+    return ("VIDEO", vid, title, week_label, progress)
 
 # ---------------------------
 # 영상 시청 기록 (VIDEO_WATCH)
@@ -600,7 +820,7 @@ def handle_video_list(conn, parts):
 # ---------------------------
 def handle_video_watch(conn, parts):
     if len(parts) != 3:
-        conn.sendall(b"ERR|BAD_REQUEST\n")
+        conn.send_line("ERR", "BAD_REQUEST")
         return
 
     _, student_id, video_id = parts
@@ -629,10 +849,11 @@ def handle_video_watch(conn, parts):
                     (video_id, student_id),
                 )
             c.commit()
-        conn.sendall(b"OK\n")
+            bump_list_version("VIDEO")
+        conn.send_line("OK")
     except Error as e:
         print(f"[ERROR][VIDEO_WATCH] {e}")
-        conn.sendall(f"ERR|DB_ERROR|{e}\n".encode("utf-8"))
+        conn.send_line("ERR", "DB_ERROR", e)
 
 # ---------------------------
 # 영상별 학생 재생률 조회 (VIDEO_PROGRESS_LIST)
@@ -646,7 +867,7 @@ def handle_video_watch(conn, parts):
 # ---------------------------
 def handle_video_progress_list(conn, parts):
     if len(parts) != 3:
-        conn.sendall(b"ERR|BAD_REQUEST\n")
+        conn.send_line("ERR", "BAD_REQUEST")
         return
 
     _, user_id, video_id = parts  # user_id는 현재는 사용 X
@@ -669,25 +890,24 @@ def handle_video_progress_list(conn, parts):
             rows = cur.fetchall()
     except Error as e:
         print(f"[ERROR][VIDEO_PROGRESS_LIST] {e}")
-        conn.sendall(f"ERR|DB_ERROR|{e}\n".encode("utf-8"))
+        conn.send_line("ERR", "DB_ERROR", e)
         return
 
-    lines = []
+    out = []
     for sid, sname, is_attended in rows:
         is_attended = int(is_attended or 0)
         percent = 100 if is_attended == 1 else 0
         status = "DONE" if percent == 100 else "NOT_YET"
         sname = sname or ""
-        lines.append(f"PROG|{sid}|{sname}|{percent}|{status}\n")
+        out.append(("PROG", sid, sname, percent, status))
 
-    lines.append("END\n")
-    conn.sendall("".join(lines).encode("utf-8"))
+    conn.send_rows(out)
 
 # 영상 등록 (기존: 파일명만 DB에 등록, 지금은 파일 업로드용 별도 핸들러도 추가)
 def handle_video_create(conn, parts):
     # VIDEO_CREATE|userId|weekId|filename
     if len(parts) != 4:
-        conn.sendall(b"ERR|BAD_REQUEST\n")
+        conn.send_line("ERR", "BAD_REQUEST")
         return
     _, user_id, week_id, filename = parts
     try:
@@ -696,16 +916,17 @@ def handle_video_create(conn, parts):
             sql = "INSERT INTO video(week_id, lecture_id, video_path) VALUES (%s, %s, %s)"
             cur.execute(sql, (week_id, 1, filename))
             c.commit()
-        conn.sendall(b"OK\n")
+            bump_list_version("VIDEO")
+        conn.send_line("OK")
     except Error as e:
         print(f"[ERROR][VIDEO_CREATE] {e}")
-        conn.sendall(f"ERR|DB_ERROR|{e}\n".encode("utf-8"))
+        conn.send_line("ERR", "DB_ERROR", e)
 
 
 def handle_video_delete(conn, parts):
     # VIDEO_DELETE|userId|videoId
     if len(parts) != 3:
-        conn.sendall(b"ERR|BAD_REQUEST\n")
+        conn.send_line("ERR", "BAD_REQUEST")
         return
     _, user_id, video_id = parts
     try:
@@ -724,17 +945,18 @@ def handle_video_delete(conn, parts):
 
             cur.execute("DELETE FROM video WHERE video_id=%s", (video_id,))
             c.commit()
-        conn.sendall(b"OK\n")
+            bump_list_version("VIDEO")
+        conn.send_line("OK")
     except Error as e:
         print(f"[ERROR][VIDEO_DELETE] {e}")
-        conn.sendall(f"ERR|DB_ERROR|{e}\n".encode("utf-8"))
+        conn.send_line("ERR", "DB_ERROR", e)
 
 
 # 영상 파일 업로드 (VIDEO_UPLOAD_FILE)
 # 헤더: VIDEO_UPLOAD_FILE|userId|weekId|filename|filesize\n
 def handle_video_upload_file(conn, parts, first_line_raw, addr):
     if len(parts) != 5:
-        conn.sendall(b"ERR|BAD_REQUEST\n")
+        conn.send_line("ERR", "BAD_REQUEST")
         return
     _, user_id, week_id_str, filename, filesize_str = parts
     try:
@@ -744,31 +966,22 @@ def handle_video_upload_file(conn, parts, first_line_raw, addr):
     try:
         filesize = int(filesize_str)
     except ValueError:
-        conn.sendall(b"ERR|BAD_FILESIZE\n")
+        conn.send_line("ERR", "BAD_FILESIZE")
         return
 
     print(f"[VIDEO_UPLOAD] header user={user_id} week={week_id} file={filename} size={filesize}")
 
-    conn.sendall(b"OK\n")
+    conn.send_line("OK")
 
-    safe_filename = filename.replace("/", "_").replace("\\", "_")
-    ts = datetime.now().strftime("%Y%m%d_%H%M%S")
-    stored_name = f"{week_id}_{user_id}_{ts}_{safe_filename}"
+    _, stored_name = stored_upload_name(week_id, user_id, filename)
     stored_path = os.path.join(VIDEO_DIR, stored_name)
 
-    remaining = filesize
     try:
-        with open(stored_path, "wb") as f:
-            while remaining > 0:
-                chunk = conn.recv(min(64 * 1024, remaining))
-                if not chunk:
-                    raise IOError("연결이 끊어졌습니다(영상 수신 중).")
-                f.write(chunk)
-                remaining -= len(chunk)
+        recv_to_file(conn, stored_path, filesize)
     except Exception as e:
         print(f"[ERROR][VIDEO_UPLOAD_FILE] {addr}: {e}")
         try:
-            conn.sendall(b"ERR|FILE_RECV_ERROR\n")
+            conn.send_line("ERR", "FILE_RECV_ERROR")
         except Exception:
             pass
         return
@@ -776,33 +989,314 @@ def handle_video_upload_file(conn, parts, first_line_raw, addr):
     print(f"[VIDEO_UPLOAD_FILE] Saved file: {stored_path}")
 
     try:
-        with get_connection() as c:
-            cur = c.cursor()
-            sql = "INSERT INTO video(week_id, lecture_id, video_path) VALUES (%s, %s, %s)"
-            cur.execute(sql, (week_id, 1, stored_name))
-            c.commit()
-        print(f"[DB] Insert video: week={week_id}, path={stored_name}")
+        record_video(week_id, stored_name)
     except Error as e:
         print(f"[ERROR][VIDEO_UPLOAD_FILE][DB] {e}")
         try:
-            conn.sendall(f"ERR|DB_ERROR|{e}\n".encode("utf-8"))
+            conn.send_line("ERR", "DB_ERROR", e)
         except Exception:
             pass
         return
 
     try:
-        conn.sendall(b"DONE\n")
+        conn.send_line("DONE")
     except Exception:
         pass
 
 
+# ---------------------------
+# 이어 올리기 업로드 (UPLOAD_BEGIN / UPLOAD_STATUS / UPLOAD_CHUNK / UPLOAD_FINISH)
+# 과제 제출과 영상 업로드를 조각 단위로 받는다. 연결이 끊겨도 받은 조각은 남아 있어서
+# 클라이언트가 다시 붙으면 UPLOAD_STATUS로 받은 구간을 확인하고 빠진 곳만 보낸다.
+# 조각은 offset 위치에 바로 쓰므로 여러 연결이 서로 다른 구간을 동시에 보내도 된다.
+#
+#   UPLOAD_BEGIN|userId|kind|targetId|filename|filesize|fileKey  → OK|uploadId|prefix|ranges
+#   UPLOAD_STATUS|uploadId                                       → OK|prefix|ranges
+#   UPLOAD_CHUNK|uploadId|offset|length|crc32hex + 바디            → OK|prefix
+#   UPLOAD_FINISH|uploadId                                       → DONE
+#
+# prefix 는 0부터 빈틈없이 받은 바이트 수, ranges 는 받은 구간 목록("0-4194304,8388608-12582912").
+# kind 는 ASSIGN(targetId=과제 id) / VIDEO(targetId=주차).
+# uploadId 는 (사용자, 대상, 파일) 조합으로 정해지므로 서버가 재시작돼도 .part 파일에서 이어 받는다.
+# ---------------------------
+UPLOAD_KINDS = ("ASSIGN", "VIDEO")
+UPLOAD_ID_RE = re.compile(r"^(assign|video)-[0-9a-f]{40}$")
+UPLOAD_PARTIAL_MAX_AGE = 2 * 24 * 3600   # 이보다 오래 방치된 조각 파일은 지운다(초)
+
+UPLOAD_LOCKS = {}
+UPLOAD_INFLIGHT = {}   # uploadId → 지금 받고 있는 구간 [(start, end)] (해당 업로드 락 안에서만 만진다)
+UPLOAD_LOCKS_GUARD = threading.Lock()
+
+
+def upload_lock(upload_id):
+    with UPLOAD_LOCKS_GUARD:
+        lock = UPLOAD_LOCKS.get(upload_id)
+        if lock is None:
+            lock = threading.Lock()
+            UPLOAD_LOCKS[upload_id] = lock
+        return lock
+
+
+def upload_partial_dir(kind):
+    base = SUBMISSION_DIR if kind == "ASSIGN" else VIDEO_DIR
+    # 최종 위치와 같은 파일시스템에 둬야 완료 때 os.replace 한 번으로 끝난다
+    path = os.path.join(base, ".partial")
+    os.makedirs(path, exist_ok=True)
+    return path
+
+
+def upload_paths(upload_id):
+    """(kind, .part 경로, .json 경로). 형식이 틀린 id면 None"""
+    if not UPLOAD_ID_RE.match(upload_id):
+        return None
+    kind = upload_id.split("-", 1)[0].upper()
+    d = upload_partial_dir(kind)
+    return kind, os.path.join(d, upload_id + ".part"), os.path.join(d, upload_id + ".json")
+
+
+def load_upload_meta(meta_path):
+    try:
+        with open(meta_path, "r", encoding="utf-8") as f:
+            return json.load(f)
+    except (OSError, ValueError):
+        return None
+
+
+def save_upload_meta(meta_path, meta):
+    tmp = meta_path + ".tmp"
+    with open(tmp, "w", encoding="utf-8") as f:
+        json.dump(meta, f, ensure_ascii=False)
+    os.replace(tmp, meta_path)
+
+
+def upload_ranges(meta, part_path):
+    """검증까지 끝난 구간 목록 [[start, end], ...] (정렬·병합된 상태)"""
+    if meta.get("done"):
+        return [[0, meta["size"]]]
+    if "ranges" in meta:
+        return meta["ranges"]
+    # 예전 형식: .part 파일 길이만큼 앞에서부터 받은 것
+    try:
+        size = os.path.getsize(part_path)
+    except OSError:
+        size = 0
+    return [[0, size]] if size > 0 else []
+
+
+def merge_range(ranges, start, end):
+    merged = []
+    for s, e in sorted(ranges + [[start, end]]):
+        if merged and s <= merged[-1][1]:
+            merged[-1][1] = max(merged[-1][1], e)
+        else:
+            merged.append([s, e])
+    return merged
+
+
+def contiguous_prefix(ranges):
+    return ranges[0][1] if ranges and ranges[0][0] == 0 else 0
+
+
+def format_ranges(ranges):
+    return ",".join(f"{s}-{e}" for s, e in ranges)
+
+
+def sweep_stale_uploads(kind):
+    d = upload_partial_dir(kind)
+    limit = time.time() - UPLOAD_PARTIAL_MAX_AGE
+    for name in os.listdir(d):
+        path = os.path.join(d, name)
+        try:
+            if os.path.getmtime(path) < limit:
+                os.remove(path)
+        except OSError:
+            pass
+
+
+def handle_upload_begin(conn, parts):
+    if len(parts) != 7:
+        conn.send_line("ERR", "BAD_REQUEST")
+        return
+    _, user_id, kind, target_id, filename, filesize_str, file_key = parts
+    if kind not in UPLOAD_KINDS:
+        conn.send_line("ERR", "BAD_REQUEST")
+        return
+    try:
+        filesize = int(filesize_str)
+    except ValueError:
+        conn.send_line("ERR", "BAD_FILESIZE")
+        return
+
+    digest = hashlib.sha1(f"{user_id}|{kind}|{target_id}|{filename}|{filesize}|{file_key}".encode("utf-8"))
+    upload_id = f"{kind.lower()}-{digest.hexdigest()}"
+    _, part_path, meta_path = upload_paths(upload_id)
+
+    with upload_lock(upload_id):
+        sweep_stale_uploads(kind)
+        meta = load_upload_meta(meta_path)
+        if meta is None or meta.get("done") or not os.path.exists(part_path):
+            # 새로 시작 (이전에 끝난 업로드를 같은 파일로 다시 내는 경우 포함)
+            meta = {
+                "user_id": user_id,
+                "kind": kind,
+                "target_id": target_id,
+                "filename": filename,
+                "size": filesize,
+                "ranges": [],
+            }
+            # 전체 크기로 미리 늘려 둔다 (조각이 어느 offset으로 와도 바로 쓸 수 있게)
+            with open(part_path, "wb") as f:
+                f.truncate(filesize)
+            save_upload_meta(meta_path, meta)
+        ranges = upload_ranges(meta, part_path)
+
+    prefix = contiguous_prefix(ranges)
+    print(f"[UPLOAD_BEGIN] {upload_id} user={user_id} {kind}={target_id} file={filename} size={filesize} received={prefix}")
+    conn.send_line("OK", upload_id, prefix, format_ranges(ranges))
+
+
+def handle_upload_status(conn, parts):
+    if len(parts) != 2:
+        conn.send_line("ERR", "BAD_REQUEST")
+        return
+    paths = upload_paths(parts[1])
+    meta = load_upload_meta(paths[2]) if paths else None
+    if meta is None:
+        conn.send_line("ERR", "NO_SESSION")
+        return
+    ranges = upload_ranges(meta, paths[1])
+    conn.send_line("OK", contiguous_prefix(ranges), format_ranges(ranges))
+
+
+def handle_upload_chunk(conn, parts):
+    """
+    헤더 뒤에 바로 length 바이트가 붙어 온다. 거절할 때도 바디는 읽어서 버려야
+    다음 명령이 밀리지 않는다. 헤더를 해석할 수 없으면 바디 길이를 모르니 연결을 끊는다.
+    이미 받은 구간을 다시 보내는 것은 허용하고(같은 파일이므로 덮어써도 같다),
+    다른 연결이 지금 받고 있는 구간과 겹치는 것만 거절한다.
+    """
+    try:
+        _, upload_id, offset_str, length_str, crc_str = parts
+        offset = int(offset_str)
+        length = int(length_str)
+        expected_crc = int(crc_str, 16)
+    except ValueError:
+        conn.send_line("ERR", "BAD_REQUEST")
+        raise IOError("UPLOAD_CHUNK 헤더 형식 오류")
+
+    paths = upload_paths(upload_id)
+    if paths is None:
+        recv_discard(conn, length)
+        conn.send_line("ERR", "NO_SESSION")
+        return
+    _, part_path, meta_path = paths
+    span = (offset, offset + length)
+    lock = upload_lock(upload_id)
+
+    with lock:
+        meta = load_upload_meta(meta_path)
+        reject = None
+        if meta is None or meta.get("done"):
+            reject = ("ERR", "NO_SESSION")
+        else:
+            inflight = UPLOAD_INFLIGHT.setdefault(upload_id, [])
+            overlaps = any(s < span[1] and span[0] < e for s, e in inflight)
+            if offset < 0 or length <= 0 or span[1] > meta["size"] or overlaps:
+                prefix = contiguous_prefix(upload_ranges(meta, part_path))
+                reject = ("ERR", "BAD_OFFSET", prefix)
+            else:
+                inflight.append(span)
+    if reject:
+        recv_discard(conn, length)
+        conn.send_line(*reject)
+        return
+
+    # 바디 수신은 락 밖에서 한다 → 다른 연결의 다른 구간과 동시에 진행된다
+    try:
+        with open(part_path, "r+b") as f:
+            f.seek(offset)
+            actual_crc = recv_into_file(conn, f, length)
+    finally:
+        with lock:
+            UPLOAD_INFLIGHT[upload_id].remove(span)
+
+    if actual_crc != expected_crc:
+        # 받은 구간으로 기록하지 않으면 그만 (내용은 다음에 덮어쓴다)
+        print(f"[UPLOAD_CHUNK] {upload_id} checksum mismatch at {offset}")
+        conn.send_line("ERR", "CHECKSUM_MISMATCH", offset)
+        return
+
+    with lock:
+        meta = load_upload_meta(meta_path)
+        if meta is None or meta.get("done"):
+            conn.send_line("ERR", "NO_SESSION")
+            return
+        meta["ranges"] = merge_range(upload_ranges(meta, part_path), *span)
+        save_upload_meta(meta_path, meta)
+        prefix = contiguous_prefix(meta["ranges"])
+
+    conn.send_line("OK", prefix)
+
+
+def handle_upload_finish(conn, parts):
+    if len(parts) != 2:
+        conn.send_line("ERR", "BAD_REQUEST")
+        return
+    upload_id = parts[1]
+    paths = upload_paths(upload_id)
+    meta = load_upload_meta(paths[2]) if paths else None
+    if meta is None:
+        conn.send_line("ERR", "NO_SESSION")
+        return
+    kind, part_path, meta_path = paths
+
+    with upload_lock(upload_id):
+        meta = load_upload_meta(meta_path)
+        if meta.get("done"):
+            # 이전 FINISH의 DONE 응답만 못 받은 경우 → 다시 기록하지 않는다
+            conn.send_line("DONE")
+            return
+        # 모든 구간이 다 들어와야 완료 (병렬 업로드면 조각 순서는 상관없다)
+        received = contiguous_prefix(upload_ranges(meta, part_path))
+        if received != meta["size"]:
+            conn.send_line("ERR", "INCOMPLETE", received)
+            return
+
+        user_id = meta["user_id"]
+        target_id = meta["target_id"]
+        try:
+            if kind == "ASSIGN":
+                safe_filename, stored_name = stored_upload_name(target_id, user_id, meta["filename"])
+                os.replace(part_path, os.path.join(SUBMISSION_DIR, stored_name))
+                record_submission(target_id, user_id, safe_filename, stored_name)
+            else:
+                try:
+                    week_id = int(target_id)
+                except ValueError:
+                    week_id = 1
+                _, stored_name = stored_upload_name(week_id, user_id, meta["filename"])
+                os.replace(part_path, os.path.join(VIDEO_DIR, stored_name))
+                record_video(week_id, stored_name)
+        except Error as e:
+            print(f"[ERROR][UPLOAD_FINISH][DB] {e}")
+            conn.send_line("ERR", "DB_ERROR", e)
+            return
+
+        meta["done"] = stored_name
+        save_upload_meta(meta_path, meta)
+        UPLOAD_INFLIGHT.pop(upload_id, None)
+
+    print(f"[UPLOAD_FINISH] {upload_id} → {stored_name}")
+    conn.send_line("DONE")
+
+
 # ---------------------------
 # 과제 CRUD (교사용)
 # ---------------------------
 def handle_assign_create(conn, parts):
     # 기본: ASSIGN_CREATE|userId|title|summary
     if len(parts) < 4:
-        conn.sendall(b"ERR|BAD_REQUEST\n")
+        conn.send_line("ERR", "BAD_REQUEST")
         return
 
     _, user_id, title = parts[0:3]
@@ -821,16 +1315,17 @@ def handle_assign_create(conn, parts):
             """
             cur.execute(sql, (1, today, end_date, title, summary))
             c.commit()
-        conn.sendall(b"OK\n")
+            bump_list_version("ASSIGN")
+        conn.send_line("OK")
     except Error as e:
         print(f"[ERROR][ASSIGN_CREATE] {e}")
-        conn.sendall(f"ERR|DB_ERROR|{e}\n".encode("utf-8"))
+        conn.send_line("ERR", "DB_ERROR", e)
 
 
 def handle_assign_update(conn, parts):
     # ASSIGN_UPDATE|userId|taskId|title|summary
     if len(parts) < 5:
-        conn.sendall(b"ERR|BAD_REQUEST\n")
+        conn.send_line("ERR", "BAD_REQUEST")
         return
     _, user_id, task_id, title = parts[0:4]
     summary = "|".join(parts[4:]) if len(parts) > 4 else ""
@@ -845,16 +1340,17 @@ def handle_assign_update(conn, parts):
             """
             cur.execute(sql, (title, summary, task_id))
             c.commit()
-        conn.sendall(b"OK\n")
+            bump_list_version("ASSIGN")
+        conn.send_line("OK")
     except Error as e:
         print(f"[ERROR][ASSIGN_UPDATE] {e}")
-        conn.sendall(f"ERR|DB_ERROR|{e}\n".encode("utf-8"))
+        conn.send_line("ERR", "DB_ERROR", e)
 
 
 def handle_assign_delete(conn, parts):
     # ASSIGN_DELETE|userId|taskId
     if len(parts) != 3:
-        conn.sendall(b"ERR|BAD_REQUEST\n")
+        conn.send_line("ERR", "BAD_REQUEST")
         return
     _, user_id, task_id = parts
     try:
@@ -863,19 +1359,136 @@ def handle_assign_delete(conn, parts):
             sql = "DELETE FROM task_detail WHERE task_id=%s"
             cur.execute(sql, (task_id,))
             c.commit()
-        conn.sendall(b"OK\n")
+            bump_list_version("ASSIGN")
+        conn.send_line("OK")
     except Error as e:
         print(f"[ERROR][ASSIGN_DELETE] {e}")
-        conn.sendall(f"ERR|DB_ERROR|{e}\n".encode("utf-8"))
+        conn.send_line("ERR", "DB_ERROR", e)
+
+
+# ---------------------------
+# 홈 화면 요약 (HOME_SUMMARY)
+# 요청: HOME_SUMMARY|userId|topN
+# 응답:
+#   SUMMARY|과제수|공지수|영상수|현재주차
+#   ASSIGN|...   (최대 topN개, ASSIGN_LIST와 같은 순서/형식)
+#   NOTICE|...   (최대 topN개)
+#   VIDEO|...    (최대 topN개)
+#   END
+# 조회에 실패한 항목은 개수를 -1로 보낸다. 현재주차는 과제가 없으면 0.
+# ---------------------------
+WEEK_TAG_RE = re.compile(r"\[([^\[\]]*)\]")
+
+
+def last_week_number(title):
+    """제목에서 마지막 [N주차]의 N (클라이언트 extractLastWeekNumberFromTitle과 같은 규칙)"""
+    last_week = -1
+    for inside in WEEK_TAG_RE.findall(title or ""):
+        if "주차" in inside:
+            try:
+                last_week = int(inside.replace("주차", "").strip())
+            except ValueError:
+                pass
+    return last_week if last_week > 0 else 1
+
+
+def handle_home_summary(conn, parts):
+    if len(parts) not in (2, 3):
+        conn.send_line("ERR", "BAD_REQUEST")
+        return
+
+    user_id = parts[1]
+    try:
+        top_n = max(0, int(parts[2])) if len(parts) == 3 else 2
+    except ValueError:
+        top_n = 2
+
+    assign_count = notice_count = video_count = -1
+    current_week = 0
+    assign_rows, notice_rows, video_rows = [], [], []
+
+    try:
+        with get_connection() as c:
+            cur = c.cursor()
+
+            try:
+                cur.execute(
+                    """
+                    SELECT task_id, week_id, start_date, end_date, title, content
+                    FROM task_detail
+                    ORDER BY task_id
+                    """
+                )
+                rows = cur.fetchall()
+                assign_count = len(rows)
+                for row in rows:
+                    week_id, title = row[1], row[4] or ""
+                    label_week = f"{week_id}주차" if week_id is not None else "과제"
+                    full_title = f"[{label_week}] {title}" if title else label_week
+                    current_week = max(current_week, last_week_number(full_title))
+                assign_rows = [assign_row(r) for r in rows[:top_n]]
+            except Error as e:
+                print(f"[ERROR][HOME_SUMMARY][ASSIGN] {e}")
+
+            try:
+                cur.execute("SELECT COUNT(*) FROM notice")
+                notice_count = cur.fetchone()[0]
+                cur.execute(
+                    """
+                    SELECT notice_id, content, date
+                    FROM notice
+                    ORDER BY date DESC, notice_id DESC
+                    LIMIT %s
+                    """,
+                    (top_n,),
+                )
+                notice_rows = [notice_row(r) for r in cur.fetchall()]
+            except Error as e:
+                print(f"[ERROR][HOME_SUMMARY][NOTICE] {e}")
+
+            try:
+                cur.execute("SELECT COUNT(*) FROM video")
+                video_count = cur.fetchone()[0]
+                cur.execute(
+                    """
+                    SELECT
+                        v.video_id,
+                        COALESCE(CONCAT(w.week, '주차'), '주차 미지정') AS week_label,
+                        v.video_path,
+                        wt.is_attended
+                    FROM video v
+                    LEFT JOIN week w
+                           ON v.week_id = w.week_id
+                    LEFT JOIN whether wt
+                           ON wt.video_id  = v.video_id
+                          AND wt.student_id = %s
+                    ORDER BY v.video_id
+                    LIMIT %s
+                    """,
+                    (user_id, top_n),
+                )
+                video_rows = [video_row(r) for r in cur.fetchall()]
+            except Error as e:
+                print(f"[ERROR][HOME_SUMMARY][VIDEO] {e}")
+    except Error as e:
+        # DB 연결 자체가 안 되면 전부 -1
+        print(f"[ERROR][HOME_SUMMARY] {e}")
+
+    out = [("SUMMARY", assign_count, notice_count, video_count, current_week)]
+    out += assign_rows + notice_rows + video_rows
+    conn.send_rows(out)
 
 
 # ---------------------------
 # 학생 목록 조회 (STUDENT_LIST) - 교사용
-# 응답: STUDENT|id|name|contact
+# 응답: STUDENT|id|name|contact  (버전을 붙이면 목록 버전 참고)
 # ---------------------------
 def handle_student_list(conn, parts):
-    if len(parts) != 2:
-        conn.sendall(b"ERR|BAD_REQUEST\n")
+    if len(parts) not in (2, 3):
+        conn.send_line("ERR", "BAD_REQUEST")
+        return
+    head = list_version_head(conn, parts, "STUDENT")
+    if head is None:
         return
 
     rows = []
@@ -904,23 +1517,22 @@ def handle_student_list(conn, parts):
                 mode = "id_only"
     except Error as e:
         print(f"[ERROR][STUDENT_LIST] {e}")
-        conn.sendall(f"ERR|DB_ERROR|{e}\n".encode("utf-8"))
+        conn.send_line("ERR", "DB_ERROR", e)
         return
 
-    lines = []
+    out = head
     if mode == "full":
         for sid, name, contact in rows:
             sid = sid or ""
             name = name or ""
             contact = contact or ""
-            lines.append(f"STUDENT|{sid}|{name}|{contact}\n")
+            out.append(("STUDENT", sid, name, contact))
     else:
         for (sid,) in rows:
             sid = sid or ""
-            lines.append(f"STUDENT|{sid}||\n")
+            out.append(("STUDENT", sid, "", ""))
 
-    lines.append("END\n")
-    conn.sendall("".join(lines).encode("utf-8"))
+    conn.send_rows(out)
 
 
 # ---------------------------
@@ -1048,99 +1660,353 @@ def run_http_server():
     httpd.serve_forever()
 
 
+# ---------------------------
+# 바이너리 프레임 프로토콜
+# ---------------------------
+# KEEPALIVE|BIN1 로 연결을 연 클라이언트에게는 OK|KEEPALIVE|idle초|BIN1 로 답하고,
+# 그 뒤로는 그 연결에서 텍스트 줄 대신 길이가 앞에 붙은 프레임으로 주고받는다 (모두 big-endian).
+#   요청: u32 길이 | u32 요청ID | u16 명령ID | u16 필드수 | (u32 길이 + UTF-8 바이트) * 필드수
+#   응답: u32 길이 | u32 요청ID | u32 행수 | 행 * 행수,  행 = u16 필드수 | (u32 길이 + UTF-8 바이트) * 필드수
+# 목록 응답은 END 줄 없이 한 프레임에 모든 행을 담는다. 파일 바디는 예전처럼 프레임 뒤에 그대로 붙는다.
+# 필드 안에 | 나 줄바꿈이 있어도 그대로 전달된다.
+# MUX1은 같은 프레임을 쓰되 요청을 각각 스레드에서 처리하고 끝난 순서대로 답한다 (클라이언트는 요청ID로 짝짓는다).
+# 파일 바디가 프레임 뒤에 붙는 명령은 다른 응답과 섞일 수 없으므로 MUX1 연결에서는 받지 않는다.
+BINARY_PROTOCOLS = ("BIN1", "MUX1")
+FRAME_MAX_SIZE = 16 * 1024 * 1024
+MUX_MAX_INFLIGHT = 8   # MUX1 연결 하나에서 동시에 처리하는 요청 수 (넘으면 다음 프레임을 읽지 않고 기다린다)
+STREAM_COMMANDS = ("ASSIGN_SUBMIT_FILE", "ASSIGN_DOWNLOAD_FILE", "VIDEO_UPLOAD_FILE", "UPLOAD_CHUNK")
+# 연결을 계속 붙잡는 명령 (구독). MUX1에서는 받지 않고, 끝나면 연결을 닫는다
+DEDICATED_COMMANDS = ("CHAT_SUBSCRIBE",)
+
+# 명령ID → 명령 이름 (클라이언트 FrameCodec.COMMAND_IDS 와 같아야 한다)
+COMMAND_IDS = {
+    1: "PING", 2: "LOGIN", 3: "CHAT_POST", 4: "CHAT_LIST", 5: "CHAT_SUBSCRIBE",
+    10: "ASSIGN_LIST", 11: "ASSIGN_SUBMIT_FILE", 12: "ASSIGN_SUBMISSION_LIST",
+    13: "ASSIGN_DOWNLOAD_FILE", 14: "ASSIGN_CREATE", 15: "ASSIGN_UPDATE", 16: "ASSIGN_DELETE",
+    20: "NOTICE_LIST", 21: "NOTICE_CREATE", 22: "NOTICE_UPDATE", 23: "NOTICE_DELETE",
+    30: "VIDEO_LIST", 31: "VIDEO_CREATE", 32: "VIDEO_DELETE", 33: "VIDEO_WATCH",
+    34: "VIDEO_PROGRESS_LIST", 35: "VIDEO_UPLOAD_FILE",
+    40: "STUDENT_LIST", 41: "HOME_SUMMARY",
+    50: "UPLOAD_BEGIN", 51: "UPLOAD_STATUS", 52: "UPLOAD_CHUNK", 53: "UPLOAD_FINISH",
+}
+
+
+def encode_row(fields):
+    out = [struct.pack(">H", len(fields))]
+    for f in fields:
+        data = str(f).encode("utf-8")
+        out.append(struct.pack(">I", len(data)))
+        out.append(data)
+    return b"".join(out)
+
+
 # ---------------------------
 # TCP 메인 핸들러
 # ---------------------------
-def handle_client(conn, addr):
-    print(f"[INFO] Connected from {addr}")
-    try:
-        header_bytes = b""
+class ClientConn:
+    """
+    클라이언트 소켓 + 수신 버퍼.
+    한 번에 크게 받아 두고 헤더 줄을 버퍼에서 잘라 준다 (1바이트씩 recv 하면 바이트마다 시스템 콜).
+    줄 뒤에 같이 들어온 파일 바디는 recv_into가 버퍼에서 먼저 돌려주므로 핸들러는 소켓처럼 쓰면 된다.
+    응답은 send_line / send_rows 로 보내면 연결 모드(텍스트 / 바이너리 프레임)에 맞춰 인코딩된다.
+    나머지(sendall, sendfile, settimeout ...)는 소켓으로 그대로 넘긴다.
+    """
+    RECV_SIZE = 64 * 1024
+
+    def __init__(self, sock):
+        self.sock = sock
+        self.buf = bytearray()
+        self.pos = 0
+        self.binary = False
+        self.mux = False
+        self.req_id = 0   # 지금 처리 중인 요청 프레임의 ID (응답에 그대로 돌려준다)
+        self.send_lock = threading.Lock()   # MUX1: 여러 스레드의 응답 프레임이 섞이지 않게
+        self.inflight = threading.BoundedSemaphore(MUX_MAX_INFLIGHT)
+        self.active = 0   # MUX1: 지금 처리 중인 요청 수 (active_lock 안에서만 바꾼다)
+        self.active_lock = threading.Lock()
+
+    def send_line(self, *fields):
+        """응답 한 줄 (OK|..., ERR|... 처럼 END가 붙지 않는 응답)"""
+        self.send_rows([fields], end=False)
+
+    def send_rows(self, rows, end=True):
+        """목록 응답. 텍스트 모드면 행마다 한 줄 + END, 바이너리면 프레임 하나"""
+        if not self.binary:
+            # 바이너리 클라이언트가 넣은 줄바꿈이 텍스트 줄을 깨뜨리지 않게 공백으로
+            lines = ["|".join(str(f).replace("\n", " ") for f in row) + "\n" for row in rows]
+            if end:
+                lines.append("END\n")
+            self.sock.sendall("".join(lines).encode("utf-8"))
+            return
+        self.send_frame(self.req_id, rows)
+
+    def send_frame(self, req_id, rows):
+        body = b"".join(encode_row(row) for row in rows)
+        header = struct.pack(">III", 8 + len(body), req_id, len(rows))
+        with self.send_lock:
+            self.sock.sendall(header + body)
+
+    def read_frame(self):
+        """요청 프레임 하나 → [명령, 필드...]. 연결이 끊겼으면 None"""
+        head = self._read_exact(4)
+        if head is None:
+            return None
+        (length,) = struct.unpack(">I", head)
+        if length < 8 or length > FRAME_MAX_SIZE:
+            raise ValueError(f"bad frame length {length}")
+        body = self._read_exact(length)
+        if body is None:
+            return None
+        req_id, cmd_id, nfields = struct.unpack_from(">IHH", body, 0)
+        self.req_id = req_id
+        parts = [COMMAND_IDS.get(cmd_id, f"#{cmd_id}")]
+        off = 8
+        for _ in range(nfields):
+            (n,) = struct.unpack_from(">I", body, off)
+            off += 4
+            parts.append(body[off:off + n].decode("utf-8", errors="ignore"))
+            off += n
+        return parts
+
+    def _read_exact(self, n):
+        while len(self.buf) - self.pos < n:
+            del self.buf[:self.pos]
+            self.pos = 0
+            chunk = self.sock.recv(max(self.RECV_SIZE, n - len(self.buf)))
+            if not chunk:
+                return None
+            self.buf += chunk
+        data = bytes(self.buf[self.pos:self.pos + n])
+        self.pos += n
+        return data
+
+    def read_line(self):
+        """한 줄(LF까지)을 읽는다. 연결이 끊겼고 남은 게 없으면 None"""
         while True:
-            b = conn.recv(1)
-            if not b:
-                break
-            header_bytes += b
-            if b == b"\n":
-                break
+            idx = self.buf.find(b"\n", self.pos)
+            if idx >= 0:
+                line = self.buf[self.pos:idx + 1]
+                self.pos = idx + 1
+                return line.decode("utf-8", errors="ignore")
+            # 앞쪽에 다 쓴 바이트는 버리고 더 받는다
+            del self.buf[:self.pos]
+            self.pos = 0
+            chunk = self.sock.recv(self.RECV_SIZE)
+            if not chunk:
+                if not self.buf:
+                    return None
+                line = bytes(self.buf)
+                self.buf.clear()
+                return line.decode("utf-8", errors="ignore")
+            self.buf += chunk
 
-        if not header_bytes:
-            return
+    def recv_into(self, view, nbytes=0):
+        available = len(self.buf) - self.pos
+        if available > 0:
+            n = min(available, nbytes or len(view))
+            view[:n] = self.buf[self.pos:self.pos + n]
+            self.pos += n
+            return n
+        return self.sock.recv_into(view, nbytes)
+
+    def __getattr__(self, name):
+        return getattr(self.sock, name)
 
-        line_raw = header_bytes.decode("utf-8", errors="ignore")
-        line = line_raw.strip()
-        print(f"[RECV] {addr}: {line}")
 
-        parts = line.split("|")
-        cmd = parts[0] if parts else ""
+class MuxRequest:
+    """MUX1 연결에서 처리 중인 요청 하나. 응답 프레임에 이 요청의 ID를 붙인다"""
 
-        if cmd == "LOGIN":
-            resp = handle_login(parts)
-            conn.sendall(resp.encode("utf-8"))
+    def __init__(self, conn, req_id):
+        self.conn = conn
+        self.req_id = req_id
 
-        elif cmd == "CHAT_POST":
-            resp = handle_chat_post(parts)
-            conn.sendall(resp.encode("utf-8"))
+    def send_line(self, *fields):
+        self.conn.send_frame(self.req_id, [fields])
 
-        elif cmd == "CHAT_LIST":
-            handle_chat_list(conn, parts)
+    def send_rows(self, rows, end=True):
+        self.conn.send_frame(self.req_id, rows)
 
-        elif cmd == "ASSIGN_LIST":
-            handle_assign_list(conn, parts)
+    def __getattr__(self, name):
+        return getattr(self.conn, name)
 
-        elif cmd == "ASSIGN_SUBMIT_FILE":
-            handle_assign_submit_file(conn, parts, line_raw, addr)
 
-        elif cmd == "ASSIGN_SUBMISSION_LIST":
-            handle_assign_submission_list(conn, parts)
+def serve_mux_request(conn, addr, parts, line_raw):
+    """MUX1: 요청 하나를 별도 스레드에서 처리한다. 느린 요청이 뒤의 요청을 막지 않는다"""
+    req = MuxRequest(conn, conn.req_id)
+    if parts[0] in STREAM_COMMANDS or parts[0] in DEDICATED_COMMANDS:
+        req.send_line("ERR", "BAD_REQUEST")
+        return
+
+    conn.inflight.acquire()
+    with conn.active_lock:
+        conn.active += 1
 
-        elif cmd == "ASSIGN_DOWNLOAD_FILE":
-            handle_assign_download_file(conn, parts)
+    def run():
+        try:
+            dispatch(req, addr, parts, line_raw)
+        except Exception as e:
+            # 텍스트/BIN1이면 연결이 끊겨 클라이언트가 알지만, 여기서는 답하지 않으면 그 요청만 계속 기다린다
+            print(f"[ERROR] {addr} #{req.req_id}: {e}")
+            try:
+                req.send_line("ERR", "SERVER_ERROR")
+            except OSError:
+                pass
+        finally:
+            with conn.active_lock:
+                conn.active -= 1
+            conn.inflight.release()
 
-        elif cmd == "ASSIGN_CREATE":
-            handle_assign_create(conn, parts)
+    threading.Thread(target=run, daemon=True).start()
 
-        elif cmd == "ASSIGN_UPDATE":
-            handle_assign_update(conn, parts)
 
-        elif cmd == "ASSIGN_DELETE":
-            handle_assign_delete(conn, parts)
+def dispatch(conn, addr, parts, line_raw):
+    cmd = parts[0] if parts else ""
 
-        elif cmd == "NOTICE_LIST":
-            handle_notice_list(conn, parts)
+    if cmd == "LOGIN":
+        conn.send_line(*handle_login(parts))
 
-        elif cmd == "NOTICE_CREATE":
-            handle_notice_create(conn, parts)
+    elif cmd == "PING":
+        conn.send_line("PONG")
 
-        elif cmd == "NOTICE_UPDATE":
-            handle_notice_update(conn, parts)
+    elif cmd == "CHAT_POST":
+        conn.send_line(*handle_chat_post(parts))
 
-        elif cmd == "NOTICE_DELETE":
-            handle_notice_delete(conn, parts)
+    elif cmd == "CHAT_LIST":
+        handle_chat_list(conn, parts)
 
-        elif cmd == "VIDEO_LIST":
-            handle_video_list(conn, parts)
+    elif cmd == "CHAT_SUBSCRIBE":
+        handle_chat_subscribe(conn, parts)
 
-        elif cmd == "VIDEO_CREATE":
-            handle_video_create(conn, parts)
+    elif cmd == "ASSIGN_LIST":
+        handle_assign_list(conn, parts)
 
-        elif cmd == "VIDEO_DELETE":
-            handle_video_delete(conn, parts)
-            
-        elif cmd == "VIDEO_WATCH":
-            handle_video_watch(conn, parts)
+    elif cmd == "ASSIGN_SUBMIT_FILE":
+        handle_assign_submit_file(conn, parts, line_raw, addr)
 
-        elif cmd == "VIDEO_PROGRESS_LIST":
-            handle_video_progress_list(conn, parts)
+    elif cmd == "ASSIGN_SUBMISSION_LIST":
+        handle_assign_submission_list(conn, parts)
 
-        elif cmd == "VIDEO_UPLOAD_FILE":
-            handle_video_upload_file(conn, parts, line_raw, addr)
+    elif cmd == "ASSIGN_DOWNLOAD_FILE":
+        handle_assign_download_file(conn, parts)
 
-        elif cmd == "STUDENT_LIST":
-            handle_student_list(conn, parts)
+    elif cmd == "ASSIGN_CREATE":
+        handle_assign_create(conn, parts)
 
-        else:
-            resp = "ERR|UNKNOWN_COMMAND\n"
-            conn.sendall(resp.encode("utf-8"))
+    elif cmd == "ASSIGN_UPDATE":
+        handle_assign_update(conn, parts)
+
+    elif cmd == "ASSIGN_DELETE":
+        handle_assign_delete(conn, parts)
+
+    elif cmd == "NOTICE_LIST":
+        handle_notice_list(conn, parts)
+
+    elif cmd == "NOTICE_CREATE":
+        handle_notice_create(conn, parts)
+
+    elif cmd == "NOTICE_UPDATE":
+        handle_notice_update(conn, parts)
+
+    elif cmd == "NOTICE_DELETE":
+        handle_notice_delete(conn, parts)
+
+    elif cmd == "VIDEO_LIST":
+        handle_video_list(conn, parts)
+
+    elif cmd == "VIDEO_CREATE":
+        handle_video_create(conn, parts)
+
+    elif cmd == "VIDEO_DELETE":
+        handle_video_delete(conn, parts)
+
+    elif cmd == "VIDEO_WATCH":
+        handle_video_watch(conn, parts)
+
+    elif cmd == "VIDEO_PROGRESS_LIST":
+        handle_video_progress_list(conn, parts)
+
+    elif cmd == "VIDEO_UPLOAD_FILE":
+        handle_video_upload_file(conn, parts, line_raw, addr)
+
+    elif cmd == "STUDENT_LIST":
+        handle_student_list(conn, parts)
+
+    elif cmd == "HOME_SUMMARY":
+        handle_home_summary(conn, parts)
+
+    elif cmd == "UPLOAD_BEGIN":
+        handle_upload_begin(conn, parts)
+
+    elif cmd == "UPLOAD_STATUS":
+        handle_upload_status(conn, parts)
+
+    elif cmd == "UPLOAD_CHUNK":
+        handle_upload_chunk(conn, parts)
+
+    elif cmd == "UPLOAD_FINISH":
+        handle_upload_finish(conn, parts)
+
+    else:
+        conn.send_line("ERR", "UNKNOWN_COMMAND")
+
+
+def handle_client(conn, addr):
+    """
+    기본은 예전처럼 요청 하나 처리하고 끊는다.
+    첫 줄이 KEEPALIVE 이면 OK|KEEPALIVE|idle초 로 답하고,
+    그 뒤로는 같은 소켓에서 명령을 계속 받는다.
+    (KEEPALIVE_IDLE_TIMEOUT 동안 아무 요청이 없으면 서버가 닫는다)
+    KEEPALIVE|BIN1 처럼 아는 바이너리 버전을 같이 보내면 그 버전을 덧붙여 답하고 프레임 모드로 바꾼다.
+    MUX1이면 요청마다 스레드를 따로 띄워 처리하고 응답은 끝나는 대로 보낸다.
+    CHAT_SUBSCRIBE를 받으면 그 연결은 구독이 끝날 때(클라이언트가 끊을 때)까지 메시지를 밀어 주고 닫는다.
+    """
+    print(f"[INFO] Connected from {addr}")
+    conn = ClientConn(conn)
+    keep_alive = False
+    try:
+        while True:
+            try:
+                if conn.binary:
+                    parts = conn.read_frame()
+                    if parts is None:
+                        break
+                    line_raw = "|".join(parts)
+                    print(f"[RECV] {addr}: #{conn.req_id} {parts[0]}")
+                else:
+                    line_raw = conn.read_line()
+                    if line_raw is None:
+                        break
+                    line = line_raw.strip()
+                    if not line:
+                        continue
+                    print(f"[RECV] {addr}: {line}")
+                    parts = line.split("|")
+            except socket.timeout:
+                if conn.mux and conn.active > 0:
+                    continue   # 처리 중인 요청이 있으면 아직 idle이 아니다
+                print(f"[INFO] Idle timeout {addr}")
+                break
+
+            if parts[0] == "KEEPALIVE" and not keep_alive:
+                keep_alive = True
+                conn.settimeout(KEEPALIVE_IDLE_TIMEOUT)
+                version = next((v for v in parts[1:] if v in BINARY_PROTOCOLS), None)
+                if version:
+                    conn.send_line("OK", "KEEPALIVE", KEEPALIVE_IDLE_TIMEOUT, version)
+                    conn.binary = True
+                    conn.mux = version == "MUX1"
+                else:
+                    conn.send_line("OK", "KEEPALIVE", KEEPALIVE_IDLE_TIMEOUT)
+                continue
+
+            if conn.mux:
+                serve_mux_request(conn, addr, parts, line_raw)
+                continue
+
+            dispatch(conn, addr, parts, line_raw)
+
+            if not keep_alive or parts[0] in DEDICATED_COMMANDS:
+                break
 
     except Exception as e:
         print(f"[ERROR] {addr}: {e}")
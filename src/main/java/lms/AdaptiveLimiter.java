@@ -0,0 +1,160 @@
+package lms;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 서버로 나가는 요청 수를 서버 상태에 맞춰 조절한다 (AIMD).
+ * 제한 안에서는 응답이 제때 오는 동안 한 바퀴(limit개)마다 1씩 늘리고, 연결 거절·시간 초과·끊김처럼
+ * 서버가 버거워한다는 신호가 오면 절반으로 줄인다. 마감 직전처럼 모두가 몰릴 때 클라이언트마다 알아서 물러나
+ * 서버의 accept 대기열(listen backlog)이 넘치지 않게 한다.
+ * 명령별 호출 수·오류 수·지연(지수 이동 평균, 최대)도 같이 잰다.
+ */
+final class AdaptiveLimiter {
+
+    // 줄이는 건 이 간격에 한 번만 (한꺼번에 실패한 요청들이 제한을 바닥까지 끌어내리지 않게)
+    private static final long DECREASE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    // 지연 평균에 새 값을 섞는 비율
+    private static final double EWMA_WEIGHT = 0.2;
+    // 평균의 이 배를 넘게 걸린 응답은 성공이어도 늘리지 않는다 (대기열이 차기 시작했다는 뜻)
+    private static final double SLOW_FACTOR = 2.0;
+    // 평균이 어느 정도 잡힌 뒤부터 느림을 따진다
+    private static final int WARMUP_CALLS = 5;
+
+    private static final class Stats {
+        long calls;
+        long errors;
+        double avgNanos;
+        long maxNanos;
+    }
+
+    // 가상 스레드에서 부르므로 synchronized 대신 ReentrantLock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition freed = lock.newCondition();
+    private final Map<String, Stats> stats = new LinkedHashMap<>();
+    private final int minLimit;
+    private final int maxLimit;
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+
+    AdaptiveLimiter(int initial, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initial;
+    }
+
+    /**
+     * gated면 자리가 날 때까지 기다렸다가 call을 실행하고 지연·결과를 반영한다.
+     * gated가 아니면 (대용량 전송처럼 자리를 다른 데서 정하는 것) 재기만 한다.
+     */
+    <T> T call(String command, boolean gated, SingleFlight.Call<T> call) throws IOException {
+        if (gated) {
+            acquire();
+        }
+        long start = System.nanoTime();
+        boolean ok = false;
+        boolean overload = false;
+        try {
+            T result = call.call();
+            ok = true;
+            return result;
+        } catch (LmsClient.ServerException e) {
+            throw e;   // 서버가 제대로 답했다 (거절은 과부하 신호가 아니다)
+        } catch (IOException e) {
+            overload = !(e instanceof InterruptedIOException) || e instanceof SocketTimeoutException;
+            throw e;
+        } finally {
+            record(command, gated, System.nanoTime() - start, ok, overload);
+        }
+    }
+
+    int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 명령별 지금까지의 측정값 (처음 불린 순서대로) */
+    List<LmsClient.CommandMetrics> snapshot() {
+        lock.lock();
+        try {
+            List<LmsClient.CommandMetrics> result = new ArrayList<>(stats.size());
+            for (Map.Entry<String, Stats> e : stats.entrySet()) {
+                Stats s = e.getValue();
+                result.add(new LmsClient.CommandMetrics(e.getKey(), s.calls, s.errors,
+                        s.avgNanos / 1_000_000.0, s.maxNanos / 1_000_000.0));
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * attempt(0부터)번째 다시 보내기 전에 쉴 시간. 상한 base·2^attempt (최대 cap)의 절반~상한에서 고르게 뽑는다.
+     * 여러 클라이언트가 같은 때 실패해도 같은 때 다시 몰리지 않는다.
+     */
+    static long backoffMillis(int attempt, long baseMillis, long capMillis) {
+        long ceiling = Math.min(capMillis, baseMillis << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    private void acquire() throws InterruptedIOException {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                freed.await();
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("요청 차례를 기다리다 중단되었습니다.");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(String command, boolean gated, long nanos, boolean ok, boolean overload) {
+        lock.lock();
+        try {
+            Stats s = stats.computeIfAbsent(command, k -> new Stats());
+            boolean slow = s.calls >= WARMUP_CALLS && nanos > s.avgNanos * SLOW_FACTOR;
+            s.calls++;
+            if (!ok) {
+                s.errors++;
+            }
+            s.avgNanos = (s.calls == 1) ? nanos : s.avgNanos + EWMA_WEIGHT * (nanos - s.avgNanos);
+            s.maxNanos = Math.max(s.maxNanos, nanos);
+
+            long now = System.nanoTime();
+            if (overload) {
+                if (now - lastDecreaseNanos > DECREASE_INTERVAL_NANOS) {
+                    limit = Math.max(minLimit, limit / 2);
+                    lastDecreaseNanos = now;
+                }
+            } else if (ok && !slow && inFlight >= (int) limit - 1) {
+                // 제한 가까이 쓰고 있을 때만 늘린다 (한가할 때 잰 값으로 제한이 한없이 커지지 않게)
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            if (gated) {
+                inFlight--;
+            }
+            freed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package lms;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.css.PseudoClass;
 import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
@@ -11,12 +17,27 @@ import javafx.scene.text.Font;
 import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Callback;
 import javafx.scene.web.WebView;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * JavaFX로 만든 간단한 LMS 클라이언트 앱.
@@ -31,6 +52,7 @@ public class App extends Application {
     private String currentRole;     // "STUDENT" / "TEACHER"
     private String currentUserName;
     private String currentUserId;
+    private boolean offline;        // 서버에 닿지 않아 스냅샷으로 들어왔다 (보이는 건 마지막으로 받은 내용)
 
     private StackPane contentPane;
     private Button homeBtn;
@@ -41,15 +63,27 @@ public class App extends Application {
     private Button studentBtn;   // 교수 전용
 
     private String currentPanel = "home";
-
-    // 색상 팔레트
-    private static final String BG = "#eef2ff";
-    private static final String SURFACE = "#ffffff";
-    private static final String TEXT = "#111a35";
-    private static final String MUTED = "#6b7a99";
-    private static final String PRIMARY = "#2563eb";
-    private static final String BORDER = "#d7deee";
-    private static final String SIDEBAR_BG = "#101323";
+    private final Map<String, CachedPanel> panels = new HashMap<>();
+
+    // 로그인해 있는 동안 새 채팅 메시지를 서버가 바로 밀어 준다
+    private ChatSubscription chatSubscription;
+    private ListView<LmsClient.ChatMessage> chatMessageList;   // 만들어 둔 채팅 패널의 메시지 목록 (없으면 null). 안 보일 때도 밀려온 메시지를 붙여 둔다
+
+    // 색상과 모양은 theme.css의 스타일 클래스로 (노드마다 인라인 스타일을 붙이지 않는다)
+    private static final String THEME = App.class.getResource("theme.css").toExternalForm();
+    private static final PseudoClass SELECTED = PseudoClass.getPseudoClass("selected");   // 지금 보고 있는 탭
+    private static final PseudoClass MINE = PseudoClass.getPseudoClass("mine");           // 내가 보낸 채팅
+
+    // 홈 화면 "최근 ..." 칸에 보여 줄 항목 수
+    private static final int HOME_RECENT_COUNT = 2;
+    // 채팅은 최근 이만큼만 먼저 받고, 위로 올릴 때마다 이만큼씩 더 받는다
+    private static final int CHAT_PAGE_SIZE = 50;
+    // 만들어 둔 패널을 다시 보여 줄 때 이보다 오래됐으면 뒤에서 새로 받는다 (목록 캐시 TTL과 같게)
+    private static final long PANEL_MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final DateTimeFormatter CHAT_TIME = DateTimeFormatter.ofPattern("HH:mm");
+    private static final DateTimeFormatter CHAT_DATE_TIME = DateTimeFormatter.ofPattern("MM/dd HH:mm");
+    // -Dlms.cssTiming=true 로 띄우면 패널을 만들거나 카드 목록을 채울 때 CSS 적용/배치 시간을 찍는다 (스타일 비용 비교용)
+    private static final boolean CSS_TIMING = Boolean.getBoolean("lms.cssTiming");
 
     public static void main(String[] args) {
         launch(args);
@@ -59,6 +93,7 @@ public class App extends Application {
     public void start(Stage stage) {
         this.primaryStage = stage;
         this.loginScene = buildLoginScene();
+        LmsClient.setOutboxListener((write, failure) -> Platform.runLater(() -> outboxDelivered(write, failure)));
 
         stage.setTitle("네트워크 프로그래밍 LMS 데모");
         stage.setScene(loginScene);
@@ -71,38 +106,30 @@ public class App extends Application {
 // -----------------------------
 private Scene buildLoginScene() {
     BorderPane root = new BorderPane();
-    root.setStyle(
-            "-fx-background-color: linear-gradient(to bottom right,#101323,#1d2445);"
-    );
+    root.getStyleClass().add("login-root");
 
     VBox card = new VBox(18);
     card.setPadding(new Insets(24));
-    card.setStyle(
-            "-fx-background-color: " + SURFACE + ";" +
-                    "-fx-background-radius: 20;" +
-                    "-fx-border-radius: 20;" +
-                    "-fx-border-color: " + BORDER + ";" +
-                    "-fx-effect: dropshadow(gaussian, rgba(15,23,42,0.45), 24, 0, 0, 12);"
-    );
+    card.getStyleClass().add("login-card");
     card.setAlignment(Pos.CENTER_LEFT);
     card.setMaxWidth(360);
 
     // 👉 제목만 남김
     Label title = new Label("네트워크 프로그래밍");
     title.setFont(Font.font("Segoe UI Semibold", 22));
-    title.setStyle("-fx-text-fill: " + TEXT + ";");
+    title.getStyleClass().add("login-title");
 
     VBox textBox = new VBox(6, title);
 
     VBox form = new VBox(10);
     Label idLabel = new Label("아이디");
-    idLabel.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 12px;");
+    idLabel.getStyleClass().add("caption");
     TextField idField = new TextField();
     idField.setPromptText("로그인 아이디를 입력하세요");
     styleTextField(idField);
 
     Label pwLabel = new Label("비밀번호");
-    pwLabel.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 12px;");
+    pwLabel.getStyleClass().add("caption");
     PasswordField pwField = new PasswordField();
     pwField.setPromptText("비밀번호를 입력하세요");
     styleTextField(pwField);
@@ -114,7 +141,7 @@ private Scene buildLoginScene() {
     loginButton.setOnAction(e -> {
         String id = idField.getText().trim();
         String pw = pwField.getText().trim();
-        handleLogin(id, pw);
+        handleLogin(id, pw, loginButton);
     });
 
     form.getChildren().addAll(idLabel, idField, pwLabel, pwField, loginButton);
@@ -126,62 +153,23 @@ private Scene buildLoginScene() {
     BorderPane.setMargin(card, new Insets(40));
 
     Scene scene = new Scene(root, 640, 400);
-    scene.getRoot().setStyle(
-            "-fx-font-family: 'Malgun Gothic', 'Apple SD Gothic Neo', 'Segoe UI', sans-serif;" +
-                    "-fx-font-size: 14px;"
-    );
+    scene.getStylesheets().add(THEME);
     return scene;
 }
 
 
     private void styleTextField(TextField field) {
-        field.setStyle(
-                "-fx-background-color: #f9fbff;" +
-                        "-fx-background-radius: 12;" +
-                        "-fx-border-radius: 12;" +
-                        "-fx-border-color: " + BORDER + ";" +
-                        "-fx-padding: 8 10 8 10;"
-        );
+        field.getStyleClass().add("input-field");
     }
 
     private void stylePrimaryButton(Button btn) {
-        btn.setStyle(
-                "-fx-background-color: " + PRIMARY + ";" +
-                        "-fx-text-fill: white;" +
-                        "-fx-background-radius: 12;" +
-                        "-fx-font-weight: 600;" +
-                        "-fx-padding: 8 16 8 16;" +
-                        "-fx-cursor: hand;" +
-                        "-fx-effect: dropshadow(gaussian, rgba(37,99,235,0.3), 12, 0, 0, 4);"
-        );
-        btn.setOnMouseEntered(e ->
-                btn.setStyle(
-                        "-fx-background-color: #1d4ed8;" +
-                                "-fx-text-fill: white;" +
-                                "-fx-background-radius: 12;" +
-                                "-fx-font-weight: 600;" +
-                                "-fx-padding: 8 16 8 16;" +
-                                "-fx-cursor: hand;" +
-                                "-fx-effect: dropshadow(gaussian, rgba(37,99,235,0.4), 14, 0, 0, 6);"
-                )
-        );
-        btn.setOnMouseExited(e ->
-                btn.setStyle(
-                        "-fx-background-color: " + PRIMARY + ";" +
-                                "-fx-text-fill: white;" +
-                                "-fx-background-radius: 12;" +
-                                "-fx-font-weight: 600;" +
-                                "-fx-padding: 8 16 8 16;" +
-                                "-fx-cursor: hand;" +
-                                "-fx-effect: dropshadow(gaussian, rgba(37,99,235,0.3), 12, 0, 0, 4);"
-                )
-        );
+        btn.getStyleClass().add("primary-button");
     }
 
     // -----------------------------
     // 로그인 처리
     // -----------------------------
-    private void handleLogin(String id, String pw) {
+    private void handleLogin(String id, String pw, Button loginButton) {
         if (id == null || id.isBlank() || pw == null || pw.isBlank()) {
             Alert alert = new Alert(Alert.AlertType.WARNING);
             alert.setTitle("로그인 실패");
@@ -191,12 +179,19 @@ private Scene buildLoginScene() {
             return;
         }
 
-        try {
-            LmsClient.LoginResult result = LmsClient.login(id.trim(), pw.trim());
+        // 응답을 기다리는 동안 중복 클릭 방지
+        loginButton.setDisable(true);
+        loginButton.setText("로그인 중...");
+
+        onFx(LmsClient.loginAsync(id.trim(), pw.trim()), result -> {
+            loginButton.setDisable(false);
+            loginButton.setText("로그인");
             if (result.success) {
                 currentRole = result.role;
                 currentUserName = result.displayName;
                 currentUserId = id.trim();
+                offline = result.offline;
+                startChatSubscription();
 
                 if (mainScene == null) {
                     mainScene = buildMainScene();
@@ -215,13 +210,15 @@ private Scene buildLoginScene() {
                 alert.setContentText(msg);
                 alert.showAndWait();
             }
-        } catch (IOException e) {
+        }, e -> {
+            loginButton.setDisable(false);
+            loginButton.setText("로그인");
             Alert alert = new Alert(Alert.AlertType.ERROR);
             alert.setTitle("로그인 실패");
             alert.setHeaderText(null);
             alert.setContentText("서버에 연결할 수 없습니다.\n" + e.getMessage());
             alert.showAndWait();
-        }
+        });
     }
 
     // -----------------------------
@@ -230,30 +227,19 @@ private Scene buildLoginScene() {
     private Scene buildMainScene() {
         BorderPane root = new BorderPane();
         root.setPadding(new Insets(0));
-        root.setStyle("-fx-background-color: " + BG + ";");
+        root.getStyleClass().add("main-root");
 
         // ---- 왼쪽 사이드바 ----
         VBox sideBar = new VBox(18);
         sideBar.setPadding(new Insets(28, 20, 28, 20));
         sideBar.setPrefWidth(240);
-        sideBar.setStyle(
-                "-fx-background-color: " + SIDEBAR_BG + ";" +
-                        "-fx-text-fill: #cfd5f7;"
-        );
+        sideBar.getStyleClass().add("sidebar");
 
         Label brand = new Label("네트워크 프로그래밍");
-        brand.setStyle(
-                "-fx-text-fill: #cfd5f7;" +
-                        "-fx-font-size: 18px;" +
-                        "-fx-font-weight: 800;"
-        );
+        brand.getStyleClass().add("brand");
 
         Label sideTitle = new Label("메뉴");
-        sideTitle.setStyle(
-                "-fx-text-fill: #8790bf;" +
-                        "-fx-font-size: 12px;" +
-                        "-fx-letter-spacing: 0.5px;"
-        );
+        sideTitle.getStyleClass().add("sidebar-title");
 
         homeBtn = createNavButton("강의실 홈");
         assignmentBtn = createNavButton("과제");
@@ -277,16 +263,9 @@ private Scene buildLoginScene() {
 
         VBox courseMeta = new VBox(4);
         Label title = new Label("2025-2 네트워크 프로그래밍");
-        title.setStyle(
-                "-fx-text-fill: " + TEXT + ";" +
-                        "-fx-font-size: 26px;" +
-                        "-fx-font-weight: 700;"
-        );
+        title.getStyleClass().add("course-title");
         Label prof = new Label("담당 교수 : 박교수");
-        prof.setStyle(
-                "-fx-text-fill: " + MUTED + ";" +
-                        "-fx-font-size: 13px;"
-        );
+        prof.getStyleClass().add("muted");
         courseMeta.getChildren().addAll(title, prof);
 
         Region spacer = new Region();
@@ -298,14 +277,26 @@ private Scene buildLoginScene() {
         } else {
             roleLabel.setText("학생 · " + currentUserName);
         }
-        roleLabel.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 13px;");
+        if (offline) {
+            roleLabel.setText(roleLabel.getText() + " · 오프라인");
+        }
+        roleLabel.getStyleClass().add("muted");
 
         Button logoutButton = new Button("로그아웃");
         styleOutlineButton(logoutButton);
         logoutButton.setOnAction(e -> {
+            LmsClient.clearListCache();
+            LmsClient.closeDiskCache();
+            if (chatSubscription != null) {
+                chatSubscription.close();
+                chatSubscription = null;
+            }
+            chatMessageList = null;
+            panels.clear();
             currentRole = null;
             currentUserName = null;
             currentUserId = null;
+            offline = false;
             mainScene = null;
             currentPanel = "home";
             primaryStage.setScene(loginScene);
@@ -334,10 +325,7 @@ private Scene buildLoginScene() {
         root.setCenter(topAndCenter);
 
         Scene scene = new Scene(root, 1080, 720);
-        scene.getRoot().setStyle(
-                "-fx-font-family: 'Malgun Gothic', 'Apple SD Gothic Neo', 'Segoe UI', sans-serif;" +
-                        "-fx-font-size: 14px;"
-        );
+        scene.getStylesheets().add(THEME);
 
         // 네비게이션 버튼 핸들러
         homeBtn.setOnAction(e -> showPanel("home"));
@@ -356,63 +344,12 @@ private Scene buildLoginScene() {
         Button btn = new Button(text);
         btn.setMaxWidth(Double.MAX_VALUE);
         btn.setAlignment(Pos.CENTER_LEFT);
-        btn.setStyle(
-                "-fx-background-color: transparent;" +
-                        "-fx-text-fill: #cfd5f7;" +
-                        "-fx-background-radius: 12;" +
-                        "-fx-font-weight: 600;" +
-                        "-fx-padding: 10 14 10 14;" +
-                        "-fx-cursor: hand;"
-        );
-        btn.setOnMouseEntered(e ->
-                btn.setStyle(
-                        "-fx-background-color: rgba(255,255,255,0.06);" +
-                                "-fx-text-fill: #e5ebff;" +
-                                "-fx-background-radius: 12;" +
-                                "-fx-font-weight: 600;" +
-                                "-fx-padding: 10 14 10 14;" +
-                                "-fx-cursor: hand;"
-                )
-        );
-        btn.setOnMouseExited(e -> updateNavButtonStyles());
+        btn.getStyleClass().add("nav-button");
         return btn;
     }
 
     private void styleOutlineButton(Button btn) {
-        btn.setStyle(
-                "-fx-background-color: transparent;" +
-                        "-fx-text-fill: " + TEXT + ";" +
-                        "-fx-background-radius: 12;" +
-                        "-fx-border-radius: 12;" +
-                        "-fx-border-color: " + BORDER + ";" +
-                        "-fx-padding: 7 12 7 12;" +
-                        "-fx-font-size: 13px;" +
-                        "-fx-cursor: hand;"
-        );
-        btn.setOnMouseEntered(e ->
-                btn.setStyle(
-                        "-fx-background-color: rgba(37,99,235,0.08);" +
-                                "-fx-text-fill: " + PRIMARY + ";" +
-                                "-fx-background-radius: 12;" +
-                                "-fx-border-radius: 12;" +
-                                "-fx-border-color: " + PRIMARY + ";" +
-                                "-fx-padding: 7 12 7 12;" +
-                                "-fx-font-size: 13px;" +
-                                "-fx-cursor: hand;"
-                )
-        );
-        btn.setOnMouseExited(e ->
-                btn.setStyle(
-                        "-fx-background-color: transparent;" +
-                                "-fx-text-fill: " + TEXT + ";" +
-                                "-fx-background-radius: 12;" +
-                                "-fx-border-radius: 12;" +
-                                "-fx-border-color: " + BORDER + ";" +
-                                "-fx-padding: 7 12 7 12;" +
-                                "-fx-font-size: 13px;" +
-                                "-fx-cursor: hand;"
-                )
-        );
+        btn.getStyleClass().add("outline-button");
     }
 
     private void updateNavButtonStyles() {
@@ -428,33 +365,64 @@ private Scene buildLoginScene() {
 
     private void styleNavButtonState(Button btn, boolean active) {
         if (btn == null) return;
-        if (active) {
-            btn.setStyle(
-                    "-fx-background-color: #1d2445;" +
-                            "-fx-text-fill: #78a7ff;" +
-                            "-fx-background-radius: 12;" +
-                            "-fx-border-radius: 12;" +
-                            "-fx-border-color: rgba(120,167,255,0.4);" +
-                            "-fx-border-width: 1;" +
-                            "-fx-font-weight: 600;" +
-                            "-fx-padding: 10 14 10 14;" +
-                            "-fx-cursor: hand;"
-            );
-        } else {
-            btn.setStyle(
-                    "-fx-background-color: transparent;" +
-                            "-fx-text-fill: #cfd5f7;" +
-                            "-fx-background-radius: 12;" +
-                            "-fx-font-weight: 600;" +
-                            "-fx-padding: 10 14 10 14;" +
-                            "-fx-cursor: hand;"
-            );
+        btn.pseudoClassStateChanged(SELECTED, active);
+    }
+
+    // 한 번 만든 패널: 탭을 다시 누르면 만들지 않고 그대로 보여 준다
+    private static final class CachedPanel {
+        final Pane node;
+        final Runnable reload;   // 데이터만 다시 받아 채운다 (없으면 null)
+        long loadedAt;
+        boolean stale;
+
+        CachedPanel(Pane node, Runnable reload) {
+            this.node = node;
+            this.reload = reload;
+            this.loadedAt = System.nanoTime();
         }
     }
 
-    // 패널 전환
+    /**
+     * 패널 전환. 만들어 둔 패널이 있으면 바로 바꿔 끼우고, 오래됐거나(PANEL_MAX_AGE_NANOS) 데이터가 바뀌었으면
+     * 지금 내용을 보여 둔 채로 뒤에서 다시 받아 채운다.
+     */
     private void showPanel(String name) {
         currentPanel = name;
+        CachedPanel cached = panels.get(name);
+        boolean built = false;
+        if (cached == null) {
+            Pane node = buildPanel(name);
+            cached = new CachedPanel(node, (Runnable) node.getProperties().get("panelReload"));
+            panels.put(name, cached);
+            built = true;
+        } else if (cached.reload != null
+                && (cached.stale || System.nanoTime() - cached.loadedAt > PANEL_MAX_AGE_NANOS)) {
+            cached.stale = false;
+            cached.loadedAt = System.nanoTime();
+            LmsClient.inBackground(cached.reload);   // 보이는 내용이 있으니 화면 요청보다 뒤로
+        }
+        contentPane.getChildren().setAll(cached.node);
+        updateNavButtonStyles();
+        if (built) {
+            timeCssAndLayout(name, contentPane);
+        }
+    }
+
+    // 데이터를 바꾼 뒤: 다른 탭(홈 요약 등)도 다음에 볼 때 다시 받도록 표시하고 이 탭은 바로 다시 받는다
+    private void reloadPanel(String name) {
+        for (CachedPanel p : panels.values()) {
+            p.stale = true;
+        }
+        showPanel(name);
+    }
+
+    // 패널의 데이터 조회를 등록하고 한 번 실행한다 (showPanel이 다시 받을 때 또 부른다)
+    private void loadPanel(Pane root, Runnable load) {
+        root.getProperties().put("panelReload", load);
+        load.run();
+    }
+
+    private Pane buildPanel(String name) {
         Pane panel;
         switch (name) {
             case "assignments":
@@ -477,8 +445,7 @@ private Scene buildLoginScene() {
                 panel = buildHomePanel();
                 break;
         }
-        contentPane.getChildren().setAll(panel);
-        updateNavButtonStyles();
+        return panel;
     }
 
     // -----------------------------
@@ -490,61 +457,63 @@ private Scene buildLoginScene() {
 
         VBox panel = new VBox(18);
         panel.setPadding(new Insets(24));
-        panel.setStyle(
-                "-fx-background-color: " + SURFACE + ";" +
-                        "-fx-border-color: " + BORDER + ";" +
-                        "-fx-border-radius: 24;" +
-                        "-fx-background-radius: 24;" +
-                        "-fx-effect: dropshadow(gaussian, rgba(17,23,35,0.12), 18, 0, 0, 8);"
-        );
+        panel.getStyleClass().add("surface-panel");
 
         HBox head = new HBox();
         Label hTitle = new Label("강의실 홈");
-        hTitle.setStyle(
-                "-fx-text-fill: " + TEXT + ";" +
-                        "-fx-font-size: 22px;" +
-                        "-fx-font-weight: 700;"
-        );
+        hTitle.getStyleClass().add("panel-title");
         head.getChildren().add(hTitle);
 
-        // ---- DB 데이터 읽어오기 ----
-        List<LmsClient.Assignment> assignments = null;
-        List<LmsClient.NoticeItem> notices = null;
-        List<LmsClient.VideoItem> videos = null;
+        HBox summaryRow = new HBox(14);
+        summaryRow.setFillHeight(true);
+
+        HBox homeColumns = new HBox(18);
 
         String userIdForQuery = (currentUserId != null ? currentUserId : "student");
 
-        try {
-            assignments = LmsClient.fetchAssignments(userIdForQuery);
-        } catch (IOException ignored) {
-        }
-        try {
-            notices = LmsClient.fetchNotices(userIdForQuery);
-        } catch (IOException ignored) {
-        }
-        try {
-            videos = LmsClient.fetchVideos(userIdForQuery);
-        } catch (IOException ignored) {
-        }
+        // ---- 마지막으로 받아 둔 요약이 있으면 그걸로, 없으면 뼈대만 먼저 그려 두고 데이터가 오면 채운다 ----
+        LmsClient.HomeSummary saved = LmsClient.savedHomeSummary(userIdForQuery);
+        boolean[] shown = {saved != null};
+        fillHomeSummary(summaryRow, saved, saved == null);
+        fillHomeColumns(homeColumns, saved, saved == null);
+
+        // 개수 + 최근 2개씩만 한 번에 받아온다. 실패하면 "데이터 없음"으로 표시 (보이던 게 있으면 그대로 둔다)
+        loadPanel(box, () -> onFx(LmsClient.fetchHomeSummaryAsync(userIdForQuery, HOME_RECENT_COUNT), summary -> {
+            shown[0] = true;
+            fillHomeSummary(summaryRow, summary, false);
+            fillHomeColumns(homeColumns, summary, false);
+        }, e -> {
+            if (shown[0]) {
+                return;
+            }
+            fillHomeSummary(summaryRow, null, false);
+            fillHomeColumns(homeColumns, null, false);
+        }));
 
-        // 요약 카드용 텍스트
+        panel.getChildren().addAll(head, summaryRow, homeColumns);
+        box.getChildren().add(panel);
+        return box;
+    }
+
+    // 요약 카드 4개 (loading이면 값 대신 "불러오는 중...", summary가 null이면 조회 실패)
+    private void fillHomeSummary(HBox summaryRow, LmsClient.HomeSummary summary, boolean loading) {
         String userLabel = ("TEACHER".equals(currentRole) ? "교수 · " + currentUserName : "학생 · " + currentUserName);
 
         String currentWeekText = "데이터 없음";
-        if (assignments != null && !assignments.isEmpty()) {
-            int maxWeek = 0;
-            for (LmsClient.Assignment a : assignments) {
-                int w = extractLastWeekNumberFromTitle(a.title);
-                if (w > maxWeek) maxWeek = w;
-            }
-            if (maxWeek > 0) currentWeekText = "Week " + maxWeek;
+        if (summary != null && summary.assignmentCount > 0 && summary.currentWeek > 0) {
+            currentWeekText = "Week " + summary.currentWeek;
         }
 
-        String assignCountText = (assignments == null ? "데이터 없음" : assignments.size() + "개");
-        String videoCountText = (videos == null ? "데이터 없음" : videos.size() + "개");
+        String assignCountText = (summary == null || summary.assignmentCount < 0
+                ? "데이터 없음" : summary.assignmentCount + "개");
+        String videoCountText = (summary == null || summary.videoCount < 0
+                ? "데이터 없음" : summary.videoCount + "개");
 
-        HBox summaryRow = new HBox(14);
-        summaryRow.setFillHeight(true);
+        if (loading) {
+            currentWeekText = "불러오는 중...";
+            assignCountText = "불러오는 중...";
+            videoCountText = "불러오는 중...";
+        }
 
         VBox s1 = createSummaryCard("현재 사용자", userLabel);
         VBox s2 = createSummaryCard("현재 주차(과제 기준)", currentWeekText);
@@ -556,14 +525,18 @@ private Scene buildLoginScene() {
         HBox.setHgrow(s3, Priority.ALWAYS);
         HBox.setHgrow(s4, Priority.ALWAYS);
 
-        summaryRow.getChildren().addAll(s1, s2, s3, s4);
-
-        // ---- 최근 항목들 ----
-        HBox homeColumns = new HBox(18);
+        summaryRow.getChildren().setAll(s1, s2, s3, s4);
+    }
 
-        String[] recentAssignLines = buildRecentAssignments(assignments);
-        String[] recentNoticeLines = buildRecentNotices(notices);
-        String[] recentVideoLines = buildRecentVideos(videos);
+    // ---- 최근 항목들 ----
+    private void fillHomeColumns(HBox homeColumns, LmsClient.HomeSummary summary, boolean loading) {
+        String[] loadingLines = {"불러오는 중..."};
+        String[] recentAssignLines = loading ? loadingLines
+                : buildRecentAssignments(summary == null ? null : summary.recentAssignments);
+        String[] recentNoticeLines = loading ? loadingLines
+                : buildRecentNotices(summary == null ? null : summary.recentNotices);
+        String[] recentVideoLines = loading ? loadingLines
+                : buildRecentVideos(summary == null ? null : summary.recentVideos);
 
         VBox col1 = createHomeBox("최근 과제", recentAssignLines);
         VBox col2 = createHomeBox("최근 공지", recentNoticeLines);
@@ -573,28 +546,19 @@ private Scene buildLoginScene() {
         HBox.setHgrow(col2, Priority.ALWAYS);
         HBox.setHgrow(col3, Priority.ALWAYS);
 
-        homeColumns.getChildren().addAll(col1, col2, col3);
-
-        panel.getChildren().addAll(head, summaryRow, homeColumns);
-        box.getChildren().add(panel);
-        return box;
+        homeColumns.getChildren().setAll(col1, col2, col3);
     }
 
     private VBox createSummaryCard(String label, String value) {
         VBox v = new VBox(6);
         v.setPadding(new Insets(14));
-        v.setStyle(
-                "-fx-background-color: #f8faff;" +
-                        "-fx-border-color: " + BORDER + ";" +
-                        "-fx-border-radius: 18;" +
-                        "-fx-background-radius: 18;"
-        );
+        v.getStyleClass().addAll("card", "tinted");
 
         Label l = new Label(label);
-        l.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 12px;");
+        l.getStyleClass().add("caption");
 
         Label val = new Label(value);
-        val.setStyle("-fx-text-fill: " + TEXT + "; -fx-font-size: 20px; -fx-font-weight: 800;");
+        val.getStyleClass().add("summary-value");
 
         v.getChildren().addAll(l, val);
         return v;
@@ -603,23 +567,17 @@ private Scene buildLoginScene() {
     private VBox createHomeBox(String title, String[] lines) {
         VBox box = new VBox(10);
         box.setPadding(new Insets(18));
-        box.setStyle(
-                "-fx-background-color: #fdfdff;" +
-                        "-fx-border-color: " + BORDER + ";" +
-                        "-fx-border-radius: 20;" +
-                        "-fx-background-radius: 20;" +
-                        "-fx-effect: dropshadow(gaussian, rgba(15,23,42,0.08), 18, 0, 0, 8);"
-        );
+        box.getStyleClass().add("home-box");
 
         Label t = new Label(title);
-        t.setStyle("-fx-text-fill: " + TEXT + "; -fx-font-size: 17px; -fx-font-weight: 700;");
+        t.getStyleClass().add("home-box-title");
 
         VBox list = new VBox(4);
         if (lines != null) {
             for (String line : lines) {
                 Label l = new Label(line);
                 l.setWrapText(true);
-                l.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 12px;");
+                l.getStyleClass().add("caption");
                 list.getChildren().add(l);
             }
         }
@@ -645,7 +603,7 @@ private Scene buildLoginScene() {
         if (assignments == null || assignments.isEmpty()) {
             lines.add("최근 과제가 없습니다.");
         } else {
-            int count = Math.min(2, assignments.size());
+            int count = Math.min(HOME_RECENT_COUNT, assignments.size());
             for (int i = 0; i < count; i++) {
                 LmsClient.Assignment a = assignments.get(i);
                 lines.add(buildNormalizedWeekTitle(a.title));
@@ -660,7 +618,7 @@ private Scene buildLoginScene() {
         if (notices == null || notices.isEmpty()) {
             lines.add("최근 공지가 없습니다.");
         } else {
-            int count = Math.min(2, notices.size());
+            int count = Math.min(HOME_RECENT_COUNT, notices.size());
             for (int i = 0; i < count; i++) {
                 LmsClient.NoticeItem n = notices.get(i);
                 ParsedNotice pn = parseNotice(
@@ -678,7 +636,7 @@ private Scene buildLoginScene() {
         if (videos == null || videos.isEmpty()) {
             lines.add("최근 강의 영상이 없습니다.");
         } else {
-            int count = Math.min(2, videos.size());
+            int count = Math.min(HOME_RECENT_COUNT, videos.size());
             for (int i = 0; i < count; i++) {
                 LmsClient.VideoItem v = videos.get(i);
                 lines.add(v.title);
@@ -691,23 +649,13 @@ private Scene buildLoginScene() {
     private VBox createMainPanelWrapper(String titleText) {
         VBox panel = new VBox(16);
         panel.setPadding(new Insets(24));
-        panel.setStyle(
-                "-fx-background-color: " + SURFACE + ";" +
-                        "-fx-border-color: " + BORDER + ";" +
-                        "-fx-border-radius: 24;" +
-                        "-fx-background-radius: 24;" +
-                        "-fx-effect: dropshadow(gaussian, rgba(17,23,35,0.12), 18, 0, 0, 8);"
-        );
+        panel.getStyleClass().add("surface-panel");
 
         HBox head = new HBox();
         head.setAlignment(Pos.CENTER_LEFT);
 
         Label title = new Label(titleText);
-        title.setStyle(
-                "-fx-text-fill: " + TEXT + ";" +
-                        "-fx-font-size: 22px;" +
-                        "-fx-font-weight: 700;"
-        );
+        title.getStyleClass().add("panel-title");
 
         head.getChildren().add(title);
         panel.getChildren().add(head);
@@ -821,7 +769,7 @@ private ParsedNotice parseNotice(String full) {
         VBox root = new VBox(18);
         VBox panel = createMainPanelWrapper("과제");
 
-        VBox listBox = new VBox(12);
+        ListView<LmsClient.Assignment> listView = createCardList(lv -> new AssignmentCell(), "과제 목록을 불러오는 중...");
 
         // 교사일 때: 상단에 "과제 등록" 버튼
         if ("TEACHER".equals(currentRole)) {
@@ -834,99 +782,88 @@ private ParsedNotice parseNotice(String full) {
             panel.getChildren().add(topBar);
         }
 
-        try {
-            List<LmsClient.Assignment> assignments =
-                    LmsClient.fetchAssignments(currentUserId != null ? currentUserId : "student");
-
-            if (assignments.isEmpty()) {
-                Label emptyLabel = new Label("등록된 과제가 없습니다.");
-                emptyLabel.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 13px;");
-                listBox.getChildren().add(emptyLabel);
-            } else {
-                for (LmsClient.Assignment a : assignments) {
-                    VBox card = createAssignmentCard(a);
-                    listBox.getChildren().add(card);
-                }
-            }
-        } catch (IOException e) {
-            Label errLabel = new Label("과제 목록을 불러오는 중 오류가 발생했습니다:\n" + e.getMessage());
-            errLabel.setStyle("-fx-text-fill: #b91c1c; -fx-font-size: 12px;");
-            listBox.getChildren().add(errLabel);
+        String userId = currentUserId != null ? currentUserId : "student";
+        List<LmsClient.Assignment> saved = LmsClient.savedAssignments(userId);
+        if (saved != null) {
+            fillCardList(listView, saved, "등록된 과제가 없습니다.", a -> a.id);
         }
 
-        // 스크롤바 추가
-        ScrollPane sp = new ScrollPane(listBox);
-        sp.setFitToWidth(true);
-        sp.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
-        sp.setVbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);
-        sp.setStyle("-fx-background-color: transparent; -fx-background-insets: 0;");
-        VBox.setVgrow(sp, Priority.ALWAYS);
+        loadPanel(root, () -> onFx(LmsClient.fetchAssignmentsAsync(userId),
+                assignments -> fillCardList(listView, assignments, "등록된 과제가 없습니다.", a -> a.id),
+                e -> showCardListError(listView, "과제 목록을 불러오는 중 오류가 발생했습니다:\n" + e.getMessage())));
 
-        panel.getChildren().add(sp);
+        panel.getChildren().add(listView);
         root.getChildren().add(panel);
         return root;
     }
 
-    private VBox createAssignmentCard(LmsClient.Assignment a) {
-        VBox card = new VBox(8);
-        card.setPadding(new Insets(16));
-        card.setStyle(
-                "-fx-background-color: #f8faff;" +
-                        "-fx-border-color: " + BORDER + ";" +
-                        "-fx-border-radius: 18;" +
-                        "-fx-background-radius: 18;"
-        );
-
-        // 여기서 제목을 정규화해서 보여줌 → [1주차] [10주차] → [10주차] 하나만
-        Label t = new Label(buildNormalizedWeekTitle(a.title));
-        t.setWrapText(true);
-        t.setStyle("-fx-text-fill: " + TEXT + "; -fx-font-size: 16px; -fx-font-weight: 600;");
-
-        Label m = new Label("마감: " + a.due);
-        m.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 12px;");
-
-        Label s = new Label(a.summary);
-        s.setWrapText(true);
-        s.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 12px;");
-
-        card.getChildren().addAll(t, m, s);
-
-        HBox bottom = new HBox(8);
-        bottom.setAlignment(Pos.CENTER_RIGHT);
-
-        if ("STUDENT".equals(currentRole)) {
-            Button submitBtn = new Button("파일 제출");
-            styleOutlineButton(submitBtn);
-            submitBtn.setOnAction(e -> openAssignmentSubmitDialog(a));
-            bottom.getChildren().add(submitBtn);
-        } else if ("TEACHER".equals(currentRole)) {
-            Button statusBtn = new Button("제출 현황");
-            styleOutlineButton(statusBtn);
-            statusBtn.setOnAction(e -> openSubmissionStatusDialog(a));
-
-            Button editBtn = new Button("수정");
-            styleOutlineButton(editBtn);
-            editBtn.setOnAction(e -> openAssignmentEditDialog(a));
-
-            Button deleteBtn = new Button("삭제");
-            styleOutlineButton(deleteBtn);
-            deleteBtn.setOnAction(e -> {
-                if (confirm("과제를 삭제하시겠습니까? (제출물도 함께 삭제될 수 있습니다)")) {
-                    try {
-                        LmsClient.deleteAssignment(currentUserId, a.id);
-                        info("삭제 완료", "과제가 삭제되었습니다.");
-                        showPanel("assignments");
-                    } catch (IOException ex) {
-                        error("삭제 오류", "과제를 삭제하는 중 오류가 발생했습니다.\n" + ex.getMessage());
+    // 과제 카드 한 칸. 노드는 셀마다 한 번만 만들고, 셀이 다른 과제를 보이게 되면 글자만 바꾼다
+    private final class AssignmentCell extends CardCell<LmsClient.Assignment> {
+        private final Label t = new Label();
+        private final Label m = new Label();
+        private final Label s = new Label();
+        // 서버에 등록된 과제여야 쓸 수 있는 버튼 (제출 / 제출 현황 / 수정 / 삭제).
+        // 임시 id(~seq)는 등록을 보내는 중이거나 보낸 뒤 목록을 다시 받기 전이면 서버가 모른다
+        private final List<Button> serverOnlyBtns = new ArrayList<>();
+
+        AssignmentCell() {
+            super(new VBox(8));
+            card.setPadding(new Insets(16));
+            card.getStyleClass().addAll("card", "tinted");
+
+            t.setWrapText(true);
+            t.getStyleClass().add("card-title");
+            m.getStyleClass().add("caption");
+            s.setWrapText(true);
+            s.getStyleClass().add("caption");
+
+            card.getChildren().addAll(t, m, s);
+
+            HBox bottom = new HBox(8);
+            bottom.setAlignment(Pos.CENTER_RIGHT);
+
+            if ("STUDENT".equals(currentRole)) {
+                Button submitBtn = new Button("파일 제출");
+                styleOutlineButton(submitBtn);
+                submitBtn.setOnAction(e -> openAssignmentSubmitDialog(getItem()));
+                bottom.getChildren().add(submitBtn);
+                serverOnlyBtns.add(submitBtn);
+            } else if ("TEACHER".equals(currentRole)) {
+                Button statusBtn = new Button("제출 현황");
+                styleOutlineButton(statusBtn);
+                statusBtn.setOnAction(e -> openSubmissionStatusDialog(getItem()));
+
+                Button editBtn = new Button("수정");
+                styleOutlineButton(editBtn);
+                editBtn.setOnAction(e -> openAssignmentEditDialog(getItem()));
+
+                Button deleteBtn = new Button("삭제");
+                styleOutlineButton(deleteBtn);
+                deleteBtn.setOnAction(e -> {
+                    LmsClient.Assignment a = getItem();
+                    if (confirm("과제를 삭제하시겠습니까? (제출물도 함께 삭제될 수 있습니다)")) {
+                        onFx(LmsClient.deleteAssignmentAsync(currentUserId, a.id),
+                                d -> written(d, "삭제 완료", "과제가 삭제되었습니다.", "assignments"), ex -> error("삭제 오류", "과제를 삭제하는 중 오류가 발생했습니다.\n" + ex.getMessage()));
                     }
-                }
-            });
+                });
+
+                bottom.getChildren().addAll(statusBtn, editBtn, deleteBtn);
+                serverOnlyBtns.addAll(List.of(statusBtn, editBtn, deleteBtn));
+            }
 
-            bottom.getChildren().addAll(statusBtn, editBtn, deleteBtn);
+            card.getChildren().add(bottom);
         }
 
-        card.getChildren().add(bottom);
-        return card;
+        @Override
+        void show(LmsClient.Assignment a) {
+            // 여기서 제목을 정규화해서 보여줌 → [1주차] [10주차] → [10주차] 하나만
+            t.setText(buildNormalizedWeekTitle(a.title));
+            m.setText("마감: " + a.due);
+            s.setText(a.summary);
+            for (Button b : serverOnlyBtns) {
+                b.setDisable(LmsClient.isPendingId(a.id));   // 아직 서버에 없는 과제
+            }
+        }
     }
 
     // 과제 등록 : 주차 선택 포함 (DB 안이 어떻게 꼬여 있어도, 화면은 항상 한 번만 [N주차] 보이게)
@@ -984,14 +921,9 @@ private ParsedNotice parseNotice(String full) {
                         finalTitle = baseTitle;
                     }
 
-                    try {
-                        // LmsClient 쪽은 (userId, title, summary) 시그니처라고 가정
-                        LmsClient.createAssignment(currentUserId, finalTitle, summary);
-                        info("등록 완료", "과제가 등록되었습니다.");
-                        showPanel("assignments");
-                    } catch (IOException e) {
-                        error("등록 오류", "과제를 등록하는 중 오류가 발생했습니다.\n" + e.getMessage());
-                    }
+                    // LmsClient 쪽은 (userId, title, summary) 시그니처라고 가정
+                    onFx(LmsClient.createAssignmentAsync(currentUserId, finalTitle, summary),
+                            d -> written(d, "등록 완료", "과제가 등록되었습니다.", "assignments"), e -> error("등록 오류", "과제를 등록하는 중 오류가 발생했습니다.\n" + e.getMessage()));
                 }
             }
             return null;
@@ -1060,13 +992,8 @@ private ParsedNotice parseNotice(String full) {
                         finalTitle = baseTitle;
                     }
 
-                    try {
-                        LmsClient.updateAssignment(currentUserId, a.id, finalTitle, summary);
-                        info("수정 완료", "과제가 수정되었습니다.");
-                        showPanel("assignments");
-                    } catch (IOException e) {
-                        error("수정 오류", "과제를 수정하는 중 오류가 발생했습니다.\n" + e.getMessage());
-                    }
+                    onFx(LmsClient.updateAssignmentAsync(currentUserId, a.id, finalTitle, summary),
+                            d -> written(d, "수정 완료", "과제가 수정되었습니다.", "assignments"), e -> error("수정 오류", "과제를 수정하는 중 오류가 발생했습니다.\n" + e.getMessage()));
                 }
             }
             return null;
@@ -1088,14 +1015,9 @@ private ParsedNotice parseNotice(String full) {
             return;
         }
 
-        try {
-            boolean ok = LmsClient.submitAssignmentFile(currentUserId, a.id, file);
-            if (ok) {
-                info("제출 완료", "과제가 정상적으로 제출되었습니다.");
-            }
-        } catch (IOException e) {
-            error("제출 오류", "서버 전송 중 오류가 발생했습니다.\n" + e.getMessage());
-        }
+        onFx(LmsClient.submitAssignmentFileAsync(currentUserId, a.id, file), stats ->
+                info("제출 완료", "과제가 정상적으로 제출되었습니다.\n" + formatTransfer(stats)),
+                e -> error("제출 오류", "서버 전송 중 오류가 발생했습니다.\n" + e.getMessage()));
     }
 
     // 교사용: 과제 제출 현황 모달
@@ -1105,17 +1027,18 @@ private ParsedNotice parseNotice(String full) {
         dialog.setHeaderText(buildNormalizedWeekTitle(a.title) + " 제출 현황");
 
         dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+        dialog.getDialogPane().getStylesheets().add(THEME);   // 안의 버튼/라벨도 테마 클래스를 쓴다
 
         VBox root = new VBox(8);
         root.setPadding(new Insets(10));
 
-        try {
-            List<LmsClient.SubmissionInfo> list =
-                    LmsClient.fetchSubmissions(currentUserId, a.id);
+        root.getChildren().add(createLoadingLabel("제출 현황을 불러오는 중..."));
 
+        onFx(LmsClient.fetchSubmissionsAsync(currentUserId, a.id), list -> {
+            root.getChildren().clear();
             if (list.isEmpty()) {
                 Label empty = new Label("제출된 파일이 없습니다.");
-                empty.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 13px;");
+                empty.getStyleClass().add("muted");
                 root.getChildren().add(empty);
             } else {
                 for (LmsClient.SubmissionInfo info : list) {
@@ -1134,7 +1057,7 @@ private ParsedNotice parseNotice(String full) {
 
                     Label timeLabel = new Label(info.submittedAt);
                     timeLabel.setPrefWidth(180);
-                    timeLabel.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 12px;");
+                    timeLabel.getStyleClass().add("caption");
 
                     Button downloadBtn = new Button("다운로드");
                     styleOutlineButton(downloadBtn);
@@ -1144,12 +1067,14 @@ private ParsedNotice parseNotice(String full) {
                         chooser.setInitialFileName(suggested);
                         File dest = chooser.showSaveDialog(primaryStage);
                         if (dest != null) {
-                            try {
-                                LmsClient.downloadSubmissionFile(currentUserId, info.filePath, dest);
+                            downloadBtn.setDisable(true);
+                            onFx(LmsClient.downloadSubmissionFileAsync(currentUserId, info.filePath, dest), v -> {
+                                downloadBtn.setDisable(false);
                                 info("다운로드 완료", "파일이 저장되었습니다.");
-                            } catch (IOException ex) {
+                            }, ex -> {
+                                downloadBtn.setDisable(false);
                                 error("다운로드 오류", "파일 다운로드 중 오류가 발생했습니다.\n" + ex.getMessage());
-                            }
+                            });
                         }
                     });
 
@@ -1157,11 +1082,12 @@ private ParsedNotice parseNotice(String full) {
                     root.getChildren().add(row);
                 }
             }
-        } catch (IOException e) {
-            Label err = new Label("제출 현황을 불러오는 중 오류가 발생했습니다:\n" + e.getMessage());
-            err.setStyle("-fx-text-fill: #b91c1c; -fx-font-size: 12px;");
-            root.getChildren().add(err);
-        }
+            // 내용이 늦게 채워지므로 창 크기를 다시 맞춘다
+            if (dialog.getDialogPane().getScene() != null) {
+                dialog.getDialogPane().getScene().getWindow().sizeToScene();
+            }
+        }, e -> root.getChildren().setAll(
+                createErrorLabel("제출 현황을 불러오는 중 오류가 발생했습니다:\n" + e.getMessage())));
 
         dialog.getDialogPane().setContent(root);
         dialog.initOwner(primaryStage);
@@ -1169,6 +1095,12 @@ private ParsedNotice parseNotice(String full) {
         dialog.showAndWait();
     }
 
+    // 전송량 / 속도 표시 (ex: "12.4 MB · 38.2 MB/s")
+    private String formatTransfer(LmsClient.TransferStats stats) {
+        return String.format("%.1f MB · %.1f MB/s",
+                stats.bytes / (1024.0 * 1024.0), stats.megabytesPerSecond());
+    }
+
     // 서버에 저장된 파일명에서 원래 파일명 추출 (taskId_userId_timestamp_original.ext)
     private String extractOriginalFilename(String filePath) {
         if (filePath == null) return "submission.dat";
@@ -1199,7 +1131,7 @@ private ParsedNotice parseNotice(String full) {
         VBox root = new VBox(18);
         VBox panel = createMainPanelWrapper("공지");
 
-        VBox list = new VBox(12);
+        ListView<LmsClient.NoticeItem> listView = createCardList(lv -> new NoticeCell(), "공지 목록을 불러오는 중...");
 
         if ("TEACHER".equals(currentRole)) {
             Button createBtn = new Button("새 공지 등록");
@@ -1211,93 +1143,79 @@ private ParsedNotice parseNotice(String full) {
             panel.getChildren().add(topBar);
         }
 
-        try {
-            List<LmsClient.NoticeItem> notices =
-                    LmsClient.fetchNotices(currentUserId != null ? currentUserId : "student");
-            if (notices.isEmpty()) {
-                Label emptyLabel = new Label("등록된 공지가 없습니다.");
-                emptyLabel.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 13px;");
-                list.getChildren().add(emptyLabel);
-            } else {
-                for (LmsClient.NoticeItem n : notices) {
-                    VBox card = createNoticeCard(n);
-                    list.getChildren().add(card);
-                }
-            }
-        } catch (IOException e) {
-            Label errLabel = new Label("공지 목록을 불러오는 중 오류가 발생했습니다:\n" + e.getMessage());
-            errLabel.setStyle("-fx-text-fill: #b91c1c; -fx-font-size: 12px;");
-            list.getChildren().add(errLabel);
+        String userId = currentUserId != null ? currentUserId : "student";
+        List<LmsClient.NoticeItem> saved = LmsClient.savedNotices(userId);
+        if (saved != null) {
+            fillCardList(listView, saved, "등록된 공지가 없습니다.", n -> n.id);
         }
 
-        // 공지 탭도 스크롤 추가
-        ScrollPane sp = new ScrollPane(list);
-        sp.setFitToWidth(true);
-        sp.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
-        sp.setVbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);
-        sp.setStyle("-fx-background-color: transparent; -fx-background-insets: 0;");
-        VBox.setVgrow(sp, Priority.ALWAYS);
+        loadPanel(root, () -> onFx(LmsClient.fetchNoticesAsync(userId),
+                notices -> fillCardList(listView, notices, "등록된 공지가 없습니다.", n -> n.id),
+                e -> showCardListError(listView, "공지 목록을 불러오는 중 오류가 발생했습니다:\n" + e.getMessage())));
 
-        panel.getChildren().add(sp);
+        panel.getChildren().add(listView);
         root.getChildren().add(panel);
         return root;
     }
 
-    private VBox createNoticeCard(LmsClient.NoticeItem item) {
-        VBox card = new VBox(6);
-        card.setPadding(new Insets(16));
-        card.setStyle(
-                "-fx-background-color: #fdfdff;" +
-                        "-fx-border-color: " + BORDER + ";" +
-                        "-fx-border-radius: 18;" +
-                        "-fx-background-radius: 18;"
-        );
-
-        // item.content OR item.title 에 뭐가 들어있든, 통째로 파싱해서 제목/본문 분리
-        String full = (item.content != null && !item.content.isBlank())
-                ? item.content
-                : item.title;
-        ParsedNotice pn = parseNotice(full);
-
-        Label t = new Label(pn.title);
-        t.setStyle("-fx-text-fill: " + TEXT + "; -fx-font-size: 16px; -fx-font-weight: 600;");
-
-        Label meta = new Label(item.createdAt);
-        meta.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 11px;");
-
-        Label body = new Label(pn.body);
-        body.setWrapText(true);
-        body.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 13px;");
-
-        card.getChildren().addAll(t, meta, body);
-
-        if ("TEACHER".equals(currentRole)) {
-            HBox btnBar = new HBox(8);
-            btnBar.setAlignment(Pos.CENTER_RIGHT);
-
-            Button editBtn = new Button("수정");
-            styleOutlineButton(editBtn);
-            editBtn.setOnAction(e -> openNoticeEditor(item));
-
-            Button delBtn = new Button("삭제");
-            styleOutlineButton(delBtn);
-            delBtn.setOnAction(e -> {
-                if (confirm("공지를 삭제하시겠습니까?")) {
-                    try {
-                        LmsClient.deleteNotice(currentUserId, item.id);
-                        info("삭제 완료", "공지가 삭제되었습니다.");
-                        showPanel("notices");
-                    } catch (IOException ex) {
-                        error("삭제 오류", "공지를 삭제하는 중 오류가 발생했습니다.\n" + ex.getMessage());
+    // 공지 카드 한 칸 (셀마다 노드는 한 번만 만든다)
+    private final class NoticeCell extends CardCell<LmsClient.NoticeItem> {
+        private final Label t = new Label();
+        private final Label meta = new Label();
+        private final Label body = new Label();
+        private final List<Button> serverOnlyBtns = new ArrayList<>();   // 수정 / 삭제 (임시 id면 막는다)
+
+        NoticeCell() {
+            super(new VBox(6));
+            card.setPadding(new Insets(16));
+            card.getStyleClass().add("card");
+
+            t.getStyleClass().add("card-title");
+            meta.getStyleClass().add("card-meta");
+            body.setWrapText(true);
+            body.getStyleClass().add("muted");
+
+            card.getChildren().addAll(t, meta, body);
+
+            if ("TEACHER".equals(currentRole)) {
+                HBox btnBar = new HBox(8);
+                btnBar.setAlignment(Pos.CENTER_RIGHT);
+
+                Button editBtn = new Button("수정");
+                styleOutlineButton(editBtn);
+                editBtn.setOnAction(e -> openNoticeEditor(getItem()));
+
+                Button delBtn = new Button("삭제");
+                styleOutlineButton(delBtn);
+                delBtn.setOnAction(e -> {
+                    LmsClient.NoticeItem item = getItem();
+                    if (confirm("공지를 삭제하시겠습니까?")) {
+                        onFx(LmsClient.deleteNoticeAsync(currentUserId, item.id),
+                                d -> written(d, "삭제 완료", "공지가 삭제되었습니다.", "notices"), ex -> error("삭제 오류", "공지를 삭제하는 중 오류가 발생했습니다.\n" + ex.getMessage()));
                     }
-                }
-            });
+                });
 
-            btnBar.getChildren().addAll(editBtn, delBtn);
-            card.getChildren().add(btnBar);
+                btnBar.getChildren().addAll(editBtn, delBtn);
+                card.getChildren().add(btnBar);
+                serverOnlyBtns.addAll(List.of(editBtn, delBtn));
+            }
         }
 
-        return card;
+        @Override
+        void show(LmsClient.NoticeItem item) {
+            // item.content OR item.title 에 뭐가 들어있든, 통째로 파싱해서 제목/본문 분리
+            String full = (item.content != null && !item.content.isBlank())
+                    ? item.content
+                    : item.title;
+            ParsedNotice pn = parseNotice(full);
+
+            t.setText(pn.title);
+            meta.setText(item.createdAt);
+            body.setText(pn.body);
+            for (Button b : serverOnlyBtns) {
+                b.setDisable(LmsClient.isPendingId(item.id));   // 아직 서버에 없는 공지
+            }
+        }
     }
 
     // 공지 등록/수정 다이얼로그
@@ -1341,17 +1259,10 @@ private ParsedNotice parseNotice(String full) {
             String combined = t;
             if (!b.isEmpty()) combined += "  " + b;
 
-            try {
-                if (isNew) {
-                    LmsClient.createNotice(currentUserId, combined);
-                } else {
-                    LmsClient.updateNotice(currentUserId, item.id, combined);
-                }
-                info("저장 완료", "공지가 저장되었습니다.");
-                showPanel("notices");
-            } catch (IOException e) {
-                error("저장 오류", "공지를 저장하는 중 오류가 발생했습니다.\n" + e.getMessage());
-            }
+            CompletableFuture<LmsClient.Delivery> save = isNew
+                    ? LmsClient.createNoticeAsync(currentUserId, combined)
+                    : LmsClient.updateNoticeAsync(currentUserId, item.id, combined);
+            onFx(save, d -> written(d, "저장 완료", "공지가 저장되었습니다.", "notices"), e -> error("저장 오류", "공지를 저장하는 중 오류가 발생했습니다.\n" + e.getMessage()));
         }
     }
     return null;
@@ -1369,7 +1280,7 @@ private ParsedNotice parseNotice(String full) {
         VBox root = new VBox(18);
         VBox panel = createMainPanelWrapper("강의 영상");
 
-        VBox list = new VBox(12);
+        ListView<LmsClient.VideoItem> listView = createCardList(lv -> new VideoCell(), "영상 목록을 불러오는 중...");
 
         if ("TEACHER".equals(currentRole)) {
             Button uploadBtn = new Button("영상 업로드");
@@ -1382,84 +1293,68 @@ private ParsedNotice parseNotice(String full) {
             panel.getChildren().add(topBar);
         }
 
-        try {
-            List<LmsClient.VideoItem> videos =
-                    LmsClient.fetchVideos(currentUserId != null ? currentUserId : "student");
-            if (videos.isEmpty()) {
-                Label emptyLabel = new Label("등록된 강의 영상이 없습니다.");
-                emptyLabel.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 13px;");
-                list.getChildren().add(emptyLabel);
-            } else {
-                for (LmsClient.VideoItem v : videos) {
-                    VBox card = createVideoCard(v);
-                    list.getChildren().add(card);
-                }
-            }
-        } catch (IOException e) {
-            Label errLabel = new Label("영상 목록을 불러오는 중 오류가 발생했습니다:\n" + e.getMessage());
-            errLabel.setStyle("-fx-text-fill: #b91c1c; -fx-font-size: 12px;");
-            list.getChildren().add(errLabel);
+        String userId = currentUserId != null ? currentUserId : "student";
+        List<LmsClient.VideoItem> saved = LmsClient.savedVideos(userId);
+        if (saved != null) {
+            fillCardList(listView, saved, "등록된 강의 영상이 없습니다.", v -> v.id);
         }
 
-        // 영상 탭도 스크롤 추가
-        ScrollPane sp = new ScrollPane(list);
-        sp.setFitToWidth(true);
-        sp.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
-        sp.setVbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);
-        sp.setStyle("-fx-background-color: transparent; -fx-background-insets: 0;");
-        VBox.setVgrow(sp, Priority.ALWAYS);
+        loadPanel(root, () -> onFx(LmsClient.fetchVideosAsync(userId),
+                videos -> fillCardList(listView, videos, "등록된 강의 영상이 없습니다.", v -> v.id),
+                e -> showCardListError(listView, "영상 목록을 불러오는 중 오류가 발생했습니다:\n" + e.getMessage())));
 
-        panel.getChildren().add(sp);
+        panel.getChildren().add(listView);
         root.getChildren().add(panel);
         return root;
     }
 
-    private VBox createVideoCard(LmsClient.VideoItem v) {
-    VBox card = new VBox(6);
-    card.setPadding(new Insets(14));
-    card.setStyle(
-            "-fx-background-color: #fdfdff;" +
-                    "-fx-border-color: " + BORDER + ";" +
-                    "-fx-border-radius: 18;" +
-                    "-fx-background-radius: 18;"
-    );
+    // 영상 카드 한 칸 (셀마다 노드는 한 번만 만든다)
+    private final class VideoCell extends CardCell<LmsClient.VideoItem> {
+        private final Label t = new Label();
+        private final Label m = new Label();
 
-    Label t = new Label(v.title);
-    t.setStyle("-fx-text-fill: " + TEXT + "; -fx-font-size: 15px; -fx-font-weight: 600;");
+        VideoCell() {
+            super(new VBox(6));
+            card.setPadding(new Insets(14));
+            card.getStyleClass().addAll("card", "video-card");
 
-    Label m = new Label(v.weekLabel);
-    m.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 12px;");
+            t.getStyleClass().add("card-title");
+            m.getStyleClass().add("caption");
 
-    HBox btnBar = new HBox(8);
-    btnBar.setAlignment(Pos.CENTER_RIGHT);
-
-    // 재생 버튼만
-    Button playBtn = new Button("재생");
-    styleOutlineButton(playBtn);
-    playBtn.setOnAction(e -> openVideoModal(v));
-    btnBar.getChildren().add(playBtn);
+            HBox btnBar = new HBox(8);
+            btnBar.setAlignment(Pos.CENTER_RIGHT);
 
-    // 교사일 때만 삭제 버튼
-    if ("TEACHER".equals(currentRole)) {
-        Button delBtn = new Button("삭제");
-        styleOutlineButton(delBtn);
-        delBtn.setOnAction(e -> {
-            if (confirm("영상을 삭제하시겠습니까? (파일도 삭제될 수 있습니다)")) {
-                try {
-                    LmsClient.deleteVideo(currentUserId, v.id);
-                    info("삭제 완료", "영상이 삭제되었습니다.");
-                    showPanel("videos");
-                } catch (IOException ex) {
-                    error("삭제 오류", "영상을 삭제하는 중 오류가 발생했습니다.\n" + ex.getMessage());
-                }
+            // 재생 버튼만
+            Button playBtn = new Button("재생");
+            styleOutlineButton(playBtn);
+            playBtn.setOnAction(e -> openVideoModal(getItem()));
+            btnBar.getChildren().add(playBtn);
+
+            // 교사일 때만 삭제 버튼
+            if ("TEACHER".equals(currentRole)) {
+                Button delBtn = new Button("삭제");
+                styleOutlineButton(delBtn);
+                delBtn.setOnAction(e -> {
+                    LmsClient.VideoItem v = getItem();
+                    if (confirm("영상을 삭제하시겠습니까? (파일도 삭제될 수 있습니다)")) {
+                        onFx(LmsClient.deleteVideoAsync(currentUserId, v.id), done -> {
+                            info("삭제 완료", "영상이 삭제되었습니다.");
+                            reloadPanel("videos");
+                        }, ex -> error("삭제 오류", "영상을 삭제하는 중 오류가 발생했습니다.\n" + ex.getMessage()));
+                    }
+                });
+                btnBar.getChildren().add(delBtn);
             }
-        });
-        btnBar.getChildren().add(delBtn);
-    }
 
-    card.getChildren().addAll(t, m, btnBar);
-    return card;
-}
+            card.getChildren().addAll(t, m, btnBar);
+        }
+
+        @Override
+        void show(LmsClient.VideoItem v) {
+            t.setText(v.title);
+            m.setText(v.weekLabel);
+        }
+    }
 
     // 영상 재생 모달 (WebView + HTTP 스트리밍)
     private void openVideoModal(LmsClient.VideoItem v) {
@@ -1488,6 +1383,7 @@ private ParsedNotice parseNotice(String full) {
         Dialog<Void> dialog = new Dialog<>();
         dialog.setTitle("영상 업로드");
         dialog.setHeaderText("강의 영상을 업로드합니다.");
+        dialog.getDialogPane().getStylesheets().add(THEME);
 
         ButtonType uploadType = new ButtonType("업로드", ButtonBar.ButtonData.OK_DONE);
         dialog.getDialogPane().getButtonTypes().addAll(uploadType, ButtonType.CANCEL);
@@ -1538,13 +1434,10 @@ private ParsedNotice parseNotice(String full) {
                     warning("업로드 실패", "업로드할 파일을 선택해 주세요.");
                 } else {
                     int week = weekCombo.getSelectionModel().getSelectedItem();
-                    try {
-                        LmsClient.uploadVideoFile(currentUserId, String.valueOf(week), selectedFile[0]);
-                        info("업로드 완료", "영상이 업로드되었습니다.");
-                        showPanel("videos");
-                    } catch (IOException e) {
-                        error("업로드 오류", "영상을 업로드하는 중 오류가 발생했습니다.\n" + e.getMessage());
-                    }
+                    onFx(LmsClient.uploadVideoFileAsync(currentUserId, String.valueOf(week), selectedFile[0]), stats -> {
+                        info("업로드 완료", "영상이 업로드되었습니다.\n" + formatTransfer(stats));
+                        reloadPanel("videos");
+                    }, e -> error("업로드 오류", "영상을 업로드하는 중 오류가 발생했습니다.\n" + e.getMessage()));
                 }
             }
             return null;
@@ -1567,31 +1460,35 @@ private VBox buildChatPanel() {
     // 왼쪽: 상대 정보 / 학생 선택
     VBox targetBox = new VBox(10);
     targetBox.setPadding(new Insets(16));
-    targetBox.setStyle(
-            "-fx-background-color: #f8f9ff;" +
-                    "-fx-border-color: " + BORDER + ";" +
-                    "-fx-border-radius: 18;" +
-                    "-fx-background-radius: 18;"
-    );
+    targetBox.getStyleClass().addAll("card", "chat-target");
     targetBox.setPrefWidth(260);
 
     Label targetTitle = new Label("대화 상대");
-    targetTitle.setStyle("-fx-text-fill: " + TEXT + "; -fx-font-weight: 600;");
+    targetTitle.getStyleClass().add("section-title");
 
     // 오른쪽: 채팅 영역
     VBox chatBox = new VBox(10);
     chatBox.setPadding(new Insets(16));
-    chatBox.setStyle(
-            "-fx-background-color: #fdfdff;" +
-                    "-fx-border-color: " + BORDER + ";" +
-                    "-fx-border-radius: 18;" +
-                    "-fx-background-radius: 18;"
-    );
+    chatBox.getStyleClass().add("card");
     chatBox.setPrefHeight(420);
     VBox.setVgrow(chatBox, Priority.ALWAYS);
 
-    ListView<String> messageList = new ListView<>();
+    ListView<LmsClient.ChatMessage> messageList = new ListView<>();
     VBox.setVgrow(messageList, Priority.ALWAYS);
+    messageList.setCellFactory(lv -> new ChatMessageCell());
+    chatMessageList = messageList;
+    // 세로 스크롤이 맨 위에 닿으면 그 앞 페이지를 받는다 (스크롤바는 스킨이 만들어진 뒤에 찾을 수 있다)
+    messageList.skinProperty().addListener((obs, oldSkin, skin) -> {
+        for (Node node : messageList.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+                bar.valueProperty().addListener((o, oldV, v) -> {
+                    if (v.doubleValue() <= bar.getMin()) {
+                        loadOlderChatMessages(messageList, currentUserId);
+                    }
+                });
+            }
+        }
+    });
 
     HBox inputBox = new HBox(8);
     TextField inputField = new TextField();
@@ -1611,88 +1508,76 @@ private VBox buildChatPanel() {
     if ("TEACHER".equals(currentRole)) {
         // 🔹 교수: 학생 목록에서 선택
         Label help = new Label("학생을 선택하면 1:1 대화가 시작됩니다.");
-        help.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 12px;");
+        help.getStyleClass().add("caption");
 
         ComboBox<LmsClient.StudentInfo> studentCombo = new ComboBox<>();
         studentCombo.setPrefWidth(220);
 
-        try {
-            List<LmsClient.StudentInfo> students = LmsClient.fetchStudents(currentUserId);
-            if (students.isEmpty()) {
-                studentCombo.setPromptText("등록된 학생이 없습니다");
-            } else {
-                studentCombo.setItems(FXCollections.observableArrayList(students));
-                studentCombo.setPromptText("학생을 선택하세요");
-
-                // 콤보박스에 이름(학번) 표시
-                studentCombo.setCellFactory(cb -> new ListCell<>() {
-                    @Override
-                    protected void updateItem(LmsClient.StudentInfo item, boolean empty) {
-                        super.updateItem(item, empty);
-                        if (empty || item == null) {
-                            setText(null);
-                        } else {
-                            String name = (item.name == null || item.name.isBlank())
-                                    ? item.studentId
-                                    : item.name + " (" + item.studentId + ")";
-                            setText(name);
-                        }
-                    }
-                });
-                studentCombo.setButtonCell(new ListCell<>() {
-                    @Override
-                    protected void updateItem(LmsClient.StudentInfo item, boolean empty) {
-                        super.updateItem(item, empty);
-                        if (empty || item == null) {
-                            setText("학생을 선택하세요");
-                        } else {
-                            String name = (item.name == null || item.name.isBlank())
-                                    ? item.studentId
-                                    : item.name + " (" + item.studentId + ")";
-                            setText(name);
-                        }
-                    }
-                });
+        studentCombo.setPromptText("학생 목록을 불러오는 중...");
 
-                // 기본으로 첫 학생 선택
-                studentCombo.getSelectionModel().selectFirst();
-                LmsClient.StudentInfo first = studentCombo.getSelectionModel().getSelectedItem();
-                if (first != null) {
-                    refreshChatMessages(messageList, currentUserId, first.studentId);
+        // 콤보박스에 이름(학번) 표시
+        studentCombo.setCellFactory(cb -> new ListCell<>() {
+            @Override
+            protected void updateItem(LmsClient.StudentInfo item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText(null);
+                } else {
+                    String name = (item.name == null || item.name.isBlank())
+                            ? item.studentId
+                            : item.name + " (" + item.studentId + ")";
+                    setText(name);
+                }
+            }
+        });
+        studentCombo.setButtonCell(new ListCell<>() {
+            @Override
+            protected void updateItem(LmsClient.StudentInfo item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText(studentCombo.getPromptText());
+                } else {
+                    String name = (item.name == null || item.name.isBlank())
+                            ? item.studentId
+                            : item.name + " (" + item.studentId + ")";
+                    setText(name);
                 }
+            }
+        });
 
-                // 선택이 바뀔 때마다 해당 학생과의 대화만 로딩
-                studentCombo.getSelectionModel().selectedItemProperty().addListener((obs, oldV, newV) -> {
-                    if (newV != null) {
-                        messageList.getItems().clear();
-                        refreshChatMessages(messageList, currentUserId, newV.studentId);
-                    }
-                });
+        // 선택이 바뀔 때마다 해당 학생과의 대화만 로딩
+        studentCombo.getSelectionModel().selectedItemProperty().addListener((obs, oldV, newV) -> {
+            if (newV != null) {
+                refreshChatMessages(messageList, currentUserId, newV.studentId);
+            }
+        });
 
-                // 전송 버튼: 현재 선택된 학생에게만 전송
-                sendBtn.setOnAction(e -> {
-                    String text = inputField.getText().trim();
-                    if (text.isEmpty()) return;
+        // 전송 버튼: 현재 선택된 학생에게만 전송
+        sendBtn.setOnAction(e -> {
+            String text = inputField.getText().trim();
+            if (text.isEmpty()) return;
 
-                    LmsClient.StudentInfo target = studentCombo.getSelectionModel().getSelectedItem();
-                    if (target == null) {
-                        warning("대상 선택", "메시지를 보낼 학생을 먼저 선택해 주세요.");
-                        return;
-                    }
-                    try {
-                        LmsClient.sendChat(currentUserId, target.studentId, text);
-                        inputField.clear();
-                        refreshChatMessages(messageList, currentUserId, target.studentId);
-                    } catch (IOException ex) {
-                        error("채팅 오류", "메시지 전송 중 오류가 발생했습니다.\n" + ex.getMessage());
-                    }
-                });
+            LmsClient.StudentInfo target = studentCombo.getSelectionModel().getSelectedItem();
+            if (target == null) {
+                warning("대상 선택", "메시지를 보낼 학생을 먼저 선택해 주세요.");
+                return;
             }
-        } catch (IOException e) {
-            Label err = new Label("학생 목록을 불러오는 중 오류가 발생했습니다:\n" + e.getMessage());
-            err.setStyle("-fx-text-fill: #b91c1c; -fx-font-size: 12px;");
-            targetBox.getChildren().addAll(targetTitle, err);
+            sendChatMessage(messageList, inputField, sendBtn, target.studentId, text);
+        });
+
+        // 저장해 둔 학생 목록으로 먼저 채우고, 새로 받으면 고르던 학생은 그대로 두고 목록만 바꾼다
+        List<LmsClient.StudentInfo> savedStudents = LmsClient.savedStudents(currentUserId);
+        if (savedStudents != null) {
+            fillStudentCombo(studentCombo, savedStudents);
         }
+        onFx(LmsClient.fetchStudentsAsync(currentUserId), students -> fillStudentCombo(studentCombo, students), e -> {
+            if (savedStudents != null) {
+                return;
+            }
+            studentCombo.setPromptText("학생 목록 오류");
+            targetBox.getChildren().add(
+                    createErrorLabel("학생 목록을 불러오는 중 오류가 발생했습니다:\n" + e.getMessage()));
+        });
 
         targetBox.getChildren().addAll(targetTitle, help, studentCombo);
 
@@ -1701,7 +1586,7 @@ private VBox buildChatPanel() {
         final String partnerId = "teacher";
 
         Label targetNameLabel = new Label("교수: teacher");
-        targetNameLabel.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 13px;");
+        targetNameLabel.getStyleClass().add("muted");
         targetBox.getChildren().addAll(targetTitle, targetNameLabel);
 
         // 처음 열 때 메시지 로딩
@@ -1710,37 +1595,291 @@ private VBox buildChatPanel() {
         sendBtn.setOnAction(e -> {
             String text = inputField.getText().trim();
             if (text.isEmpty()) return;
-            try {
-                LmsClient.sendChat(currentUserId, partnerId, text);
-                inputField.clear();
-                refreshChatMessages(messageList, currentUserId, partnerId);
-            } catch (IOException ex) {
-                error("채팅 오류", "메시지 전송 중 오류가 발생했습니다.\n" + ex.getMessage());
-            }
+            sendChatMessage(messageList, inputField, sendBtn, partnerId, text);
         });
     }
 
     layout.getChildren().addAll(targetBox, chatBox);
     HBox.setHgrow(chatBox, Priority.ALWAYS);
 
+    // 다시 볼 때는 열린 대화만 맞춘다 (처음 로딩은 위에서 이미 시작했다)
+    root.getProperties().put("panelReload", (Runnable) () -> {
+        ChatSync sync = (ChatSync) messageList.getProperties().get("chatSync");
+        if (sync != null && sync.partnerId != null) {
+            refreshChatMessages(messageList, currentUserId, sync.partnerId);
+        }
+    });
+
     panel.getChildren().add(layout);
     root.getChildren().add(panel);
     return root;
 }
 
-    private void refreshChatMessages(ListView<String> listView, String userA, String userB) {
-        try {
-            List<String> messages = LmsClient.fetchChat(userA, userB);
-            listView.setItems(FXCollections.observableArrayList(messages));
-            if (!messages.isEmpty()) {
-                listView.scrollTo(messages.size() - 1);
+    private static void fillStudentCombo(ComboBox<LmsClient.StudentInfo> studentCombo, List<LmsClient.StudentInfo> students) {
+        if (students.isEmpty()) {
+            studentCombo.setPromptText("등록된 학생이 없습니다");
+            return;
+        }
+        LmsClient.StudentInfo selected = studentCombo.getSelectionModel().getSelectedItem();
+        studentCombo.setPromptText("학생을 선택하세요");
+        studentCombo.setItems(FXCollections.observableArrayList(students));
+        // 고르던 학생이 있으면 다시 그 학생, 아니면 첫 학생 (리스너가 대화를 불러온다)
+        for (LmsClient.StudentInfo s : students) {
+            if (selected != null && s.studentId.equals(selected.studentId)) {
+                studentCombo.getSelectionModel().select(s);
+                return;
+            }
+        }
+        studentCombo.getSelectionModel().selectFirst();
+    }
+
+    private void sendChatMessage(ListView<LmsClient.ChatMessage> messageList, TextField inputField, Button sendBtn,
+                                 String partnerId, String text) {
+        sendBtn.setDisable(true);
+        onFx(LmsClient.sendChatAsync(currentUserId, partnerId, text), delivery -> {
+            sendBtn.setDisable(false);
+            inputField.clear();
+            if (delivery == LmsClient.Delivery.QUEUED) {
+                showPendingChat(messageList, currentUserId, partnerId);   // 연결되면 보내고 그때 받은 메시지로 바꾼다
+            } else {
+                refreshChatMessages(messageList, currentUserId, partnerId);
+            }
+        }, ex -> {
+            sendBtn.setDisable(false);
+            error("채팅 오류", "메시지 전송 중 오류가 발생했습니다.\n" + ex.getMessage());
+        });
+    }
+
+    // 메시지 한 칸: 위에 보낸 사람 · 시각, 아래에 본문 (내가 보낸 건 보낸 사람을 강조색으로)
+    private final class ChatMessageCell extends ListCell<LmsClient.ChatMessage> {
+        private final Label meta = new Label();
+        private final Label body = new Label();
+        private final VBox box = new VBox(2, meta, body);
+
+        ChatMessageCell() {
+            body.setWrapText(true);
+            body.getStyleClass().add("chat-body");
+            meta.getStyleClass().add("chat-meta");
+            // 셀 폭에 맞춰 줄바꿈 (스크롤바 폭만큼 여유)
+            body.maxWidthProperty().bind(widthProperty().subtract(30));
+            box.setPadding(new Insets(2, 0, 2, 0));
+        }
+
+        @Override
+        protected void updateItem(LmsClient.ChatMessage item, boolean empty) {
+            super.updateItem(item, empty);
+            setText(null);
+            if (empty || item == null) {
+                setGraphic(null);
+                return;
+            }
+            String time = (item.id < 0) ? "전송 대기 중" : formatChatTime(item.sentAt);
+            meta.setText(item.fromId + " → " + item.toId + (time.isEmpty() ? "" : " · " + time));
+            boolean mine = item.fromId.equals(currentUserId);
+            meta.pseudoClassStateChanged(MINE, mine);
+            body.setText(item.body);
+            setGraphic(box);
+        }
+    }
+
+    // 오늘 보낸 건 시:분, 그 전은 월/일 시:분 (시각을 모르면 빈 문자열)
+    private static String formatChatTime(long sentAt) {
+        if (sentAt <= 0) {
+            return "";
+        }
+        LocalDateTime t = LocalDateTime.ofInstant(Instant.ofEpochMilli(sentAt), ZoneId.systemDefault());
+        return t.toLocalDate().equals(LocalDate.now()) ? t.format(CHAT_TIME) : t.format(CHAT_DATE_TIME);
+    }
+
+    // 메시지 목록(ListView) 하나의 증분 조회 상태. 목록의 properties에 붙여 둔다
+    private static final class ChatSync {
+        String partnerId;   // 지금 목록에 보이는 대화 상대
+        long cursor;        // 목록에 들어 있는 마지막 메시지 id (첫 페이지를 받기 전이면 -1)
+        long oldestId;      // 목록 맨 위 메시지 id (그 앞 페이지를 받을 때 beforeId로)
+        boolean hasOlder;   // 그 앞 메시지가 더 있을 수 있는지
+        boolean loading;    // 조회 중이면 다음 조회는 끝난 뒤에 한 번만
+        boolean again;
+        boolean loadingOlder;
+    }
+
+    /**
+     * 마지막으로 받은 메시지 뒤에 온 것만 받아 목록 끝에 붙인다.
+     * 대화 상대가 바뀌면 목록을 비우고 최근 한 페이지부터 받는다 (그 앞은 위로 올릴 때 loadOlderChatMessages).
+     */
+    private void refreshChatMessages(ListView<LmsClient.ChatMessage> listView, String userA, String userB) {
+        ChatSync sync = (ChatSync) listView.getProperties().computeIfAbsent("chatSync", k -> new ChatSync());
+        if (!userB.equals(sync.partnerId)) {
+            sync.partnerId = userB;
+            sync.cursor = -1;
+            sync.oldestId = 0;
+            sync.hasOlder = false;
+            // 마지막으로 열었을 때 받아 둔 메시지를 먼저 보여 주고, 첫 페이지가 오면 바꾼다
+            List<LmsClient.ChatMessage> saved = LmsClient.savedChat(userA, userB);
+            listView.getItems().setAll(saved != null ? saved : List.of());
+            showPendingChat(listView, userA, userB);
+            listView.setPlaceholder(createLoadingLabel("대화를 불러오는 중..."));
+        }
+        if (sync.loading) {
+            sync.again = true;
+            return;
+        }
+        sync.loading = true;
+        if (sync.cursor < 0) {
+            onFx(LmsClient.fetchChatPageAsync(userA, userB, 0, CHAT_PAGE_SIZE), page -> {
+                if (userB.equals(sync.partnerId)) {
+                    listView.setPlaceholder(createLoadingLabel("아직 주고받은 메시지가 없습니다."));
+                    listView.getItems().setAll(page.messages);
+                    sync.cursor = page.newestId;
+                    sync.oldestId = page.oldestId;
+                    sync.hasOlder = page.hasOlder;
+                    showPendingChat(listView, userA, userB);
+                }
+                chatLoadDone(listView, userA, sync);
+            }, e -> chatLoadFailed(listView, sync, e));
+            return;
+        }
+        onFx(LmsClient.fetchChatSinceAsync(userA, userB, sync.cursor), delta -> {
+            if (userB.equals(sync.partnerId)) {
+                if (delta.full) {
+                    listView.getItems().setAll(delta.messages);
+                    sync.cursor = delta.cursor;
+                    showPendingChat(listView, userA, userB);
+                } else {
+                    appendChatMessages(listView, sync, delta.messages);
+                }
             }
-        } catch (IOException e) {
-            listView.setItems(FXCollections.observableArrayList(
-                    "채팅 목록을 불러오는 중 오류가 발생했습니다:",
-                    e.getMessage()
-            ));
+            chatLoadDone(listView, userA, sync);
+        }, e -> chatLoadFailed(listView, sync, e));
+    }
+
+    private void chatLoadDone(ListView<LmsClient.ChatMessage> listView, String userA, ChatSync sync) {
+        sync.loading = false;
+        if (sync.again) {
+            sync.again = false;
+            refreshChatMessages(listView, userA, sync.partnerId);
+        }
+    }
+
+    private void chatLoadFailed(ListView<LmsClient.ChatMessage> listView, ChatSync sync, Throwable e) {
+        sync.loading = false;
+        sync.again = false;
+        sync.partnerId = null;   // 다음 조회는 처음부터
+        // 보이던 메시지(저장해 둔 것이라도)는 그대로 두고, 비어 있을 때만 오류를 보여 준다
+        listView.setPlaceholder(createErrorLabel("채팅 목록을 불러오는 중 오류가 발생했습니다:\n" + e.getMessage()));
+    }
+
+    // 받은 메시지 중 목록 마지막 id보다 뒤인 것만 차례로 붙인다 (id가 키라서 겹쳐 와도 두 번 들어가지 않는다)
+    private static void appendChatMessages(ListView<LmsClient.ChatMessage> listView, ChatSync sync,
+                                           List<LmsClient.ChatMessage> messages) {
+        List<LmsClient.ChatMessage> fresh = new ArrayList<>(messages.size());
+        for (LmsClient.ChatMessage m : messages) {
+            if (m.id > sync.cursor) {
+                fresh.add(m);
+                sync.cursor = m.id;
+            }
+        }
+        if (!fresh.isEmpty()) {
+            // 보류 중인 메시지(id < 0)는 늘 끝에 남긴다
+            List<LmsClient.ChatMessage> items = listView.getItems();
+            int at = items.size();
+            while (at > 0 && items.get(at - 1).id < 0) {
+                at--;
+            }
+            items.addAll(at, fresh);
+            scrollChatToEnd(listView);
+        }
+    }
+
+    // 목록 끝의 보류 메시지를 지금 보류 중인 것으로 맞춘다
+    private static void showPendingChat(ListView<LmsClient.ChatMessage> listView, String userA, String userB) {
+        listView.getItems().removeIf(m -> m.id < 0);
+        listView.getItems().addAll(LmsClient.pendingChat(userA, userB));
+        scrollChatToEnd(listView);
+    }
+
+    private static void scrollChatToEnd(ListView<LmsClient.ChatMessage> listView) {
+        if (!listView.getItems().isEmpty()) {
+            listView.scrollTo(listView.getItems().size() - 1);
+        }
+    }
+
+    // 맨 위까지 올렸을 때: 목록 맨 위 메시지 앞 페이지를 받아 위에 붙이고, 보던 메시지가 그 자리에 있게 한다
+    private void loadOlderChatMessages(ListView<LmsClient.ChatMessage> listView, String userA) {
+        ChatSync sync = (ChatSync) listView.getProperties().get("chatSync");
+        if (sync == null || sync.partnerId == null || sync.cursor < 0 || !sync.hasOlder || sync.loadingOlder) {
+            return;
+        }
+        sync.loadingOlder = true;
+        String userB = sync.partnerId;
+        long beforeId = sync.oldestId;
+        onFx(LmsClient.fetchChatPageAsync(userA, userB, beforeId, CHAT_PAGE_SIZE), page -> {
+            sync.loadingOlder = false;
+            // 그 사이 상대가 바뀌었거나 목록을 새로 받았으면 버린다
+            if (!userB.equals(sync.partnerId) || beforeId != sync.oldestId) {
+                return;
+            }
+            sync.hasOlder = page.hasOlder;
+            if (!page.messages.isEmpty()) {
+                sync.oldestId = page.oldestId;
+                listView.getItems().addAll(0, page.messages);
+                listView.scrollTo(page.messages.size());
+            }
+        }, e -> sync.loadingOlder = false);   // 다음에 다시 올리면 재시도
+    }
+
+    private void startChatSubscription() {
+        if (chatSubscription != null) {
+            chatSubscription.close();
+        }
+        String userId = currentUserId;
+        chatSubscription = LmsClient.subscribeChat(userId, new ChatSubscription.Listener() {
+            @Override
+            public void onMessage(LmsClient.ChatMessage message) {
+                Platform.runLater(() -> {
+                    if (userId.equals(currentUserId)) {
+                        appendPushedChat(message);
+                    }
+                });
+            }
+
+            @Override
+            public void onConnected(boolean reset) {
+                // 구독이 (다시) 시작되기 전에 온 메시지는 밀려오지 않으므로 열린 대화를 한 번 맞춘다
+                // (서버가 다시 떴으면 커서가 맞지 않으니 처음부터)
+                Platform.runLater(() -> {
+                    ListView<LmsClient.ChatMessage> listView = chatMessageList;
+                    if (!userId.equals(currentUserId) || listView == null) {
+                        return;
+                    }
+                    ChatSync sync = (ChatSync) listView.getProperties().get("chatSync");
+                    if (sync != null && sync.partnerId != null) {
+                        String partnerId = sync.partnerId;
+                        if (reset) {
+                            sync.partnerId = null;
+                        }
+                        refreshChatMessages(listView, userId, partnerId);
+                    }
+                });
+            }
+        });
+    }
+
+    // 밀려온 메시지가 열린 대화의 것이면 목록 끝에 붙인다 (조회 중이면 끝난 뒤 커서로 다시 받는다)
+    private void appendPushedChat(LmsClient.ChatMessage message) {
+        ListView<LmsClient.ChatMessage> listView = chatMessageList;
+        if (listView == null) {
+            return;
+        }
+        ChatSync sync = (ChatSync) listView.getProperties().get("chatSync");
+        String partnerId = currentUserId.equals(message.fromId) ? message.toId : message.fromId;
+        if (sync == null || !partnerId.equals(sync.partnerId) || message.id <= sync.cursor) {
+            return;
+        }
+        if (sync.loading) {
+            sync.again = true;
+            return;
         }
+        appendChatMessages(listView, sync, List.of(message));
     }
 
     // -----------------------------
@@ -1754,39 +1893,26 @@ private VBox buildChatPanel() {
 
         if (!"TEACHER".equals(currentRole)) {
             Label msg = new Label("학생 정보는 교사만 조회할 수 있습니다.");
-            msg.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 13px;");
+            msg.getStyleClass().add("muted");
             list.getChildren().add(msg);
         } else {
-            try {
-                List<LmsClient.StudentInfo> students =
-                        LmsClient.fetchStudents(currentUserId);
-                if (students.isEmpty()) {
-                    Label empty = new Label("등록된 학생 정보가 없습니다.");
-                    empty.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 13px;");
-                    list.getChildren().add(empty);
-                } else {
-                    for (LmsClient.StudentInfo s : students) {
-                        HBox row = new HBox(10);
-                        row.setAlignment(Pos.CENTER_LEFT);
-                        row.setPadding(new Insets(6, 0, 6, 0));
-
-                        Label name = new Label(
-                                (s.name == null || s.name.isBlank()) ? s.studentId : s.name + " (" + s.studentId + ")"
-                        );
-                        name.setPrefWidth(250);
-
-                        Label contact = new Label(s.contact != null ? s.contact : "");
-                        contact.setStyle("-fx-text-fill: " + MUTED + "; -fx-font-size: 12px;");
+            List<LmsClient.StudentInfo> saved = LmsClient.savedStudents(currentUserId);
+            boolean[] shown = {saved != null};
+            if (saved != null) {
+                fillStudentList(list, saved);
+            } else {
+                list.getChildren().add(createLoadingLabel("학생 정보를 불러오는 중..."));
+            }
 
-                        row.getChildren().addAll(name, contact);
-                        list.getChildren().add(row);
-                    }
+            loadPanel(root, () -> onFx(LmsClient.fetchStudentsAsync(currentUserId), students -> {
+                shown[0] = true;
+                fillStudentList(list, students);
+            }, e -> {
+                if (!shown[0]) {
+                    list.getChildren().setAll(
+                            createErrorLabel("학생 정보를 불러오는 중 오류가 발생했습니다:\n" + e.getMessage()));
                 }
-            } catch (IOException e) {
-                Label err = new Label("학생 정보를 불러오는 중 오류가 발생했습니다:\n" + e.getMessage());
-                err.setStyle("-fx-text-fill: #b91c1c; -fx-font-size: 12px;");
-                list.getChildren().add(err);
-            }
+            }));
         }
 
         panel.getChildren().add(list);
@@ -1794,6 +1920,212 @@ private VBox buildChatPanel() {
         return root;
     }
 
+    private void fillStudentList(VBox list, List<LmsClient.StudentInfo> students) {
+        list.getChildren().clear();
+        if (students.isEmpty()) {
+            Label empty = new Label("등록된 학생 정보가 없습니다.");
+            empty.getStyleClass().add("muted");
+            list.getChildren().add(empty);
+            return;
+        }
+        for (LmsClient.StudentInfo s : students) {
+            HBox row = new HBox(10);
+            row.setAlignment(Pos.CENTER_LEFT);
+            row.setPadding(new Insets(6, 0, 6, 0));
+
+            Label name = new Label(
+                    (s.name == null || s.name.isBlank()) ? s.studentId : s.name + " (" + s.studentId + ")"
+            );
+            name.setPrefWidth(250);
+
+            Label contact = new Label(s.contact != null ? s.contact : "");
+            contact.getStyleClass().add("caption");
+
+            row.getChildren().addAll(name, contact);
+            list.getChildren().add(row);
+        }
+    }
+
+    // -----------------------------
+    // 비동기 결과 처리 유틸
+    // LmsClient의 *Async 결과를 JavaFX 스레드에서 받는다 (화면 스레드는 I/O를 하지 않음)
+    // -----------------------------
+    private <T> void onFx(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        future.whenCompleteAsync((result, err) -> {
+            if (err == null) {
+                onSuccess.accept(result);
+            } else {
+                onError.accept(unwrap(err));
+            }
+        }, Platform::runLater);
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        while (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    // -----------------------------
+    // 카드 목록 (과제 / 공지 / 영상)
+    // ListView라서 보이는 만큼만 셀(카드)을 만들고 스크롤할 때 그 셀을 재사용한다.
+    // 항목이 수백 개여도 패널을 여는 비용은 화면에 보이는 카드 수만큼이다.
+    // -----------------------------
+    private <T> ListView<T> createCardList(Callback<ListView<T>, ListCell<T>> cellFactory, String loadingText) {
+        ListView<T> listView = new ListView<>();
+        listView.setCellFactory(cellFactory);
+        listView.setPlaceholder(createLoadingLabel(loadingText));
+        listView.setFocusTraversable(false);
+        listView.getStyleClass().add("card-list");
+        VBox.setVgrow(listView, Priority.ALWAYS);
+        return listView;
+    }
+
+    private <T> void fillCardList(ListView<T> listView, List<T> items, String emptyText, Function<T, String> key) {
+        listView.setPlaceholder(createLoadingLabel(emptyText));
+        reconcile(listView.getItems(), items, key);
+        timeCssAndLayout("카드 " + items.size() + "개", listView);
+    }
+
+    /**
+     * target을 fresh와 같게 만들되 바뀐 칸만 건드린다 (id로 같은 항목을 찾는다).
+     * 없어진 항목은 빼고, 새 항목은 제자리에 끼우고, 내용이 바뀐 항목만 set으로 바꾼다.
+     * 목록을 통째로 setAll 하지 않으므로 다시 받아도 스크롤 위치가 그대로이고 바뀐 셀만 다시 그린다.
+     */
+    private static <T> void reconcile(ObservableList<T> target, List<T> fresh, Function<T, String> key) {
+        Set<String> freshKeys = new HashSet<>();
+        for (T item : fresh) {
+            freshKeys.add(key.apply(item));
+        }
+        target.removeIf(item -> !freshKeys.contains(key.apply(item)));
+
+        for (int i = 0; i < fresh.size(); i++) {
+            T item = fresh.get(i);
+            String k = key.apply(item);
+            if (i < target.size() && k.equals(key.apply(target.get(i)))) {
+                if (!item.equals(target.get(i))) {
+                    target.set(i, item);
+                }
+                continue;
+            }
+            // 뒤쪽에 있으면 옮기고, 없으면 새로 끼운다
+            for (int j = i + 1; j < target.size(); j++) {
+                if (k.equals(key.apply(target.get(j)))) {
+                    target.remove(j);
+                    break;
+                }
+            }
+            target.add(i, item);
+        }
+        if (target.size() > fresh.size()) {
+            target.remove(fresh.size(), target.size());
+        }
+    }
+
+    // 보이던 목록이 있으면 (저장해 둔 것이라도) 그대로 두고, 비어 있을 때만 오류를 보여 준다
+    private void showCardListError(ListView<?> listView, String text) {
+        if (listView.getItems().isEmpty()) {
+            listView.setPlaceholder(createErrorLabel(text));
+        }
+    }
+
+    // 카드 한 장을 담는 셀. 카드 노드는 생성자에서 한 번 만들고 updateItem에서는 내용만 바꾼다
+    private abstract static class CardCell<T> extends ListCell<T> {
+        final VBox card;
+
+        CardCell(VBox card) {
+            this.card = card;
+            setPrefWidth(0);   // 목록 폭을 넘지 않게 (카드 안 긴 글은 줄바꿈)
+            getStyleClass().add("card-cell");
+        }
+
+        @Override
+        protected void updateItem(T item, boolean empty) {
+            super.updateItem(item, empty);
+            setText(null);
+            if (empty || item == null) {
+                setGraphic(null);
+                return;
+            }
+            show(item);
+            setGraphic(card);
+        }
+
+        abstract void show(T item);
+    }
+
+    // 다음 펄스를 기다리지 않고 지금 CSS를 적용하고 배치해서 각각 걸린 시간을 찍는다.
+    // ListView 셀은 배치하면서 만들고 스타일을 입히므로 카드의 CSS 비용은 layout 쪽에 잡힌다
+    private static void timeCssAndLayout(String what, Parent node) {
+        if (!CSS_TIMING || node.getScene() == null) {
+            return;
+        }
+        long t0 = System.nanoTime();
+        node.applyCss();
+        long t1 = System.nanoTime();
+        node.layout();
+        long t2 = System.nanoTime();
+        System.err.printf("[css] %s: css %.2f ms, layout %.2f ms%n", what, (t1 - t0) / 1e6, (t2 - t1) / 1e6);
+    }
+
+    private Label createLoadingLabel(String text) {
+        Label l = new Label(text);
+        l.getStyleClass().add("muted");
+        return l;
+    }
+
+    private Label createErrorLabel(String text) {
+        Label l = new Label(text);
+        l.setWrapText(true);
+        l.getStyleClass().add("error-text");
+        return l;
+    }
+
+    // -----------------------------
+    // 쓰기 결과 / 보류 쓰기
+    // -----------------------------
+
+    // 서버에 닿지 않아 보류됐으면 그렇게 알린다 (목록에는 보낸 것처럼 보인다)
+    private void written(LmsClient.Delivery delivery, String title, String msg, String panel) {
+        if (delivery == LmsClient.Delivery.QUEUED) {
+            info("전송 대기", "서버에 연결할 수 없어 변경 내용을 보류했습니다.\n연결되면 순서대로 보냅니다.");
+        } else {
+            info(title, msg);
+        }
+        reloadPanel(panel);
+    }
+
+    // 보류했던 쓰기를 보냈으면 그 목록을 서버 것으로 다시 받는다. 거절됐거나 보내다 끊겼으면 알린다
+    private void outboxDelivered(LmsClient.PendingWrite write, IOException failure) {
+        if (!write.args.get(0).equals(currentUserId)) {
+            return;
+        }
+        if (write.command.equals("CHAT_POST")) {
+            ListView<LmsClient.ChatMessage> listView = chatMessageList;
+            ChatSync sync = (listView == null) ? null : (ChatSync) listView.getProperties().get("chatSync");
+            if (sync != null && write.args.get(1).equals(sync.partnerId)) {
+                showPendingChat(listView, currentUserId, sync.partnerId);
+                refreshChatMessages(listView, currentUserId, sync.partnerId);
+            }
+        } else {
+            String panel = write.command.startsWith("NOTICE_") ? "notices" : "assignments";
+            if (panel.equals(currentPanel)) {
+                reloadPanel(panel);
+            } else {
+                for (CachedPanel p : panels.values()) {
+                    p.stale = true;
+                }
+            }
+        }
+        if (failure instanceof LmsClient.ServerException) {
+            error("전송 실패", "보류했던 변경 내용을 서버가 받아들이지 않았습니다.\n" + failure.getMessage());
+        } else if (failure != null) {
+            error("전송 실패", "보류했던 변경 내용을 보내는 중 연결이 끊겼습니다.\n"
+                    + "서버에 반영됐는지 목록에서 확인해 주세요.\n" + failure.getMessage());
+        }
+    }
+
     // -----------------------------
     // 공통 Alert 유틸
     // -----------------------------
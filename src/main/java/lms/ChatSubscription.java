@@ -0,0 +1,141 @@
+package lms;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 채팅 구독 (CHAT_SUBSCRIBE).
+ * 연결 하나를 구독 전용으로 붙잡아 두고, 서버가 밀어 주는 메시지를 받는 대로 listener에 넘긴다.
+ * 연결이 끊기거나 서버가 PING을 보내지 않아 읽기 시간이 지나면, 받은 마지막 메시지 id를 붙여 다시 구독한다
+ * (서버가 그 뒤 메시지부터 보내 주므로 끊긴 사이 메시지를 놓치지 않는다).
+ * 서버가 구독을 모르면 조용히 멈춘다 (화면은 예전처럼 보낼 때/상대를 고를 때만 새로 받는다).
+ */
+public final class ChatSubscription implements Closeable {
+
+    /** 구독 스레드에서 불린다. 화면을 바꿀 때는 Platform.runLater로 */
+    public interface Listener {
+        void onMessage(LmsClient.ChatMessage message);
+
+        /**
+         * (다시) 구독됐을 때. 끊긴 사이 열려 있던 대화를 맞춰 둘 기회.
+         * reset이면 서버가 다시 떠서 메시지 id가 처음부터 다시 매겨졌다 (갖고 있던 커서는 버린다).
+         */
+        default void onConnected(boolean reset) {
+        }
+    }
+
+    private static final long RETRY_MIN_MILLIS = 500;
+    private static final long RETRY_MAX_MILLIS = 10_000;
+
+    private final ConnectionPool pool;
+    private final String userId;
+    private final Listener listener;
+    private final Thread thread;
+    private volatile ConnectionPool.Connection current;
+    private volatile boolean closed;
+    private long cursor = -1;   // 받은 마지막 메시지 id (아직 구독 전이면 -1: 지금부터)
+
+    ChatSubscription(ConnectionPool pool, String userId, Listener listener) {
+        this.pool = pool;
+        this.userId = userId;
+        this.listener = listener;
+        this.thread = Thread.ofVirtual().name("lms-chat-subscription").start(this::run);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        ConnectionPool.Connection c = current;
+        if (c != null) {
+            c.close();   // 읽고 있던 구독 스레드를 깨운다
+        }
+        thread.interrupt();
+    }
+
+    private void run() {
+        int failures = 0;
+        while (!closed) {
+            try {
+                long before = cursor;
+                if (!subscribe()) {
+                    return;   // 구독을 모르는 서버
+                }
+                failures = 0;
+                listener.onConnected(cursor < before);
+                receive();
+            } catch (IOException e) {
+                // 끊겼으면 잠시 쉬었다가 다시
+            } finally {
+                ConnectionPool.Connection c = current;
+                current = null;
+                if (c != null) {
+                    pool.discard(c);
+                }
+            }
+            if (closed) {
+                return;
+            }
+            try {
+                Thread.sleep(AdaptiveLimiter.backoffMillis(failures++, RETRY_MIN_MILLIS, RETRY_MAX_MILLIS));
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // OK|SUBSCRIBED|lastId 까지. 서버가 모르는 명령이면 false
+    private boolean subscribe() throws IOException {
+        ConnectionPool.Connection c = pool.borrow();
+        current = c;
+        if (closed) {
+            throw new IOException("구독이 닫혔습니다.");
+        }
+        c.writeRequest("CHAT_SUBSCRIBE", userId, cursor < 0 ? "" : cursor);
+        ProtocolLine resp = c.readFields();
+        if (resp == null) {
+            throw new IOException("서버 응답이 없습니다.");
+        }
+        if (resp.fieldIs(0, "OK") && resp.fieldIs(1, "SUBSCRIBED") && resp.fieldCount() >= 3) {
+            long lastId = resp.longField(2);
+            if (cursor < 0 || lastId < cursor) {
+                cursor = lastId;   // 처음이거나 서버가 다시 떴다
+            }
+            return true;
+        }
+        if (resp.isError()) {
+            return false;
+        }
+        throw new IOException("알 수 없는 서버 응답: " + resp);
+    }
+
+    // 끊길 때까지 밀려오는 CHAT 행을 넘긴다 (PING은 연결이 살아 있다는 뜻이라 건너뛴다)
+    private void receive() throws IOException {
+        ConnectionPool.Connection c = current;
+        while (!closed) {
+            if (c.binary) {
+                int rows = c.readFrameHeader();
+                if (rows < 0) {
+                    return;
+                }
+                for (int i = 0; i < rows; i++) {
+                    deliver(c.readRow());
+                }
+            } else {
+                ProtocolLine row = c.readFields();
+                if (row == null) {
+                    return;
+                }
+                deliver(row);
+            }
+        }
+    }
+
+    private void deliver(ProtocolLine row) throws IOException {
+        LmsClient.ChatMessage message = LmsClient.parseChat(row);
+        if (message == null || message.id <= cursor) {
+            return;   // PING이거나 다시 붙으면서 겹친 것
+        }
+        cursor = message.id;
+        listener.onMessage(message);
+    }
+}
@@ -0,0 +1,440 @@
+package lms;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LmsClient가 쓰는 keep-alive 소켓 풀.
+ * 새 연결을 열 때 KEEPALIVE를 한 번 보내 두면, 서버는 END/OK 뒤에도 소켓을 닫지 않고
+ * 다음 명령을 기다린다. 다 쓴 연결은 풀에 돌려놓고 다음 요청에서 재사용한다.
+ */
+class ConnectionPool {
+
+    private static final int CONNECT_TIMEOUT_MS = 5_000;
+    static final int READ_TIMEOUT_MS = 30_000;
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * 풀에서 빌려 쓰는 연결 하나.
+     * 텍스트 줄(또는 바이너리 프레임)과 파일 바이트가 같은 스트림으로 오가므로 Reader 없이 바이트 스트림만 쓴다.
+     */
+    static final class Connection implements Closeable {
+        final Socket socket;
+        final SocketChannel channel;   // 파일 전송 때 FileChannel.transferTo/From 대상 (없으면 null)
+        final ConnectionInputStream in;
+        final OutputStream out;
+        final boolean keepAlive;   // 서버가 KEEPALIVE를 받아 줬는지
+        boolean binary;            // 서버가 KEEPALIVE|BIN1을 받아 줘서 프레임으로 주고받는지
+        final ProtocolLine line = new ProtocolLine();   // 응답 줄 (읽을 때마다 재사용)
+        private int lastRequestId;
+        long lastUsedNanos;
+
+        private Connection(Socket socket, boolean keepAlive) throws IOException {
+            this.socket = socket;
+            this.channel = socket.getChannel();
+            this.in = new ConnectionInputStream(socket.getInputStream(), BUFFER_SIZE);
+            this.out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+            this.keepAlive = keepAlive;
+            this.lastUsedNanos = System.nanoTime();
+        }
+
+        void writeLine(String line) throws IOException {
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+            out.write('\n');
+            out.flush();
+        }
+
+        // 명령 하나를 보낸다. 바이너리 연결이면 프레임, 아니면 예전처럼 명령|인자|... 한 줄
+        void writeRequest(String command, Object... args) throws IOException {
+            queueRequest(command, args);
+            out.flush();
+        }
+
+        // 버퍼에만 쌓고 보내지는 않는다 (파이프라이닝: 몇 개 쌓은 뒤 out.flush())
+        void queueRequest(String command, Object... args) throws IOException {
+            if (binary) {
+                FrameCodec.writeRequest(out, ++lastRequestId, command, args);
+                return;
+            }
+            StringBuilder sb = new StringBuilder(command);
+            for (Object a : args) {
+                sb.append('|').append(a);
+            }
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+            out.write('\n');
+        }
+
+        // 응답 한 줄을 읽어 필드로 나눈다. 연결이 끊겼으면 null
+        // 돌려주는 객체는 연결마다 하나라서 다음 줄을 읽기 전까지만 유효하다
+        ProtocolLine readFields() throws IOException {
+            if (!binary) {
+                return line.read(in) ? line : null;
+            }
+            int rows = readFrameHeader();
+            if (rows < 0) {
+                return null;
+            }
+            if (rows != 1) {
+                throw new IOException("예상치 못한 응답 프레임: 행 " + rows + "개");
+            }
+            return readRow();
+        }
+
+        // 바이너리 연결: 응답 프레임 머리를 읽고 행 수를 돌려준다. 연결이 끊겼으면 -1
+        int readFrameHeader() throws IOException {
+            if (!in.ensureBuffered()) {
+                return -1;
+            }
+            int length = in.readInt();
+            in.readInt();   // 요청ID: 한 연결에서는 보낸 순서대로 응답이 오므로 지금은 확인하지 않는다
+            int rows = in.readInt();
+            if (length < 8 || rows < 0) {
+                throw new IOException("잘못된 응답 프레임 (길이 " + length + ", 행 " + rows + ")");
+            }
+            return rows;
+        }
+
+        // 바이너리 연결: 프레임 안의 행 하나
+        ProtocolLine readRow() throws IOException {
+            line.readBinaryRow(in);
+            return line;
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 버퍼에 이미 들어와 있는 바이트 수를 알 수 있는 입력 버퍼.
+     * 헤더 뒤에 붙어 온 파일 바이트를 먼저 꺼내고 나서 채널로 나머지를 받기 위해 쓴다.
+     * 연결은 한 번에 한 스레드만 쓰므로 락을 걸지 않는다
+     * (BufferedInputStream을 상속하면 synchronized로 읽게 되어 가상 스레드가 캐리어에 묶인다).
+     */
+    static final class ConnectionInputStream extends InputStream {
+        private final InputStream in;
+        // ProtocolLine이 버퍼를 직접 훑는다
+        final byte[] buf;
+        int pos;
+        int count;
+
+        ConnectionInputStream(InputStream in, int size) {
+            this.in = in;
+            this.buf = new byte[size];
+        }
+
+        // 이미 다 받은 바이트(다중화 채널의 응답 프레임 등)를 같은 방식으로 읽기 위한 것
+        ConnectionInputStream(byte[] data, int offset) {
+            this.in = InputStream.nullInputStream();
+            this.buf = data;
+            this.pos = offset;
+            this.count = data.length;
+        }
+
+        // 읽을 바이트가 버퍼에 있게 한다. 연결이 끊겼으면 false
+        boolean ensureBuffered() throws IOException {
+            return pos < count || fill() > 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos >= count && fill() <= 0) {
+                return -1;
+            }
+            return buf[pos++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos >= count) {
+                // 버퍼보다 큰 요청은 복사 없이 바로 읽는다
+                if (len >= buf.length) {
+                    return in.read(b, off, len);
+                }
+                if (fill() <= 0) {
+                    return -1;
+                }
+            }
+            int n = Math.min(len, count - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        int readInt() throws IOException {
+            return (readUnsignedShort() << 16) | readUnsignedShort();
+        }
+
+        int readUnsignedShort() throws IOException {
+            if (count - pos < 2) {
+                return (readByte() << 8) | readByte();
+            }
+            int v = ((buf[pos] & 0xff) << 8) | (buf[pos + 1] & 0xff);
+            pos += 2;
+            return v;
+        }
+
+        void readFully(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = read(b, off, len);
+                if (n < 0) {
+                    throw new EOFException("서버 응답이 도중에 끊어졌습니다.");
+                }
+                off += n;
+                len -= n;
+            }
+        }
+
+        private int readByte() throws IOException {
+            int b = read();
+            if (b < 0) {
+                throw new EOFException("서버 응답이 도중에 끊어졌습니다.");
+            }
+            return b;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (count - pos) + in.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private int fill() throws IOException {
+            pos = 0;
+            count = 0;
+            int n = in.read(buf, 0, buf.length);
+            if (n > 0) {
+                count = n;
+            }
+            return n;
+        }
+    }
+
+    private final String host;
+    private final int port;
+    private final int maxIdle;
+    private final long validateAfterNanos;
+    private volatile long idleTimeoutNanos;
+
+    private final Deque<Connection> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+
+    // 구버전 서버(KEEPALIVE 모름)면 false로 바뀌고, 이후로는 예전처럼 요청마다 새 연결
+    private volatile boolean keepAliveSupported = true;
+
+    /**
+     * @param maxIdle            풀에 보관할 유휴 연결 최대 개수
+     * @param idleTimeoutMillis  이 시간 넘게 놀던 연결은 닫는다 (서버 idle 타임아웃보다 짧게)
+     * @param validateAfterMillis 이 시간 넘게 놀던 연결은 빌려주기 전에 PING으로 확인한다
+     */
+    ConnectionPool(String host, int port, int maxIdle, long idleTimeoutMillis, long validateAfterMillis) {
+        this.host = host;
+        this.port = port;
+        this.maxIdle = maxIdle;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.validateAfterNanos = TimeUnit.MILLISECONDS.toNanos(validateAfterMillis);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lms-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /** 유휴 연결이 있으면 재사용하고, 없으면 새로 연다. */
+    Connection borrow() throws IOException {
+        while (true) {
+            Connection c;
+            synchronized (idle) {
+                c = idle.pollFirst();   // 가장 최근에 쓴 연결부터 (LIFO)
+            }
+            if (c == null) {
+                return open();
+            }
+            long idleFor = System.nanoTime() - c.lastUsedNanos;
+            if (idleFor > idleTimeoutNanos || c.socket.isClosed()) {
+                c.close();
+                continue;
+            }
+            if (idleFor > validateAfterNanos && !ping(c)) {
+                c.close();
+                continue;
+            }
+            return c;
+        }
+    }
+
+    /** 응답을 끝까지 다 읽은 연결만 돌려놓는다. */
+    void release(Connection c) {
+        if (!c.keepAlive || c.socket.isClosed()) {
+            c.close();
+            return;
+        }
+        c.lastUsedNanos = System.nanoTime();
+        synchronized (idle) {
+            if (idle.size() < maxIdle) {
+                idle.addFirst(c);
+                return;
+            }
+        }
+        c.close();
+    }
+
+    /** 오류가 나서 스트림 상태를 믿을 수 없는 연결은 버린다. */
+    void discard(Connection c) {
+        c.close();
+    }
+
+    void evictIdle() {
+        long now = System.nanoTime();
+        synchronized (idle) {
+            Iterator<Connection> it = idle.iterator();
+            while (it.hasNext()) {
+                Connection c = it.next();
+                if (now - c.lastUsedNanos > idleTimeoutNanos || c.socket.isClosed()) {
+                    it.remove();
+                    c.close();
+                }
+            }
+        }
+    }
+
+    void closeAll() {
+        synchronized (idle) {
+            for (Connection c : idle) {
+                c.close();
+            }
+            idle.clear();
+        }
+    }
+
+    /**
+     * 다중화 채널(MuxChannel)용 연결을 풀과 따로 하나 연다.
+     * KEEPALIVE|MUX1에 서버가 MUX1로 답하면 바이너리 프레임 연결을 돌려주고, 모르는 서버면 null.
+     */
+    Connection openMultiplexed() throws IOException {
+        Socket socket = connect();
+        try {
+            Connection c = new Connection(socket, true);
+            c.writeLine("KEEPALIVE|" + FrameCodec.MUX_VERSION);
+            ProtocolLine resp = c.readFields();
+            if (resp != null && resp.fieldIs(0, "OK") && resp.fieldIs(3, FrameCodec.MUX_VERSION)) {
+                adjustIdleTimeout(resp);
+                c.binary = true;
+                socket.setSoTimeout(0);   // 읽기 스레드는 계속 기다리고, 응답 시간은 요청마다 따로 잰다
+                return c;
+            }
+            // MUX1을 모르는 서버만 null (OK로 답했는데 버전이 없거나, KEEPALIVE 자체를 모름)
+            if (resp != null && (resp.fieldIs(0, "OK") || (resp.isError() && resp.fieldIs(1, "UNKNOWN_COMMAND")))) {
+                c.close();
+                return null;
+            }
+            // 응답 없이 끊겼거나 엉뚱한 답: 이번 연결만 실패로 본다
+            throw new IOException("연결 협상 실패: " + (resp == null ? "응답 없음" : resp));
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    // SocketChannel로 열어 두면 업로드 때 커널 zero-copy(transferTo)를 쓸 수 있다.
+    // 블로킹 모드라서 스트림(socket.getInputStream 등)은 예전처럼 그대로 쓴다.
+    // 연결 시간 초과도 ConnectException으로 바꿔 던진다 (요청이 아예 나가지 못했다는 뜻으로 쓴다)
+    private Socket connect() throws IOException {
+        Socket socket = SocketChannel.open().socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            try {
+                socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            } catch (SocketTimeoutException e) {
+                ConnectException ce = new ConnectException("연결 시간 초과: " + host + ":" + port);
+                ce.initCause(e);
+                throw ce;
+            }
+            socket.setSoTimeout(READ_TIMEOUT_MS);
+            return socket;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private Connection open() throws IOException {
+        Socket socket = connect();
+        try {
+            if (!keepAliveSupported) {
+                return new Connection(socket, false);
+            }
+
+            // 바이너리 프레임을 쓸 수 있는지도 같이 묻는다. 구버전 서버는 뒤 필드를 무시하고 텍스트로 답한다
+            Connection c = new Connection(socket, true);
+            c.writeLine("KEEPALIVE|" + FrameCodec.VERSION);
+            ProtocolLine resp = c.readFields();
+            if (resp != null && resp.fieldIs(0, "OK") && resp.fieldIs(1, "KEEPALIVE")) {
+                adjustIdleTimeout(resp);
+                c.binary = resp.fieldIs(3, FrameCodec.VERSION);
+                return c;
+            }
+
+            // 구버전 서버: ERR|UNKNOWN_COMMAND 보내고 소켓을 닫아 버린다 → 새로 연결해서 1회용으로 사용
+            if (resp != null && resp.isError() && resp.fieldIs(1, "UNKNOWN_COMMAND")) {
+                keepAliveSupported = false;
+                c.close();
+                return open();
+            }
+            // 응답 없이 끊겼거나(바쁜 서버가 받자마자 닫음) 엉뚱한 답: 이번 연결만 실패로 본다
+            throw new IOException("연결 협상 실패: " + (resp == null ? "응답 없음" : resp));
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    // OK|KEEPALIVE|60 → 서버가 먼저 끊기 전에 우리가 먼저 정리하도록 타임아웃을 줄인다
+    private void adjustIdleTimeout(ProtocolLine resp) {
+        if (resp.fieldCount() < 3) return;
+        try {
+            long serverSeconds = resp.longField(2);
+            long limit = TimeUnit.SECONDS.toNanos(Math.max(1, serverSeconds - 5));
+            if (limit < idleTimeoutNanos) {
+                idleTimeoutNanos = limit;
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private boolean ping(Connection c) {
+        try {
+            c.writeRequest("PING");
+            ProtocolLine resp = c.readFields();
+            return resp != null && resp.is("PONG");
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package lms;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * 마지막으로 받은 목록을 사용자별 파일에 남겨 두는 디스크 스냅샷.
+ * 로그인하면 이걸로 화면을 먼저 그리고, 서버에서 새로 받는 대로 바꿔 그린다 (서버가 꺼져 있어도 읽을 수는 있다).
+ * <pre>
+ *   파일 = 레코드 *,  레코드 = u32 길이 | u32 CRC32 | u16 키 길이 | 키 | u32 행수 | 행 * 행수
+ * </pre>
+ * 행은 BIN1 응답 행과 같은 모양이라 읽을 때 ProtocolLine.readBinaryRow로 그대로 파싱한다.
+ * 파일에는 덧붙이기만 하고 같은 키는 마지막 레코드가 이긴다. 잘리거나 깨진 레코드를 만나면 그 앞까지만 쓰고
+ * 뒤는 잘라 낸다 (쓰다가 꺼졌을 때). 지난 레코드가 쌓여 파일이 커지면 살아 있는 것만 새 파일에 다시 쓴다.
+ * 캐시일 뿐이라 디스크 오류는 삼키고 없는 셈 친다. 보류 쓰기(Outbox)처럼 잃으면 안 되는 건 sync로 남긴다.
+ */
+final class DiskCache {
+
+    private static final int RECORD_MAX_SIZE = 16 * 1024 * 1024;
+    // 파일이 살아 있는 레코드의 두 배 + 이만큼을 넘으면 다시 쓴다
+    private static final long COMPACT_SLACK = 64 * 1024;
+
+    /** 스냅샷에 넣을 행들을 BIN1 행 모양으로 모은다 */
+    static final class Rows {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int count;
+
+        Rows add(Object... fields) {
+            try {
+                out.writeShort(fields.length);
+                for (Object field : fields) {
+                    byte[] b = String.valueOf(field).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(b.length);
+                    out.write(b);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);   // 메모리에 쓰므로 나지 않는다
+            }
+            count++;
+            return this;
+        }
+
+        // u32 행수 | 행 *
+        byte[] toByteArray() {
+            byte[] rows = bytes.toByteArray();
+            byte[] result = new byte[4 + rows.length];
+            ByteBuffer.wrap(result).putInt(count);
+            System.arraycopy(rows, 0, result, 4, rows.length);
+            return result;
+        }
+    }
+
+    // 가상 스레드에서 부르므로 synchronized 대신 ReentrantLock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, byte[]> records = new LinkedHashMap<>();   // 키 → u32 행수 | 행 *
+    private Path dir;
+    private String userId;   // 지금 열려 있는 사용자 (없으면 null)
+    private FileChannel channel;
+    private long fileBytes;
+    private long liveBytes;
+
+    DiskCache(Path dir) {
+        this.dir = dir;
+    }
+
+    /** 스냅샷 폴더를 바꾼다. null이면 끈다 (열려 있던 파일은 닫는다) */
+    void configure(Path dir) {
+        lock.lock();
+        try {
+            closeLocked();
+            this.dir = dir;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * userId의 스냅샷 파일을 읽어 둔다. 다른 사용자 것이 열려 있으면 닫는다.
+     * create가 false면 파일이 이미 있을 때만 연다. 열렸으면 true
+     */
+    boolean open(String userId, boolean create) {
+        lock.lock();
+        try {
+            if (userId.equals(this.userId)) {
+                return true;
+            }
+            closeLocked();
+            if (dir == null || (!create && !Files.exists(file(userId)))) {
+                return false;
+            }
+            try {
+                Files.createDirectories(dir);
+                channel = FileChannel.open(file(userId),
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                load();
+                this.userId = userId;
+                return true;
+            } catch (IOException e) {
+                closeLocked();
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            closeLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 열려 있는 사용자가 userId이고 key가 있으면 그 행들, 아니면 null */
+    byte[] get(String userId, String key) {
+        lock.lock();
+        try {
+            return userId.equals(this.userId) ? records.get(key) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 행들을 key로 남긴다. 열려 있는 사용자가 아니거나 남아 있는 것과 같으면 쓰지 않는다 */
+    void put(String userId, String key, Rows rows) {
+        put(userId, key, rows, false);
+    }
+
+    /** sync면 디스크에 닿을 때까지 기다린다 (캐시가 아니라 잃으면 안 되는 보류 쓰기용) */
+    void put(String userId, String key, Rows rows, boolean sync) {
+        byte[] data = rows.toByteArray();
+        lock.lock();
+        try {
+            if (!userId.equals(this.userId) || Arrays.equals(records.get(key), data)) {
+                return;
+            }
+            byte[] record = record(key, data);
+            try {
+                writeFully(ByteBuffer.wrap(record), fileBytes);
+                if (sync) {
+                    channel.force(false);
+                }
+                fileBytes += record.length;
+            } catch (IOException e) {
+                closeLocked();
+                return;
+            }
+            byte[] old = records.put(key, data);
+            if (old != null) {
+                liveBytes -= record.length - data.length + old.length;   // 키가 같으니 머리 크기도 같다
+            }
+            liveBytes += record.length;
+            if (fileBytes > liveBytes * 2 + COMPACT_SLACK) {
+                compact();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 처음부터 레코드를 읽는다. CRC가 안 맞거나 잘린 곳부터는 버린다
+    private void load() throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(8);
+        long pos = 0;
+        while (pos + 8 <= size) {
+            header.clear();
+            readFully(header, pos);
+            int length = header.getInt(0);
+            int crc = header.getInt(4);
+            if (length < 6 || length > RECORD_MAX_SIZE || pos + 8 + length > size) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(body, pos + 8);
+            if (crc(body.array()) != crc) {
+                break;
+            }
+            int keyLength = body.getShort(0) & 0xffff;
+            if (2 + keyLength + 4 > length) {
+                break;
+            }
+            String key = new String(body.array(), 2, keyLength, StandardCharsets.UTF_8);
+            byte[] old = records.put(key, Arrays.copyOfRange(body.array(), 2 + keyLength, length));
+            if (old != null) {
+                liveBytes -= 8 + 2 + keyLength + old.length;
+            }
+            liveBytes += 8 + length;
+            pos += 8 + length;
+        }
+        if (pos < size) {
+            channel.truncate(pos);
+        }
+        fileBytes = pos;
+    }
+
+    // 살아 있는 레코드만 임시 파일에 쓰고 바꿔 끼운다
+    private void compact() {
+        Path target = file(userId);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (Map.Entry<String, byte[]> e : records.entrySet()) {
+                    ByteBuffer buf = ByteBuffer.wrap(record(e.getKey(), e.getValue()));
+                    while (buf.hasRemaining()) {
+                        out.write(buf);
+                    }
+                }
+                out.force(false);   // 바꿔 끼운 뒤 꺼져도 빈 파일이 남지 않게
+            }
+            channel.close();
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            channel = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            fileBytes = liveBytes = channel.size();
+        } catch (IOException e) {
+            closeLocked();
+        }
+    }
+
+    private void closeLocked() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+        channel = null;
+        userId = null;
+        records.clear();
+        fileBytes = 0;
+        liveBytes = 0;
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("스냅샷 파일이 도중에 끝났습니다.");
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf, position + buf.position());
+        }
+    }
+
+    private static byte[] record(String key, byte[] rows) {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        byte[] record = new byte[8 + 2 + k.length + rows.length];
+        ByteBuffer buf = ByteBuffer.wrap(record);
+        buf.putInt(2 + k.length + rows.length);
+        buf.putInt(0);
+        buf.putShort((short) k.length);
+        buf.put(k);
+        buf.put(rows);
+        buf.putInt(4, crc(Arrays.copyOfRange(record, 8, record.length)));
+        return record;
+    }
+
+    private static int crc(byte[] b) {
+        CRC32 crc = new CRC32();
+        crc.update(b);
+        return (int) crc.getValue();
+    }
+
+    // 아이디를 그대로 파일 이름으로 쓸 수 없으면 UTF-8 바이트를 16진수로
+    private Path file(String userId) {
+        String name = userId;
+        if (!userId.matches("[A-Za-z0-9_-]{1,64}")) {
+            StringBuilder sb = new StringBuilder("x");
+            for (byte b : userId.getBytes(StandardCharsets.UTF_8)) {
+                sb.append(String.format("%02x", b & 0xff));
+            }
+            name = sb.toString();
+        }
+        return dir.resolve(name + ".snapshot");
+    }
+}
@@ -0,0 +1,106 @@
+package lms;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 바이너리 프레임 프로토콜 (BIN1).
+ * 연결을 열 때 KEEPALIVE|BIN1을 보내고 서버가 OK|KEEPALIVE|초|BIN1로 답하면,
+ * 그 연결은 텍스트 줄 대신 길이가 앞에 붙은 프레임으로 주고받는다 (모두 big-endian).
+ * <pre>
+ *   요청: u32 길이 | u32 요청ID | u16 명령ID | u16 필드수 | (u32 길이 + UTF-8 바이트) * 필드수
+ *   응답: u32 길이 | u32 요청ID | u32 행수 | 행 * 행수,  행 = u16 필드수 | (u32 길이 + UTF-8 바이트) * 필드수
+ * </pre>
+ * 목록 응답은 END 없이 한 프레임에 모든 행이 온다. 파일 바디는 텍스트 때처럼 프레임 뒤에 그대로 붙는다.
+ * 필드 안의 | 나 줄바꿈도 그대로 보낼 수 있고, 서버는 줄을 훑거나 split 하지 않는다.
+ */
+final class FrameCodec {
+
+    static final String VERSION = "BIN1";
+    // BIN1 + 응답 순서 자유: 요청ID로 응답을 짝지으므로 한 연결에서 여러 요청을 동시에 처리한다 (MuxChannel)
+    static final String MUX_VERSION = "MUX1";
+
+    // 서버 lms_server.py의 COMMAND_IDS와 같아야 한다
+    private static final Map<String, Integer> COMMAND_IDS = new HashMap<>();
+
+    static {
+        register(1, "PING");
+        register(2, "LOGIN");
+        register(3, "CHAT_POST");
+        register(4, "CHAT_LIST");
+        register(5, "CHAT_SUBSCRIBE");
+        register(10, "ASSIGN_LIST");
+        register(11, "ASSIGN_SUBMIT_FILE");
+        register(12, "ASSIGN_SUBMISSION_LIST");
+        register(13, "ASSIGN_DOWNLOAD_FILE");
+        register(14, "ASSIGN_CREATE");
+        register(15, "ASSIGN_UPDATE");
+        register(16, "ASSIGN_DELETE");
+        register(20, "NOTICE_LIST");
+        register(21, "NOTICE_CREATE");
+        register(22, "NOTICE_UPDATE");
+        register(23, "NOTICE_DELETE");
+        register(30, "VIDEO_LIST");
+        register(31, "VIDEO_CREATE");
+        register(32, "VIDEO_DELETE");
+        register(33, "VIDEO_WATCH");
+        register(34, "VIDEO_PROGRESS_LIST");
+        register(35, "VIDEO_UPLOAD_FILE");
+        register(40, "STUDENT_LIST");
+        register(41, "HOME_SUMMARY");
+        register(50, "UPLOAD_BEGIN");
+        register(51, "UPLOAD_STATUS");
+        register(52, "UPLOAD_CHUNK");
+        register(53, "UPLOAD_FINISH");
+    }
+
+    private FrameCodec() {
+    }
+
+    private static void register(int id, String command) {
+        COMMAND_IDS.put(command, id);
+    }
+
+    /** 요청 프레임 하나를 out에 쓴다 (flush는 호출한 쪽에서) */
+    static void writeRequest(OutputStream out, int requestId, String command, Object... args) throws IOException {
+        Integer commandId = COMMAND_IDS.get(command);
+        if (commandId == null) {
+            throw new IllegalArgumentException("프레임 명령ID가 없습니다: " + command);
+        }
+        byte[][] fields = new byte[args.length][];
+        int length = 8;
+        for (int i = 0; i < args.length; i++) {
+            fields[i] = String.valueOf(args[i]).getBytes(StandardCharsets.UTF_8);
+            length += 4 + fields[i].length;
+        }
+
+        byte[] header = new byte[12];
+        putInt(header, 0, length);
+        putInt(header, 4, requestId);
+        putShort(header, 8, commandId);
+        putShort(header, 10, args.length);
+        out.write(header);
+
+        byte[] fieldLength = new byte[4];
+        for (byte[] field : fields) {
+            putInt(fieldLength, 0, field.length);
+            out.write(fieldLength);
+            out.write(field);
+        }
+    }
+
+    private static void putInt(byte[] b, int off, int v) {
+        b[off] = (byte) (v >>> 24);
+        b[off + 1] = (byte) (v >>> 16);
+        b[off + 2] = (byte) (v >>> 8);
+        b[off + 3] = (byte) v;
+    }
+
+    private static void putShort(byte[] b, int off, int v) {
+        b[off] = (byte) (v >>> 8);
+        b[off + 1] = (byte) v;
+    }
+}
@@ -0,0 +1,180 @@
+package lms;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 목록 조회 결과 캐시 (명령 + 사용자별).
+ * ttl 안에 같은 목록을 다시 요청하면 서버에 묻지 않고 돌려주고, maxEntries를 넘으면 가장 오래 안 쓴 것부터 버린다.
+ * 쓰기 명령이 성공하든 실패하든 관련 명령의 항목을 모든 사용자에 대해 만료시킨다
+ * (교사가 공지를 올리면 학생들의 NOTICE_LIST도 바뀌므로).
+ * 만료된 항목도 서버가 준 목록 버전이 있으면 남겨 두고, 다음 조회 때 그 버전으로 조건부 요청을 보낸다.
+ */
+final class ListCache {
+
+    private static final class Entry {
+        final List<?> items;
+        final String version;   // 서버 목록 버전 (구버전 서버면 null)
+        final long expiresAt;
+
+        Entry(List<?> items, String version, long expiresAt) {
+            this.items = items;
+            this.version = version;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // 가상 스레드에서 부르므로 synchronized 대신 ReentrantLock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // 무효화 횟수: 조회 도중에 무효화가 끼면 그 결과는 넣지 않는다 (지난 값이 다시 들어가지 않게)
+    private long generation;
+    private long ttlNanos;
+    private int maxEntries;
+
+    ListCache(long ttlMillis, int maxEntries) {
+        configure(ttlMillis, maxEntries);
+    }
+
+    void configure(long ttlMillis, int maxEntries) {
+        lock.lock();
+        try {
+            this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+            this.maxEntries = maxEntries;
+            trim();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 살아 있는 항목이면 복사본, 없거나 만료됐으면 null */
+    @SuppressWarnings("unchecked")
+    <T> List<T> get(String command, String userId) {
+        lock.lock();
+        try {
+            String key = key(command, userId);
+            Entry e = entries.get(key);
+            if (e == null) {
+                return null;
+            }
+            if (System.nanoTime() - e.expiresAt > 0) {
+                if (e.version == null) {
+                    entries.remove(key);
+                }
+                return null;
+            }
+            return new ArrayList<>((List<T>) e.items);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 만료됐어도 남아 있는 항목의 목록 버전 (조건부 요청용). 없으면 null */
+    String version(String command, String userId) {
+        lock.lock();
+        try {
+            Entry e = entries.get(key(command, userId));
+            return e == null ? null : e.version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 서버가 NOT_MODIFIED로 답했을 때: 남아 있던 목록을 다시 ttl만큼 살리고 복사본을 돌려준다.
+     * 그 사이 밀려났으면 null. 도중에 무효화가 끼었으면 목록은 돌려주되 살리지는 않는다.
+     */
+    @SuppressWarnings("unchecked")
+    <T> List<T> revalidate(String command, String userId, long generation) {
+        lock.lock();
+        try {
+            String key = key(command, userId);
+            Entry e = entries.get(key);
+            if (e == null) {
+                return null;
+            }
+            if (generation == this.generation) {
+                entries.put(key, new Entry(e.items, e.version, System.nanoTime() + ttlNanos));
+            }
+            return new ArrayList<>((List<T>) e.items);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 조회 시작 전에 받아 두고 put에 넘긴다 */
+    long generation() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void put(String command, String userId, long generation, List<?> items, String version) {
+        lock.lock();
+        try {
+            if (ttlNanos <= 0 || maxEntries <= 0 || generation != this.generation) {
+                return;
+            }
+            entries.put(key(command, userId), new Entry(new ArrayList<>(items), version, System.nanoTime() + ttlNanos));
+            trim();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void invalidate(String... commands) {
+        lock.lock();
+        try {
+            generation++;
+            long now = System.nanoTime();
+            for (String command : commands) {
+                String prefix = command + "|";
+                Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, Entry> me = it.next();
+                    if (!me.getKey().startsWith(prefix)) {
+                        continue;
+                    }
+                    Entry e = me.getValue();
+                    if (e.version == null) {
+                        it.remove();
+                    } else {
+                        me.setValue(new Entry(e.items, e.version, now));   // 만료만 (버전으로 다시 확인)
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void clear() {
+        lock.lock();
+        try {
+            generation++;
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void trim() {
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() > Math.max(0, maxEntries) && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static String key(String command, String userId) {
+        return command + "|" + userId;
+    }
+}
@@ -1,14 +1,44 @@
 package lms;
 
 import java.io.*;
-import java.net.Socket;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.zip.CRC32;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
 
 /**
  * 서버와 TCP로 통신하는 헬퍼 클래스.
  * 화면(App.java)은 이 메서드들을 호출해서 문자열 기반 프로토콜만 주고받는다.
+ * 소켓은 ConnectionPool에서 빌려 쓰고, 응답을 다 읽으면 풀에 돌려놓아 다음 요청에서 재사용한다.
+ * 목록 조회·채팅·공지 같은 작은 명령은 서버가 지원하면 MuxChannel 연결 하나로 동시에 주고받는다.
  */
 public class LmsClient {
 
@@ -17,6 +47,68 @@ public class LmsClient {
     private static final String SERVER_HOST = "127.0.0.1";
     private static final int SERVER_PORT = 6000;
 
+    // keep-alive 연결 풀 (유휴 8개까지, 30초 놀면 정리, 5초 넘게 놀았으면 PING으로 확인)
+    private static final ConnectionPool POOL =
+            new ConnectionPool(SERVER_HOST, SERVER_PORT, 8, 30_000, 5_000);
+
+    // 비동기 API용: 요청 하나당 가상 스레드 하나 (블로킹 소켓 I/O를 그대로 써도 부담이 없다)
+    private static final ExecutorService IO_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    // 이어 올리기 업로드: 조각 크기, 끊겼을 때 다시 붙는 횟수, 조각 하나 재전송 횟수
+    private static final int UPLOAD_CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int UPLOAD_MAX_RESUMES = 5;
+    private static final int UPLOAD_MAX_CHUNK_RETRIES = 3;
+
+    // 영상 업로드 기본 동시 연결 수 (풀의 유휴 연결 최대 개수보다 작게)
+    private static final int VIDEO_UPLOAD_CONNECTIONS = 4;
+
+    // 구버전 서버(UPLOAD_* 모름)면 false로 바뀌고, 이후로는 예전처럼 한 번에 보낸다
+    private static volatile boolean resumableUploadSupported = true;
+
+    // 목록 조회 캐시 (기본 30초, 64개). 탭을 오갈 때 같은 목록을 매번 다시 받지 않는다
+    private static final ListCache LIST_CACHE = new ListCache(30_000, 64);
+
+    // 요청 등급별 동시 실행 수 (화면 16, 뒤에서 새로 받기 4, 대용량 전송 2). 전송이 자리를 다 써도 화면 요청은 막히지 않는다
+    private static final RequestScheduler SCHEDULER = new RequestScheduler(16, 4, 2);
+    // 대용량 전송은 이만큼씩 끊어 보내며 그 사이 화면 요청에 비켜 준다
+    private static final int TRANSFER_SLICE = 256 * 1024;
+    // inBackground 안에서 부른 *Async 요청의 등급 (부른 스레드 기준)
+    private static final ThreadLocal<Priority> SUBMIT_PRIORITY = ThreadLocal.withInitial(() -> Priority.INTERACTIVE);
+
+    // 서버로 나가는 요청 수 (처음 8, 1~32 사이에서 서버 상태에 맞춰 조절). 파일 전송은 재기만 한다
+    private static final AdaptiveLimiter LIMITER = new AdaptiveLimiter(8, 1, 32);
+    // 네트워크 오류면 다시 보내 보는 횟수 (처음 포함)와 그 사이 쉬는 간격 (100ms부터 두 배씩, 최대 2초, 흔들어서)
+    private static final int REQUEST_MAX_ATTEMPTS = 3;
+    private static final long RETRY_BASE_MILLIS = 100;
+    private static final long RETRY_CAP_MILLIS = 2_000;
+    // 다시 보내도 결과가 같은 (서버 상태를 바꾸지 않는) 명령. 나머지는 연결부터 안 됐을 때만 다시 보낸다
+    private static final Set<String> IDEMPOTENT_COMMANDS = Set.of(
+            "PING", "CHAT_LIST", "ASSIGN_LIST", "ASSIGN_SUBMISSION_LIST", "NOTICE_LIST", "VIDEO_LIST",
+            "VIDEO_PROGRESS_LIST", "STUDENT_LIST", "HOME_SUMMARY", "UPLOAD_STATUS");
+
+    // 동시에 들어온 같은 조회는 한 번만 보낸다 (홈·과제 탭이 같은 목록을 거의 동시에 부를 때 등)
+    private static final SingleFlight FLIGHTS = new SingleFlight();
+
+    // 마지막으로 받은 목록의 디스크 스냅샷 (~/.lms-client). 로그인하면 서버 응답을 기다리지 않고 이걸로 먼저 그린다
+    private static final DiskCache DISK_CACHE = new DiskCache(Path.of(System.getProperty("user.home"), ".lms-client"));
+    // 서버에 닿지 않아 못 보낸 쓰기(공지/과제/채팅). 스냅샷 파일에 같이 남기고 연결되면 순서대로 보낸다
+    private static final Outbox OUTBOX = new Outbox(DISK_CACHE, LmsClient::replayWrite);
+    // 목록에 얹은 보류 항목의 날짜/마감 자리에 보이는 글
+    private static final String PENDING_LABEL = "전송 대기 중";
+    // 스냅샷에 남기는 대화별 최근 메시지 수
+    private static final int SNAPSHOT_CHAT_MESSAGES = 50;
+    // 오프라인 로그인 확인용 비밀번호 해시 (PBKDF2) 반복 횟수
+    private static final int LOGIN_HASH_ITERATIONS = 60_000;
+
+    // 구버전 서버(CHAT_LIST에 afterId를 모름)면 false로 바뀌고 이후로는 대화 전체를 받는다
+    private static volatile boolean chatCursorSupported = true;
+
+    // 구버전 서버(CHAT_LIST 페이지 조회를 모름)면 false로 바뀌고 이후로는 대화 전체를 한 번에 받는다
+    private static volatile boolean chatPagingSupported = true;
+
+    // 구버전 서버(목록 버전 모름: 인자가 하나 더 붙으면 BAD_REQUEST)면 false로 바뀌고 이후로는 전체 목록만 받는다
+    private static volatile boolean listVersionSupported = true;
+
     // ==========================
     //  데이터 모델
     // ==========================
@@ -26,12 +118,18 @@ public class LmsClient {
         public final String role;         // "STUDENT" / "TEACHER"
         public final String displayName;  // ex) "김민상"
         public final String errorCode;    // ex) "INVALID_CREDENTIALS", null if success
+        public final boolean offline;     // 서버에 닿지 않아 스냅샷에 남은 로그인으로 들어왔으면 true
 
         public LoginResult(boolean success, String role, String displayName, String errorCode) {
+            this(success, role, displayName, errorCode, false);
+        }
+
+        public LoginResult(boolean success, String role, String displayName, String errorCode, boolean offline) {
             this.success = success;
             this.role = role;
             this.displayName = displayName;
             this.errorCode = errorCode;
+            this.offline = offline;
         }
     }
 
@@ -47,6 +145,19 @@ public class LmsClient {
             this.due = due;
             this.summary = summary;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Assignment a)) return false;
+            return Objects.equals(id, a.id) && Objects.equals(title, a.title)
+                    && Objects.equals(due, a.due) && Objects.equals(summary, a.summary);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, title, due, summary);
+        }
     }
 
     public static class NoticeItem {
@@ -61,6 +172,19 @@ public class LmsClient {
             this.content = content;
             this.createdAt = createdAt;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof NoticeItem n)) return false;
+            return Objects.equals(id, n.id) && Objects.equals(title, n.title)
+                    && Objects.equals(content, n.content) && Objects.equals(createdAt, n.createdAt);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, title, content, createdAt);
+        }
     }
 
     public static class VideoItem {
@@ -73,6 +197,18 @@ public class LmsClient {
         this.title = title;
         this.weekLabel = weekLabel;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof VideoItem v)) return false;
+        return Objects.equals(id, v.id) && Objects.equals(title, v.title) && Objects.equals(weekLabel, v.weekLabel);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, title, weekLabel);
+    }
 }
 
     public static class SubmissionInfo {
@@ -89,6 +225,73 @@ public class LmsClient {
         }
     }
 
+    /**
+     * 서버가 ERR|... 로 거절한 경우.
+     * 응답은 끝까지 읽었으므로 연결 자체는 멀쩡하다 (네트워크 오류와 구분용).
+     */
+    public static class ServerException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public final String errorCode;   // ex) "DB_ERROR", "UNKNOWN_COMMAND"
+
+        public ServerException(String prefix, String responseLine) {
+            super(prefix + ": " + responseLine);
+            String[] parts = responseLine.split("\\|", 3);
+            this.errorCode = (parts.length >= 2) ? parts[1] : "";
+        }
+    }
+
+    /**
+     * 파일 업로드 결과. 바디 전송 시작부터 서버의 완료 응답까지 잰 값이다.
+     * 이어 올리기였다면 bytes에는 이번에 실제로 보낸 바이트만 들어간다.
+     */
+    public static class TransferStats {
+        public final long bytes;
+        public final long elapsedNanos;
+        public final boolean zeroCopy;   // FileChannel.transferTo 경로로 보냈는지
+
+        public TransferStats(long bytes, long elapsedNanos, boolean zeroCopy) {
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+            this.zeroCopy = zeroCopy;
+        }
+
+        public double bytesPerSecond() {
+            return elapsedNanos <= 0 ? 0 : bytes * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        public double megabytesPerSecond() {
+            return bytesPerSecond() / (1024.0 * 1024.0);
+        }
+    }
+
+    /**
+     * 홈 화면용 요약. 개수가 -1이면 해당 목록 조회에 실패한 것.
+     * recent* 목록에는 앞쪽 몇 개만 들어 있다.
+     */
+    public static class HomeSummary {
+        public final int assignmentCount;
+        public final int noticeCount;
+        public final int videoCount;
+        public final int currentWeek;     // 과제 제목 기준 최대 주차, 과제가 없으면 0
+        public final List<Assignment> recentAssignments;
+        public final List<NoticeItem> recentNotices;
+        public final List<VideoItem> recentVideos;
+
+        public HomeSummary(int assignmentCount, int noticeCount, int videoCount, int currentWeek,
+                           List<Assignment> recentAssignments,
+                           List<NoticeItem> recentNotices,
+                           List<VideoItem> recentVideos) {
+            this.assignmentCount = assignmentCount;
+            this.noticeCount = noticeCount;
+            this.videoCount = videoCount;
+            this.currentWeek = currentWeek;
+            this.recentAssignments = recentAssignments;
+            this.recentNotices = recentNotices;
+            this.recentVideos = recentVideos;
+        }
+    }
+
     public static class StudentInfo {
         public final String studentId;
         public final String name;
@@ -101,38 +304,255 @@ public class LmsClient {
         }
     }
 
+    /** 채팅 메시지 하나. id가 같으면 같은 메시지 (구버전 서버의 대화 전체 조회면 id, sentAt이 0) */
+    public static class ChatMessage {
+        public final long id;
+        public final String fromId;
+        public final String toId;
+        public final String body;
+        public final long sentAt;   // 서버가 받은 시각 (epoch 밀리초)
+
+        public ChatMessage(long id, String fromId, String toId, String body, long sentAt) {
+            this.id = id;
+            this.fromId = fromId;
+            this.toId = toId;
+            this.body = body;
+            this.sentAt = sentAt;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ChatMessage m)) return false;
+            return id == m.id && sentAt == m.sentAt && fromId.equals(m.fromId) && toId.equals(m.toId) && body.equals(m.body);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(id) * 31 + body.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return fromId + " → " + toId + ": " + body;
+        }
+    }
+
+    /** 채팅 증분 조회 결과 */
+    public static class ChatDelta {
+        public final List<ChatMessage> messages;
+        public final long cursor;             // 다음 조회 때 넘길 마지막 메시지 id
+        public final boolean full;            // 구버전 서버라 대화 전체가 왔으면 true (목록을 통째로 바꾼다)
+
+        public ChatDelta(List<ChatMessage> messages, long cursor, boolean full) {
+            this.messages = messages;
+            this.cursor = cursor;
+            this.full = full;
+        }
+    }
+
+    /** 채팅 페이지 조회 결과 (오래된 것부터) */
+    public static class ChatPage {
+        public final List<ChatMessage> messages;
+        public final long oldestId;           // 다음(더 앞) 페이지를 받을 때 beforeId로 넘긴다
+        public final long newestId;           // 이후 증분 조회(fetchChatSince)의 커서
+        public final boolean hasOlder;        // 더 앞 메시지가 남아 있을 수 있으면 true
+
+        public ChatPage(List<ChatMessage> messages, long oldestId, long newestId, boolean hasOlder) {
+            this.messages = messages;
+            this.oldestId = oldestId;
+            this.newestId = newestId;
+            this.hasOlder = hasOlder;
+        }
+    }
+
+    /** 명령 하나의 측정값 (commandMetrics). 지연은 밀리초, avg는 최근 값에 무게를 둔 이동 평균 */
+    public static class CommandMetrics {
+        public final String command;
+        public final long calls;
+        public final long errors;         // 네트워크 오류 + 서버 거절(ERR)
+        public final double avgMillis;
+        public final double maxMillis;
+
+        public CommandMetrics(String command, long calls, long errors, double avgMillis, double maxMillis) {
+            this.command = command;
+            this.calls = calls;
+            this.errors = errors;
+            this.avgMillis = avgMillis;
+            this.maxMillis = maxMillis;
+        }
+
+        public double errorRate() {
+            return calls == 0 ? 0 : (double) errors / calls;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s calls=%d errors=%d avg=%.1fms max=%.1fms", command, calls, errors, avgMillis, maxMillis);
+        }
+    }
+
+    /** 조건부 목록 조회 결과. 서버 목록이 knownVersion 그대로면 items == null */
+    public static class VersionedList<T> {
+        public final List<T> items;
+        public final String version;      // 다음 조회 때 넘길 버전 (구버전 서버면 null)
+
+        public VersionedList(List<T> items, String version) {
+            this.items = items;
+            this.version = version;
+        }
+
+        public boolean notModified() {
+            return items == null;
+        }
+    }
+
+    /**
+     * 요청 등급. 등급마다 동시에 도는 수가 따로 정해져 있다.
+     * INTERACTIVE: 사용자가 보고 기다리는 요청 (기본), BACKGROUND: 보여 둔 화면을 뒤에서 새로 받기·보류 쓰기 보내기,
+     * BULK: 파일 제출/내려받기, 영상 업로드
+     */
+    public enum Priority {
+        INTERACTIVE, BACKGROUND, BULK
+    }
+
+    /** 쓰기 결과: 서버가 받았거나(SENT), 서버에 닿지 않아 보류해 두고 연결되면 보낸다(QUEUED) */
+    public enum Delivery {
+        SENT, QUEUED
+    }
+
+    /**
+     * 보내지 못하고 보류 중인 쓰기. 명령과 인자는 서버에 보낼 그대로다 (args[0]은 보내는 사용자).
+     * 아직 안 보낸 등록은 서버 id가 없어서 목록에 임시 id(pendingId: "~" + seq)로 보인다.
+     */
+    public static class PendingWrite {
+        public final long seq;
+        public final String command;
+        public final List<String> args;
+
+        public PendingWrite(long seq, String command, String... args) {
+            this.seq = seq;
+            this.command = command;
+            this.args = List.of(args);
+        }
+
+        public boolean isCreate() {
+            return command.endsWith("_CREATE");
+        }
+
+        public String pendingId() {
+            return "~" + seq;
+        }
+    }
+
+    /** 보류 쓰기를 보낸 뒤 보내는 스레드에서 불린다. 화면을 바꿀 때는 Platform.runLater로 */
+    public interface OutboxListener {
+        /**
+         * failure가 null이 아니면 보내지 못하고 버렸다.
+         * ServerException이면 서버가 거절했고, 아니면 보내다 끊겨 서버가 받았는지 알 수 없다 (다시 보내지 않는다)
+         */
+        void onDelivered(PendingWrite write, IOException failure);
+    }
+
     // ==========================
     //  로그인
     // ==========================
 
+    /**
+     * 로그인. 성공하면 그 사용자의 스냅샷을 열어 둔다 (saved* 로 바로 꺼내 쓸 수 있다).
+     * 서버에 닿지 않으면, 전에 같은 비밀번호로 로그인해 스냅샷이 남아 있을 때만 오프라인으로 들어간다.
+     */
     public static LoginResult login(String userId, String password) throws IOException {
-        try (
-                Socket socket = new Socket(SERVER_HOST, SERVER_PORT);
-                BufferedWriter writer = new BufferedWriter(
-                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
-        ) {
-            String requestLine = "LOGIN|" + userId + "|" + password + "\n";
-            writer.write(requestLine);
-            writer.flush();
-
-            String responseLine = reader.readLine();
-            if (responseLine == null) {
+        LoginResult result;
+        try {
+            result = loginOnline(userId, password);
+        } catch (IOException e) {
+            // 서버에 닿았다면(거절, 응답 도중 끊김·시간 초과 등) 오프라인으로 넘어가지 않는다
+            if (!isUnreachable(e)) {
+                throw e;
+            }
+            LoginResult offline = offlineLogin(userId, password);
+            if (offline == null) {
+                throw e;
+            }
+            openOutbox(userId);
+            return offline;
+        }
+        if (result.success) {
+            DISK_CACHE.open(userId, true);
+            openOutbox(userId);
+            IO_EXECUTOR.execute(() -> saveLogin(userId, password, result));   // 해시 계산은 로그인 응답을 늦추지 않게 뒤에서
+        }
+        return result;
+    }
+
+    private static LoginResult loginOnline(String userId, String password) throws IOException {
+        return request(resp -> {
+            if (resp == null) {
                 throw new IOException("서버 응답이 없습니다.");
             }
 
-            String[] parts = responseLine.split("\\|");
-            if (parts.length >= 1 && "OK".equals(parts[0]) && parts.length == 3) {
-                String role = parts[1];
-                String displayName = parts[2];
+            if (resp.fieldIs(0, "OK") && resp.fieldCount() == 3) {
+                String role = resp.field(1);
+                String displayName = resp.field(2);
                 return new LoginResult(true, role, displayName, null);
-            } else if (parts.length >= 2 && "ERR".equals(parts[0])) {
-                String err = parts[1];
+            } else if (resp.isError()) {
+                String err = resp.field(1);
                 return new LoginResult(false, null, null, err);
             } else {
-                throw new IOException("알 수 없는 서버 응답: " + responseLine);
+                throw new IOException("알 수 없는 서버 응답: " + resp);
+            }
+        }, "LOGIN", userId, password);
+    }
+
+    // LOGIN|role|displayName|salt|hash  (salt, hash는 Base64)
+    private static void saveLogin(String userId, String password, LoginResult result) {
+        byte[] salt = new byte[16];
+        new SecureRandom().nextBytes(salt);
+        Base64.Encoder b64 = Base64.getEncoder();
+        DISK_CACHE.put(userId, "LOGIN", new DiskCache.Rows()
+                .add("LOGIN", result.role, result.displayName, b64.encodeToString(salt),
+                        b64.encodeToString(passwordHash(password, salt))));
+    }
+
+    private static LoginResult offlineLogin(String userId, String password) {
+        if (!DISK_CACHE.open(userId, false)) {
+            return null;
+        }
+        LoginResult[] result = {null};
+        forEachSavedRow(userId, "LOGIN", row -> {
+            if (row.fieldCount() == 5 && row.fieldIs(0, "LOGIN")) {
+                Base64.Decoder b64 = Base64.getDecoder();
+                byte[] expected = b64.decode(row.field(4));
+                if (MessageDigest.isEqual(expected, passwordHash(password, b64.decode(row.field(3))))) {
+                    result[0] = new LoginResult(true, row.field(1), row.field(2), null, true);
+                }
             }
+        });
+        if (result[0] == null) {
+            DISK_CACHE.close();   // 비밀번호가 다르면 스냅샷도 보여 주지 않는다
+        }
+        return result[0];
+    }
+
+    // 지난번에 못 보낸 쓰기가 스냅샷에 남아 있으면 이어서 보낸다
+    private static void openOutbox(String userId) {
+        List<PendingWrite> saved = new ArrayList<>();
+        forEachSavedRow(userId, "OUTBOX", row -> {
+            PendingWrite w = Outbox.parse(row);
+            if (w != null) {
+                saved.add(w);
+            }
+        });
+        OUTBOX.open(userId, saved);
+    }
+
+    private static byte[] passwordHash(String password, byte[] salt) {
+        try {
+            PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, LOGIN_HASH_ITERATIONS, 256);
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);   // JDK에 늘 있는 알고리즘
         }
     }
 
@@ -140,162 +560,238 @@ public class LmsClient {
     //  채팅
     // ==========================
 
-    // CHAT_POST
-    public static boolean sendChat(String fromId, String toId, String message) throws IOException {
-        try (
-                Socket socket = new Socket(SERVER_HOST, SERVER_PORT);
-                BufferedWriter writer = new BufferedWriter(
-                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
-        ) {
-            String requestLine = "CHAT_POST|" + fromId + "|" + toId + "|" + message + "\n";
-            writer.write(requestLine);
-            writer.flush();
-
-            String responseLine = reader.readLine();
-            if (responseLine == null) {
+    // CHAT_POST. 서버에 닿지 않으면 보류해 두고 QUEUED (pendingChat으로 보인다)
+    public static Delivery sendChat(String fromId, String toId, String message) throws IOException {
+        return sendWrite("CHAT_POST", fromId, toId, message);
+    }
+
+    private static void postChat(String fromId, String toId, String message) throws IOException {
+        request(resp -> {
+            if (resp == null) {
                 throw new IOException("서버 응답이 없습니다.");
             }
 
-            if ("OK".equals(responseLine)) {
-                return true;
-            } else if (responseLine.startsWith("ERR|")) {
-                throw new IOException("채팅 전송 실패: " + responseLine);
+            if (resp.is("OK")) {
+                return null;
+            } else if (resp.isError()) {
+                throw new ServerException("채팅 전송 실패", resp.toString());
             } else {
-                throw new IOException("알 수 없는 서버 응답: " + responseLine);
+                throw new IOException("알 수 없는 서버 응답: " + resp);
             }
-        }
+        }, "CHAT_POST", fromId, toId, message);
     }
 
     // CHAT_LIST
-    public static List<String> fetchChat(String userA, String userB) throws IOException {
-        List<String> messages = new ArrayList<>();
-
-        try (
-                Socket socket = new Socket(SERVER_HOST, SERVER_PORT);
-                BufferedWriter writer = new BufferedWriter(
-                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
-        ) {
-            String requestLine = "CHAT_LIST|" + userA + "|" + userB + "\n";
-            writer.write(requestLine);
-            writer.flush();
+    public static List<ChatMessage> fetchChat(String userA, String userB) throws IOException {
+        // MSG|from|to|message
+        return fetchList(row -> {
+            if (row.fieldCount() >= 4 && row.fieldIs(0, "MSG")) {
+                return new ChatMessage(0, row.field(1), row.field(2), row.rest(3), 0);
+            }
+            return null;
+        }, "CHAT_LIST", userA, userB);
+    }
 
-            while (true) {
-                String line = reader.readLine();
-                if (line == null) {
-                    throw new IOException("서버 응답이 도중에 끊어졌습니다.");
-                }
-                if ("END".equals(line)) {
-                    break;
+    /**
+     * afterId(처음이면 0)보다 뒤에 온 메시지만 가져온다. 돌려준 cursor를 다음 호출에 넘긴다.
+     * 서버가 커서를 모르면 대화 전체를 돌려주고 full=true.
+     */
+    public static ChatDelta fetchChatSince(String userA, String userB, long afterId) throws IOException {
+        return FLIGHTS.run(SingleFlight.key("CHAT_LIST", userA, userB, "since", afterId),
+                () -> loadChatSince(userA, userB, afterId));
+    }
+
+    private static ChatDelta loadChatSince(String userA, String userB, long afterId) throws IOException {
+        if (chatCursorSupported) {
+            long[] cursor = {afterId};
+            List<ChatMessage> messages = new ArrayList<>();
+            try {
+                fetchRows(row -> {
+                    ChatMessage m = parseChat(row);
+                    if (m != null) {
+                        cursor[0] = Math.max(cursor[0], m.id);
+                        messages.add(m);
+                    }
+                }, "CHAT_LIST", userA, userB, afterId);
+                return new ChatDelta(messages, cursor[0], false);
+            } catch (ServerException e) {
+                if (!"BAD_REQUEST".equals(e.errorCode)) {
+                    throw e;
                 }
+                chatCursorSupported = false;
+            }
+        }
+        return new ChatDelta(fetchChat(userA, userB), 0, true);
+    }
+
+    /**
+     * beforeId(0이면 가장 최근)보다 앞 메시지 중 최근 limit개를 가져온다.
+     * 대화를 열 때는 최근 한 페이지만 받고, 위로 올릴 때 oldestId를 beforeId로 넘겨 그 앞 페이지를 받는다.
+     * 서버가 페이지 조회를 모르면 대화 전체를 한 페이지로 돌려준다 (hasOlder=false).
+     */
+    public static ChatPage fetchChatPage(String userA, String userB, long beforeId, int limit) throws IOException {
+        return FLIGHTS.run(SingleFlight.key("CHAT_LIST", userA, userB, "page", beforeId, limit),
+                () -> loadChatPage(userA, userB, beforeId, limit));
+    }
 
-                String[] parts = line.split("\\|", 4);
-                if (parts.length == 4 && "MSG".equals(parts[0])) {
-                    String fromId = parts[1];
-                    String toId = parts[2];
-                    String msg = parts[3];
-                    messages.add(fromId + " → " + toId + ": " + msg);
+    private static ChatPage loadChatPage(String userA, String userB, long beforeId, int limit) throws IOException {
+        ChatPage page = fetchChatPageUncached(userA, userB, beforeId, limit);
+        if (beforeId <= 0) {
+            List<ChatMessage> recent = page.messages;
+            saveList(userA, "CHAT|" + userB, recent.subList(Math.max(0, recent.size() - SNAPSHOT_CHAT_MESSAGES), recent.size()),
+                    LmsClient::writeChat);
+        }
+        return page;
+    }
+
+    private static ChatPage fetchChatPageUncached(String userA, String userB, long beforeId, int limit) throws IOException {
+        if (chatPagingSupported) {
+            long[] ids = {Long.MAX_VALUE, 0};
+            List<ChatMessage> messages = new ArrayList<>();
+            try {
+                fetchRows(row -> {
+                    ChatMessage m = parseChat(row);
+                    if (m != null) {
+                        ids[0] = Math.min(ids[0], m.id);
+                        ids[1] = Math.max(ids[1], m.id);
+                        messages.add(m);
+                    }
+                }, "CHAT_LIST", userA, userB, "", beforeId > 0 ? beforeId : "", limit);
+                if (messages.isEmpty()) {
+                    return new ChatPage(messages, beforeId, 0, false);
+                }
+                return new ChatPage(messages, ids[0], ids[1], messages.size() >= limit);
+            } catch (ServerException e) {
+                if (!"BAD_REQUEST".equals(e.errorCode)) {
+                    throw e;
                 }
+                chatPagingSupported = false;
             }
         }
+        if (beforeId > 0) {
+            return new ChatPage(new ArrayList<>(), beforeId, 0, false);   // 이미 전체를 받았다
+        }
+        ChatDelta all = fetchChatSince(userA, userB, 0);
+        return new ChatPage(all.messages, 0, all.cursor, false);
+    }
+
+    /**
+     * CHAT_SUBSCRIBE: userId가 보내거나 받은 메시지를 서버가 올라오는 즉시 밀어 준다.
+     * 연결이 끊기면 알아서 다시 붙는다. 다 쓰면 close().
+     */
+    public static ChatSubscription subscribeChat(String userId, ChatSubscription.Listener listener) {
+        return new ChatSubscription(POOL, userId, listener);
+    }
+
+    // CHAT|id|from|to|sentAt|message (다른 행이면 null)
+    static ChatMessage parseChat(ProtocolLine row) throws IOException {
+        if (row.fieldCount() < 6 || !row.fieldIs(0, "CHAT")) {
+            return null;
+        }
+        return new ChatMessage(row.longField(1), row.field(2), row.field(3), row.rest(5), row.longField(4));
+    }
 
-        return messages;
+    private static void writeChat(DiskCache.Rows rows, ChatMessage m) {
+        rows.add("CHAT", m.id, m.fromId, m.toId, m.sentAt, m.body);
     }
 
     // ==========================
     //  과제 목록
     // ==========================
 
+    // 보류 중인 등록·수정·삭제는 서버 목록에 얹어서 돌려준다
     public static List<Assignment> fetchAssignments(String userId) throws IOException {
-        List<Assignment> list = new ArrayList<>();
-
-        try (
-                Socket socket = new Socket(SERVER_HOST, SERVER_PORT);
-                BufferedWriter writer = new BufferedWriter(
-                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
-        ) {
-            String requestLine = "ASSIGN_LIST|" + userId + "\n";
-            writer.write(requestLine);
-            writer.flush();
+        return withPendingAssignments(userId, cachedList(LmsClient::parseAssignment, LmsClient::writeAssignment, "ASSIGN_LIST", userId));
+    }
 
-            while (true) {
-                String line = reader.readLine();
-                if (line == null) {
-                    throw new IOException("서버 응답이 도중에 끊어졌습니다.");
-                }
-                if ("END".equals(line)) {
-                    break;
-                }
+    /** knownVersion 이후로 바뀌었을 때만 목록을 받는다 (처음이면 null) */
+    public static VersionedList<Assignment> fetchAssignmentsIfChanged(String userId, String knownVersion) throws IOException {
+        return fetchListIfChanged(LmsClient::parseAssignment, "ASSIGN_LIST", userId, knownVersion);
+    }
+
+    // ASSIGN|id|title|due|summary
+    private static Assignment parseAssignment(ProtocolLine row) {
+        if (row.fieldCount() >= 5 && row.fieldIs(0, "ASSIGN")) {
+            String id = row.field(1);
+            String title = row.field(2);
+            String due = row.field(3);
+            String summary = row.rest(4);
+            return new Assignment(id, title, due, summary);
+        }
+        return null;
+    }
+
+    private static void writeAssignment(DiskCache.Rows rows, Assignment a) {
+        rows.add("ASSIGN", a.id, a.title, a.due, a.summary);
+    }
 
-                // ASSIGN|id|title|due|summary
-                String[] parts = line.split("\\|", 5);
-                if (parts.length == 5 && "ASSIGN".equals(parts[0])) {
-                    String id = parts[1];
-                    String title = parts[2];
-                    String due = parts[3];
-                    String summary = parts[4];
-                    list.add(new Assignment(id, title, due, summary));
+    // 새 과제는 맨 아래에 (서버 목록이 등록순이라)
+    private static List<Assignment> withPendingAssignments(String userId, List<Assignment> items) {
+        List<PendingWrite> pending = OUTBOX.pending(userId);
+        if (pending.isEmpty()) {
+            return items;
+        }
+        List<Assignment> result = (items == null) ? new ArrayList<>() : new ArrayList<>(items);
+        for (PendingWrite w : pending) {
+            switch (w.command) {
+                case "ASSIGN_CREATE" -> result.add(new Assignment(w.pendingId(), w.args.get(1), PENDING_LABEL, w.args.get(2)));
+                case "ASSIGN_UPDATE" -> result.replaceAll(a -> a.id.equals(w.args.get(1))
+                        ? new Assignment(a.id, w.args.get(2), PENDING_LABEL, w.args.get(3)) : a);
+                case "ASSIGN_DELETE" -> result.removeIf(a -> a.id.equals(w.args.get(1)));
+                default -> {
                 }
             }
         }
-
-        return list;
+        return result;
     }
 
     // ==========================
     //  과제 파일 제출
     // ==========================
 
-    public static boolean submitAssignmentFile(String userId, String assignmentId, File file) throws IOException {
+    // 대용량 전송 등급으로 (동시에 몇 개만, 화면 요청이 있으면 비켜 가며)
+    public static TransferStats submitAssignmentFile(String userId, String assignmentId, File file) throws IOException {
+        return SCHEDULER.run(Priority.BULK, () -> submitAssignmentFileUnscheduled(userId, assignmentId, file));
+    }
+
+    private static TransferStats submitAssignmentFileUnscheduled(String userId, String assignmentId, File file) throws IOException {
+        TransferStats resumed = uploadResumableOrNull("ASSIGN", userId, assignmentId, file, 1);
+        if (resumed != null) {
+            return resumed;
+        }
+
         long fileSize = file.length();
         String fileName = file.getName();
 
-        try (
-                Socket socket = new Socket(SERVER_HOST, SERVER_PORT);
-                OutputStream out = socket.getOutputStream();
-                InputStream in = socket.getInputStream();
-                FileInputStream fis = new FileInputStream(file)
-        ) {
-            String header = "ASSIGN_SUBMIT_FILE|" + userId + "|" + assignmentId + "|" +
-                    fileName + "|" + fileSize + "\n";
-            out.write(header.getBytes(StandardCharsets.UTF_8));
-            out.flush();
+        return measure("ASSIGN_SUBMIT_FILE", () -> execute(c -> {
+            c.writeRequest("ASSIGN_SUBMIT_FILE", userId, assignmentId, fileName, fileSize);
 
             // OK 헤더 먼저
-            String respHeader = readLine(in);
+            ProtocolLine respHeader = c.readFields();
             if (respHeader == null) {
                 throw new IOException("서버 응답이 없습니다.");
             }
-            if (!respHeader.startsWith("OK")) {
+            if (respHeader.isError()) {
+                throw new ServerException("과제 제출 실패", respHeader.toString());
+            }
+            if (!respHeader.fieldIs(0, "OK")) {
                 throw new IOException("과제 제출 실패: " + respHeader);
             }
 
             // 파일 바디 전송
-            byte[] buf = new byte[8192];
-            long remaining = fileSize;
-            while (remaining > 0) {
-                int read = fis.read(buf, 0, (int) Math.min(buf.length, remaining));
-                if (read == -1) break;
-                out.write(buf, 0, read);
-                remaining -= read;
-            }
-            out.flush();
+            long start = System.nanoTime();
+            boolean zeroCopy = writeFileBody(c, file, fileSize);
 
             // DONE 응답
-            String done = readLine(in);
+            ProtocolLine done = c.readFields();
             if (done == null) {
                 throw new IOException("서버 응답이 도중에 끊어졌습니다.");
             }
-            if (!done.startsWith("DONE")) {
+            if (!done.fieldIs(0, "DONE")) {
                 throw new IOException("과제 제출 중 오류: " + done);
             }
-            return true;
-        }
+            return new TransferStats(fileSize, System.nanoTime() - start, zeroCopy);
+        }));
     }
 
     // ==========================
@@ -303,83 +799,90 @@ public class LmsClient {
     // ==========================
 
     public static List<SubmissionInfo> fetchSubmissions(String userId, String taskId) throws IOException {
-        List<SubmissionInfo> list = new ArrayList<>();
-
-        try (
-                Socket socket = new Socket(SERVER_HOST, SERVER_PORT);
-                BufferedWriter writer = new BufferedWriter(
-                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
-        ) {
-            String line = "ASSIGN_SUBMISSION_LIST|" + userId + "|" + taskId + "\n";
-            writer.write(line);
-            writer.flush();
-
-            while (true) {
-                String resp = reader.readLine();
-                if (resp == null) {
-                    throw new IOException("서버 응답이 도중에 끊어졌습니다.");
-                }
-                if ("END".equals(resp)) break;
-
-                // SUBMIT|studentId|studentName|submittedAt|filePath
-                String[] parts = resp.split("\\|", 5);
-                if (parts.length == 5 && "SUBMIT".equals(parts[0])) {
-                    String studentId = parts[1];
-                    String studentName = parts[2];
-                    String submittedAt = parts[3];
-                    String filePath = parts[4];
-                    list.add(new SubmissionInfo(studentId, studentName, submittedAt, filePath));
-                }
+        // SUBMIT|studentId|studentName|submittedAt|filePath
+        return fetchList(row -> {
+            if (row.fieldCount() >= 5 && row.fieldIs(0, "SUBMIT")) {
+                String studentId = row.field(1);
+                String studentName = row.field(2);
+                String submittedAt = row.field(3);
+                String filePath = row.rest(4);
+                return new SubmissionInfo(studentId, studentName, submittedAt, filePath);
             }
-        }
-
-        return list;
+            return null;
+        }, "ASSIGN_SUBMISSION_LIST", userId, taskId);
     }
 
     public static void downloadSubmissionFile(String userId, String filePath, File destFile) throws IOException {
-        try (
-                Socket socket = new Socket(SERVER_HOST, SERVER_PORT);
-                OutputStream out = socket.getOutputStream();
-                InputStream in = socket.getInputStream()
-        ) {
-            String cmd = "ASSIGN_DOWNLOAD_FILE|" + userId + "|" + filePath + "\n";
-            out.write(cmd.getBytes(StandardCharsets.UTF_8));
-            out.flush();
-
-            String headerLine = readLine(in);
-            if (headerLine == null) {
+        SCHEDULER.run(Priority.BULK, () -> measure("ASSIGN_DOWNLOAD_FILE", () -> execute(c -> {
+            c.writeRequest("ASSIGN_DOWNLOAD_FILE", userId, filePath);
+
+            // OK|size
+            ProtocolLine header = c.readFields();
+            if (header == null) {
                 throw new IOException("서버 응답이 없습니다.");
             }
-            if (headerLine.startsWith("ERR|")) {
-                throw new IOException("파일 다운로드 실패: " + headerLine);
+            if (header.isError()) {
+                throw new ServerException("파일 다운로드 실패", header.toString());
             }
-
-            String[] parts = headerLine.split("\\|", 2);
-            if (parts.length != 2 || !"OK".equals(parts[0])) {
-                throw new IOException("알 수 없는 서버 응답: " + headerLine);
+            if (header.fieldCount() != 2 || !header.fieldIs(0, "OK")) {
+                throw new IOException("알 수 없는 서버 응답: " + header);
             }
 
-            long size;
-            try {
-                size = Long.parseLong(parts[1]);
-            } catch (NumberFormatException e) {
-                throw new IOException("잘못된 파일 크기 응답: " + headerLine);
-            }
+            long size = header.longField(1);
+
+            readFileBody(c, destFile, size);
+            return null;
+        })));
+    }
+
+    /**
+     * 파일 바디(size 바이트)를 받아 destFile로 저장한다.
+     * 같은 폴더의 임시 파일(.part)에 크기를 미리 잡아 두고 받은 뒤, 다 받으면 이름을 바꿔 교체한다.
+     * 도중에 실패하면 임시 파일만 지우므로 기존 destFile은 그대로 남는다.
+     */
+    private static void readFileBody(ConnectionPool.Connection c, File destFile, long size) throws IOException {
+        Path target = destFile.toPath().toAbsolutePath();
+        // createTempFile은 권한을 600으로 만들어 버리므로 이름만 따로 만들어서 일반 파일처럼 생성한다
+        Path temp = target.resolveSibling(target.getFileName() + "." + System.nanoTime() + ".part");
+        boolean done = false;
+        try {
+            try (FileChannel fc = FileChannel.open(temp,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                if (size > 0) {
+                    fc.write(ByteBuffer.allocate(1), size - 1);   // 미리 크기 확보
+                }
 
-            try (FileOutputStream fos = new FileOutputStream(destFile)) {
-                byte[] buf = new byte[8192];
-                long remaining = size;
-                while (remaining > 0) {
-                    int read = in.read(buf, 0, (int) Math.min(buf.length, remaining));
+                // 헤더와 같이 버퍼에 들어온 바이트부터 나온다. 소켓 채널을 직접 읽으면(transferFrom)
+                // setSoTimeout이 걸리지 않아 서버가 보내다 멈추면 영원히 기다리므로 스트림으로 받는다.
+                // 조각마다 화면 요청에 비켜 준다
+                byte[] buf = new byte[64 * 1024];
+                long position = 0;
+                long paced = 0;
+                while (position < size) {
+                    if (position >= paced) {
+                        long slice = Math.min(TRANSFER_SLICE, size - position);
+                        SCHEDULER.pace(slice);
+                        paced = position + slice;
+                    }
+                    int read = c.in.read(buf, 0, (int) Math.min(buf.length, size - position));
                     if (read == -1) {
                         throw new IOException("파일 수신 중 연결이 끊어졌습니다.");
                     }
-                    fos.write(buf, 0, read);
-                    remaining -= read;
+                    fc.write(ByteBuffer.wrap(buf, 0, read), position);
+                    position += read;
                 }
             }
+
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            done = true;
+        } finally {
+            if (!done) {
+                Files.deleteIfExists(temp);
+            }
         }
     }
 
@@ -387,286 +890,1422 @@ public class LmsClient {
     //  공지
     // ==========================
 
+    // 보류 중인 등록·수정·삭제는 서버 목록에 얹어서 돌려준다
     public static List<NoticeItem> fetchNotices(String userId) throws IOException {
-        List<NoticeItem> list = new ArrayList<>();
-
-        try (
-                Socket socket = new Socket(SERVER_HOST, SERVER_PORT);
-                BufferedWriter writer = new BufferedWriter(
-                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
-        ) {
-            String line = "NOTICE_LIST|" + userId + "\n";
-            writer.write(line);
-            writer.flush();
+        return withPendingNotices(userId, cachedList(LmsClient::parseNotice, LmsClient::writeNotice, "NOTICE_LIST", userId));
+    }
 
-            while (true) {
-                String resp = reader.readLine();
-                if (resp == null) {
-                    throw new IOException("서버 응답이 도중에 끊어졌습니다.");
-                }
-                if ("END".equals(resp)) break;
-
-                // NOTICE|id|title|content|createdAt  (createdAt이 없으면 4개일 수도 있음)
-                String[] parts = resp.split("\\|", 5);
-                if (parts.length >= 3 && "NOTICE".equals(parts[0])) {
-                    String id = parts[1];
-                    String title = parts[2];
-                    String content = (parts.length >= 4) ? parts[3] : "";
-                    String createdAt = (parts.length >= 5) ? parts[4] : "";
-                    list.add(new NoticeItem(id, title, content, createdAt));
+    public static VersionedList<NoticeItem> fetchNoticesIfChanged(String userId, String knownVersion) throws IOException {
+        return fetchListIfChanged(LmsClient::parseNotice, "NOTICE_LIST", userId, knownVersion);
+    }
+
+    // NOTICE|id|title|content|createdAt  (createdAt이 없으면 4개일 수도 있음)
+    private static NoticeItem parseNotice(ProtocolLine row) {
+        if (row.fieldCount() >= 3 && row.fieldIs(0, "NOTICE")) {
+            String id = row.field(1);
+            String title = row.field(2);
+            String content = (row.fieldCount() >= 4) ? row.field(3) : "";
+            String createdAt = (row.fieldCount() >= 5) ? row.rest(4) : "";
+            return new NoticeItem(id, title, content, createdAt);
+        }
+        return null;
+    }
+
+    private static void writeNotice(DiskCache.Rows rows, NoticeItem n) {
+        rows.add("NOTICE", n.id, n.title, n.content, n.createdAt);
+    }
+
+    // 새 공지는 맨 위에 (서버 목록이 최신순이라)
+    private static List<NoticeItem> withPendingNotices(String userId, List<NoticeItem> items) {
+        List<PendingWrite> pending = OUTBOX.pending(userId);
+        if (pending.isEmpty()) {
+            return items;
+        }
+        List<NoticeItem> result = (items == null) ? new ArrayList<>() : new ArrayList<>(items);
+        for (PendingWrite w : pending) {
+            switch (w.command) {
+                case "NOTICE_CREATE" -> result.add(0, pendingNotice(w.pendingId(), w.args.get(1)));
+                case "NOTICE_UPDATE" -> result.replaceAll(n -> n.id.equals(w.args.get(1)) ? pendingNotice(n.id, w.args.get(2)) : n);
+                case "NOTICE_DELETE" -> result.removeIf(n -> n.id.equals(w.args.get(1)));
+                default -> {
                 }
             }
         }
+        return result;
+    }
 
-        return list;
+    // 제목은 서버와 같게: 첫 줄 20자
+    private static NoticeItem pendingNotice(String id, String content) {
+        String firstLine = content.strip().split("\n", 2)[0].strip();
+        String title = firstLine.length() > 20 ? firstLine.substring(0, 20) + "..." : firstLine;
+        return new NoticeItem(id, title.isEmpty() ? "공지" : title, content, PENDING_LABEL);
     }
 
-    public static void createNotice(String userId, String content) throws IOException {
-        sendSimpleCommandWithBody("NOTICE_CREATE", new String[]{userId, content});
+    // 등록·수정·삭제는 서버에 닿지 않으면 보류해 두고 QUEUED (목록에는 보낸 것처럼 보인다)
+    public static Delivery createNotice(String userId, String content) throws IOException {
+        return sendWrite("NOTICE_CREATE", userId, content);
     }
 
-    public static void updateNotice(String userId, String noticeId, String content) throws IOException {
-        sendSimpleCommandWithBody("NOTICE_UPDATE", new String[]{userId, noticeId, content});
+    public static Delivery updateNotice(String userId, String noticeId, String content) throws IOException {
+        return sendWrite("NOTICE_UPDATE", userId, noticeId, content);
     }
 
-    public static void deleteNotice(String userId, String noticeId) throws IOException {
-        sendSimpleCommand("NOTICE_DELETE", new String[]{userId, noticeId});
+    public static Delivery deleteNotice(String userId, String noticeId) throws IOException {
+        return sendWrite("NOTICE_DELETE", userId, noticeId);
     }
 
     // -----------------------------
 // 영상 목록 / CRUD
 // -----------------------------
 public static List<VideoItem> fetchVideos(String userId) throws IOException {
-    List<VideoItem> list = new ArrayList<>();
-
-    try (
-            Socket socket = new Socket(SERVER_HOST, SERVER_PORT);
-            BufferedWriter writer = new BufferedWriter(
-                    new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
-            BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
-    ) {
-        String line = "VIDEO_LIST|" + userId + "\n";
-        writer.write(line);
-        writer.flush();
+    return cachedList(LmsClient::parseVideo, LmsClient::writeVideo, "VIDEO_LIST", userId);
+}
 
-        while (true) {
-            String resp = reader.readLine();
-            if (resp == null) {
-                throw new IOException("서버 응답이 도중에 끊어졌습니다.");
-            }
-            if ("END".equals(resp)) break;
+    public static VersionedList<VideoItem> fetchVideosIfChanged(String userId, String knownVersion) throws IOException {
+        return fetchListIfChanged(LmsClient::parseVideo, "VIDEO_LIST", userId, knownVersion);
+    }
 
-            // VIDEO|id|title|weekLabel|(optional progress...)
-            String[] parts = resp.split("\\|");
-            if (parts.length >= 4 && "VIDEO".equals(parts[0])) {
-                String id = parts[1];
-                String title = parts[2];
-                String weekLabel = parts[3];
-                list.add(new VideoItem(id, title, weekLabel));
-            }
+    // VIDEO|id|title|weekLabel|(optional progress...)
+    private static VideoItem parseVideo(ProtocolLine row) {
+        if (row.fieldCount() >= 4 && row.fieldIs(0, "VIDEO")) {
+            String id = row.field(1);
+            String title = row.field(2);
+            String weekLabel = row.field(3);
+            return new VideoItem(id, title, weekLabel);
         }
+        return null;
     }
 
-    return list;
-}
+    private static void writeVideo(DiskCache.Rows rows, VideoItem v) {
+        rows.add("VIDEO", v.id, v.title, v.weekLabel);
+    }
 
     public static void deleteVideo(String userId, String videoId) throws IOException {
-        sendSimpleCommand("VIDEO_DELETE", new String[]{userId, videoId});
+        try {
+            sendSimpleCommand("VIDEO_DELETE", new String[]{userId, videoId});
+        } finally {
+            invalidateList("VIDEO_LIST");
+        }
     }
     
 
     // VIDEO_UPLOAD_FILE : 주차 + 파일 업로드
-    public static void uploadVideoFile(String userId, String weekId, File file) throws IOException {
+    public static TransferStats uploadVideoFile(String userId, String weekId, File file) throws IOException {
+        return uploadVideoFile(userId, weekId, file, VIDEO_UPLOAD_CONNECTIONS);
+    }
+
+    /**
+     * connections개 연결로 구간을 나눠 동시에 올린다 (1이면 한 연결로 순서대로).
+     * 지연이 큰 망에서는 연결 하나로는 대역폭을 다 못 쓰기 때문에 큰 강의 영상에 쓴다.
+     */
+    public static TransferStats uploadVideoFile(String userId, String weekId, File file, int connections) throws IOException {
+        try {
+            return SCHEDULER.run(Priority.BULK, () -> uploadVideoFileUncached(userId, weekId, file, connections));
+        } finally {
+            invalidateList("VIDEO_LIST");
+        }
+    }
+
+    private static TransferStats uploadVideoFileUncached(String userId, String weekId, File file, int connections) throws IOException {
+        TransferStats resumed = uploadResumableOrNull("VIDEO", userId, weekId, file, connections);
+        if (resumed != null) {
+            return resumed;
+        }
+
         long fileSize = file.length();
         String fileName = file.getName();
 
-        try (
-                Socket socket = new Socket(SERVER_HOST, SERVER_PORT);
-                OutputStream out = socket.getOutputStream();
-                InputStream in = socket.getInputStream();
-                FileInputStream fis = new FileInputStream(file)
-        ) {
-            String header = "VIDEO_UPLOAD_FILE|" + userId + "|" + weekId + "|" +
-                    fileName + "|" + fileSize + "\n";
-            out.write(header.getBytes(StandardCharsets.UTF_8));
-            out.flush();
+        return measure("VIDEO_UPLOAD_FILE", () -> execute(c -> {
+            c.writeRequest("VIDEO_UPLOAD_FILE", userId, weekId, fileName, fileSize);
 
             // 서버에서 OK 헤더 (필요 없는 경우라도 한 번 읽어 줌)
-            String respHeader = readLine(in);
-            if (respHeader != null && respHeader.startsWith("ERR|")) {
-                throw new IOException("영상 업로드 실패: " + respHeader);
+            ProtocolLine respHeader = c.readFields();
+            if (respHeader != null && respHeader.isError()) {
+                throw new ServerException("영상 업로드 실패", respHeader.toString());
             }
 
             // 파일 전송
-            byte[] buf = new byte[8192];
-            long remaining = fileSize;
-            while (remaining > 0) {
-                int read = fis.read(buf, 0, (int) Math.min(buf.length, remaining));
-                if (read == -1) break;
-                out.write(buf, 0, read);
-                remaining -= read;
-            }
-            out.flush();
+            long start = System.nanoTime();
+            boolean zeroCopy = writeFileBody(c, file, fileSize);
 
             // DONE 또는 OK 등 마지막 한 줄 (없어도 크게 문제는 안 됨)
-            String done = readLine(in);
-            if (done != null && done.startsWith("ERR|")) {
+            ProtocolLine done = c.readFields();
+            if (done != null && done.isError()) {
                 throw new IOException("영상 업로드 중 오류: " + done);
             }
-        }
+            return new TransferStats(fileSize, System.nanoTime() - start, zeroCopy);
+        }));
     }
 
     // ==========================
-    //  과제 CRUD (교사용)
+    //  이어 올리기 업로드 (UPLOAD_BEGIN / STATUS / CHUNK / FINISH)
     // ==========================
 
-    public static void createAssignment(String userId, String title, String summary) throws IOException {
-        sendSimpleCommandWithBody("ASSIGN_CREATE", new String[]{userId, title, summary});
-    }
+    // 보내는 도중 파일이 줄었다. 연결이 끊긴 게 아니라서 이어 보내도 소용없다
+    private static final class FileChangedException extends IOException {
+        private static final long serialVersionUID = 1L;
 
-    public static void updateAssignment(String userId, String taskId, String title, String summary) throws IOException {
-        sendSimpleCommandWithBody("ASSIGN_UPDATE", new String[]{userId, taskId, title, summary});
+        FileChangedException(String fileName) {
+            super(fileName == null ? "전송 중 파일 크기가 바뀌었습니다." : "전송 중 파일 크기가 바뀌었습니다: " + fileName);
+        }
     }
 
-    public static void deleteAssignment(String userId, String taskId) throws IOException {
-        sendSimpleCommand("ASSIGN_DELETE", new String[]{userId, taskId});
+    // 업로드 하나의 진행 상태. 연결이 바뀌어도 이 객체는 그대로 이어서 쓴다
+    private static final class UploadSession {
+        String id;          // 서버가 정해 준 uploadId (BEGIN 전이면 null)
+        long received;      // 서버가 0부터 빈틈없이 받은 바이트 수
+        final AtomicLong sentBytes = new AtomicLong();   // 이번 호출에서 실제로 보낸 바이트 수
+        volatile boolean zeroCopy;
+        volatile boolean failed;   // 병렬 전송 중 한 연결이 포기하면 나머지도 멈춘다
     }
 
-    // ==========================
-    //  학생 목록 (교사용)
-    // ==========================
-
-    public static List<StudentInfo> fetchStudents(String userId) throws IOException {
-        List<StudentInfo> list = new ArrayList<>();
-
-        try (
-                Socket socket = new Socket(SERVER_HOST, SERVER_PORT);
-                BufferedWriter writer = new BufferedWriter(
-                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
-        ) {
-            String line = "STUDENT_LIST|" + userId + "\n";
-            writer.write(line);
-            writer.flush();
-
-            while (true) {
-                String resp = reader.readLine();
-                if (resp == null) {
-                    throw new IOException("서버 응답이 도중에 끊어졌습니다.");
-                }
-                if ("END".equals(resp)) break;
+    /**
+     * 파일을 조각(UPLOAD_CHUNK_SIZE)으로 나눠 CRC32와 함께 보낸다.
+     * connections가 2 이상이면 빠진 조각들을 그 수만큼의 연결로 동시에 보내고,
+     * 아니면 한 연결로 순서대로 보낸다. 어느 쪽이든 연결이 끊기면 새 연결에서 이어 보낸다.
+     * 서버가 UPLOAD_*를 모르면 null (호출한 쪽이 예전 방식으로 보낸다).
+     */
+    private static TransferStats uploadResumableOrNull(String kind, String userId, String targetId,
+                                                       File file, int connections) throws IOException {
+        if (!resumableUploadSupported) {
+            return null;
+        }
+        long fileSize = file.length();
+        Object[] beginArgs = {userId, kind, targetId, file.getName(), fileSize, uploadFileKey(file, fileSize)};
 
-                // 형식: STUDENT|id|name|contact  또는 id|name|contact (fallback)
-                String[] parts = resp.split("\\|", -1);
-                int offset = 0;
-                if (parts.length > 0 && "STUDENT".equals(parts[0])) {
-                    offset = 1;
+        UploadSession session = new UploadSession();
+        long start = System.nanoTime();
+        try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (fc.size() < fileSize) {
+                throw new FileChangedException(file.getName());
+            }
+            try {
+                if (connections > 1 && fileSize > UPLOAD_CHUNK_SIZE) {
+                    sendUploadParallel(session, fc, beginArgs, fileSize, connections);
+                } else {
+                    sendUploadSequential(session, fc, beginArgs, fileSize);
                 }
-                if (parts.length - offset >= 1) {
-                    String sid = parts[offset];
-                    String name = (parts.length - offset >= 2) ? parts[offset + 1] : "";
-                    String contact = (parts.length - offset >= 3) ? parts[offset + 2] : "";
-                    list.add(new StudentInfo(sid, name, contact));
+            } catch (ServerException e) {
+                if (session.id == null && "UNKNOWN_COMMAND".equals(e.errorCode)) {
+                    resumableUploadSupported = false;
+                    return null;
                 }
+                throw e;
             }
+            return new TransferStats(session.sentBytes.get(), System.nanoTime() - start, session.zeroCopy);
         }
-
-        return list;
     }
 
-    // ==========================
-    //  공용 유틸
-    // ==========================
+    // 한 연결로 앞에서부터 순서대로. 끊기면 UPLOAD_STATUS로 위치를 묻고 거기서부터 다시
+    private static void sendUploadSequential(UploadSession session, FileChannel fc,
+                                             Object[] beginArgs, long fileSize) throws IOException {
+        int resumes = 0;
+        while (true) {
+            try {
+                execute(c -> {
+                    if (session.id == null) {
+                        beginUpload(c, session, beginArgs);
+                    } else {
+                        c.writeRequest("UPLOAD_STATUS", session.id);
+                        session.received = expectOk(c.readFields(), 2).longField(1);   // OK|prefix|ranges
+                    }
 
-    private static void sendSimpleCommand(String cmd, String[] args) throws IOException {
-        try (
-                Socket socket = new Socket(SERVER_HOST, SERVER_PORT);
-                BufferedWriter writer = new BufferedWriter(
-                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
-        ) {
-            StringBuilder sb = new StringBuilder(cmd);
-            for (String a : args) {
-                sb.append("|").append(a);
-            }
-            sb.append("\n");
-
-            writer.write(sb.toString());
-            writer.flush();
-
-            String resp = reader.readLine();
-            if (resp == null) {
-                throw new IOException("서버 응답이 없습니다.");
-            }
-            if (resp.startsWith("ERR|")) {
-                throw new IOException("요청 실패: " + resp);
-            }
-            // 보통 "OK" 기대
-            if (!"OK".equals(resp)) {
-                // 혹시 다른 형식이면 그냥 한번에 보고 싶으니 예외로 처리
-                throw new IOException("예상치 못한 응답: " + resp);
+                    ByteBuffer crcBuffer = ByteBuffer.allocateDirect(64 * 1024);
+                    int retries = 0;
+                    while (session.received < fileSize) {
+                        long offset = session.received;
+                        long length = Math.min(UPLOAD_CHUNK_SIZE, fileSize - offset);
+                        try {
+                            session.received = sendChunk(c, session, fc, offset, length, crcBuffer);
+                            retries = 0;
+                        } catch (ServerException e) {
+                            // 조각이 깨졌거나 다른 연결과 겹침 → 같은 조각을 다시
+                            if (!isRetryableChunkError(e) || ++retries > UPLOAD_MAX_CHUNK_RETRIES) {
+                                throw e;
+                            }
+                            pauseBeforeResume(retries);
+                        }
+                    }
+                    finishUpload(c, session);
+                    return null;
+                });
+                return;
+            } catch (ServerException e) {
+                // 서버 쪽 세션이 없어졌으면(정리됨) BEGIN부터 다시
+                if (session.id == null || !"NO_SESSION".equals(e.errorCode) || ++resumes > UPLOAD_MAX_RESUMES) {
+                    throw e;
+                }
+                session.id = null;
+            } catch (IOException e) {
+                if (e instanceof FileChangedException || ++resumes > UPLOAD_MAX_RESUMES) {
+                    throw e;
+                }
+                pauseBeforeResume(resumes);
             }
         }
     }
 
-    // 마지막 인자는 text body일 때, 개행 제거
-    private static void sendSimpleCommandWithBody(String cmd, String[] args) throws IOException {
-        try (
-                Socket socket = new Socket(SERVER_HOST, SERVER_PORT);
-                BufferedWriter writer = new BufferedWriter(
-                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
-        ) {
-            StringBuilder sb = new StringBuilder(cmd);
-            for (int i = 0; i < args.length - 1; i++) {
-                sb.append("|").append(args[i]);
-            }
-            if (args.length > 0) {
-                String last = args[args.length - 1].replace("\n", " ");
-                sb.append("|").append(last);
-            }
-            sb.append("\n");
-
-            writer.write(sb.toString());
-            writer.flush();
-
-            String resp = reader.readLine();
-            if (resp == null) {
-                throw new IOException("서버 응답이 없습니다.");
-            }
-            if (resp.startsWith("ERR|")) {
-                throw new IOException("요청 실패: " + resp);
+    /**
+     * 빠진 조각들을 큐에 넣고 connections개의 가상 스레드가 각자 연결 하나씩 빌려 가져간다.
+     * 서버는 offset 위치에 바로 쓰므로 도착 순서는 상관없고,
+     * 모든 조각이 OK를 받은 뒤에만 UPLOAD_FINISH를 보낸다.
+     */
+    private static void sendUploadParallel(UploadSession session, FileChannel fc, Object[] beginArgs,
+                                           long fileSize, int connections) throws IOException {
+        String ranges = measure("UPLOAD_BEGIN", () -> execute(c -> beginUpload(c, session, beginArgs)));
+
+        Queue<long[]> pending = new ConcurrentLinkedQueue<>(missingChunks(ranges, fileSize));
+        int workers = Math.min(connections, pending.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            futures.add(transferAsync(() -> {
+                sendChunksFromQueue(session, fc, pending);
+                return null;
+            }));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            session.failed = true;
+            if (e.getCause() instanceof IOException io) {
+                throw io;
             }
-            if (!"OK".equals(resp)) {
-                throw new IOException("예상치 못한 응답: " + resp);
+            throw e;
+        }
+
+        measure("UPLOAD_FINISH", () -> execute(c -> {
+            finishUpload(c, session);
+            return null;
+        }));
+    }
+
+    // 병렬 업로드의 연결 하나: 큐가 빌 때까지 조각을 꺼내 보낸다
+    private static void sendChunksFromQueue(UploadSession session, FileChannel fc, Queue<long[]> pending) throws IOException {
+        ByteBuffer crcBuffer = ByteBuffer.allocateDirect(64 * 1024);
+        int resumes = 0;
+        long[] chunk;
+        while (!session.failed && (chunk = pending.poll()) != null) {
+            long offset = chunk[0];
+            long length = chunk[1];
+            int retries = 0;
+            while (true) {
+                try {
+                    // 조각마다 빌리지만 풀이 LIFO라 보통 같은 연결이 다시 나온다
+                    measure("UPLOAD_CHUNK", () -> execute(c -> sendChunk(c, session, fc, offset, length, crcBuffer)));
+                    break;
+                } catch (ServerException e) {
+                    if (!isRetryableChunkError(e) || ++retries > UPLOAD_MAX_CHUNK_RETRIES) {
+                        session.failed = true;
+                        throw e;
+                    }
+                    pauseBeforeResume(retries);
+                } catch (IOException e) {
+                    if (session.failed || e instanceof FileChangedException || ++resumes > UPLOAD_MAX_RESUMES) {
+                        session.failed = true;
+                        throw e;
+                    }
+                    pauseBeforeResume(resumes);
+                }
             }
         }
     }
 
-    // TCP 스트림에서 한 줄 읽기 (LF까지, \r\n도 처리)
-    private static String readLine(InputStream in) throws IOException {
-        ByteArrayOutputStream buf = new ByteArrayOutputStream();
-        while (true) {
-            int b = in.read();
-            if (b == -1) {
-                if (buf.size() == 0) return null;
-                break;
+    // UPLOAD_BEGIN → session.id / received 설정, 받은 구간 문자열("0-100,200-300")을 돌려준다
+    private static String beginUpload(ConnectionPool.Connection c, UploadSession session, Object[] beginArgs) throws IOException {
+        c.writeRequest("UPLOAD_BEGIN", beginArgs);
+        ProtocolLine resp = expectOk(c.readFields(), 3);   // OK|uploadId|prefix|ranges
+        session.id = resp.field(1);
+        session.received = resp.longField(2);
+        return resp.fieldCount() > 3 ? resp.rest(3) : "";
+    }
+
+    // 조각 하나를 보내고 서버가 알려 준 prefix를 돌려준다. 거절되면 ServerException
+    private static long sendChunk(ConnectionPool.Connection c, UploadSession session, FileChannel fc,
+                                  long offset, long length, ByteBuffer crcBuffer) throws IOException {
+        long crc = crc32(fc, offset, length, crcBuffer);
+        c.writeRequest("UPLOAD_CHUNK", session.id, offset, length, Long.toHexString(crc));
+        if (writeFileRange(c, fc, offset, length)) {
+            session.zeroCopy = true;
+        }
+        session.sentBytes.addAndGet(length);
+        return expectOk(c.readFields(), 2).longField(1);   // OK|prefix
+    }
+
+    private static void finishUpload(ConnectionPool.Connection c, UploadSession session) throws IOException {
+        c.writeRequest("UPLOAD_FINISH", session.id);
+        ProtocolLine done = c.readFields();
+        if (done == null) {
+            throw new IOException("서버 응답이 도중에 끊어졌습니다.");
+        }
+        if (!done.fieldIs(0, "DONE")) {
+            throw new ServerException("업로드 실패", done.toString());
+        }
+    }
+
+    private static boolean isRetryableChunkError(ServerException e) {
+        return "CHECKSUM_MISMATCH".equals(e.errorCode) || "BAD_OFFSET".equals(e.errorCode);
+    }
+
+    // 받은 구간("0-100,200-300")을 빼고 남은 부분을 UPLOAD_CHUNK_SIZE 조각 {offset, length}로
+    private static List<long[]> missingChunks(String ranges, long fileSize) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long cursor = 0;
+        for (String range : ranges.isEmpty() ? new String[0] : ranges.split(",")) {
+            int dash = range.indexOf('-');
+            if (dash < 0) {
+                throw new IOException("예상치 못한 응답: " + ranges);
             }
-            if (b == '\n') {
-                break;
+            long start = parseOffset(range.substring(0, dash));
+            addChunks(chunks, cursor, start);
+            cursor = Math.max(cursor, parseOffset(range.substring(dash + 1)));
+        }
+        addChunks(chunks, cursor, fileSize);
+        return chunks;
+    }
+
+    private static void addChunks(List<long[]> chunks, long from, long to) {
+        for (long offset = from; offset < to; offset += UPLOAD_CHUNK_SIZE) {
+            chunks.add(new long[]{offset, Math.min(UPLOAD_CHUNK_SIZE, to - offset)});
+        }
+    }
+
+    // OK|... 응답인지 확인한다. ERR면 ServerException
+    private static ProtocolLine expectOk(ProtocolLine resp, int fieldCount) throws IOException {
+        if (resp == null) {
+            throw new IOException("서버 응답이 없습니다.");
+        }
+        if (resp.isError()) {
+            throw new ServerException("업로드 실패", resp.toString());
+        }
+        if (resp.fieldCount() < fieldCount || !resp.fieldIs(0, "OK")) {
+            throw new IOException("예상치 못한 응답: " + resp);
+        }
+        return resp;
+    }
+
+    private static long parseOffset(String value) throws IOException {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("예상치 못한 응답: " + value);
+        }
+    }
+
+    // 같은 파일(경로·크기·수정 시각)이면 같은 키 → 앱을 다시 켜도 서버의 같은 세션으로 이어진다
+    private static String uploadFileKey(File file, long fileSize) {
+        String source = file.getAbsolutePath() + "|" + fileSize + "|" + file.lastModified();
+        CRC32 crc = new CRC32();
+        crc.update(source.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue()) + Integer.toHexString(source.hashCode());
+    }
+
+    private static long crc32(FileChannel fc, long position, long length, ByteBuffer buf) throws IOException {
+        CRC32 crc = new CRC32();
+        long end = position + length;
+        while (position < end) {
+            buf.clear();
+            if (end - position < buf.capacity()) {
+                buf.limit((int) (end - position));
+            }
+            int read = fc.read(buf, position);
+            if (read == -1) {
+                throw new FileChangedException(null);
+            }
+            buf.flip();
+            crc.update(buf);
+            position += read;
+        }
+        return crc.getValue();
+    }
+
+    private static void pauseBeforeResume(int attempt) throws IOException {
+        try {
+            Thread.sleep(AdaptiveLimiter.backoffMillis(attempt, 250, 5_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("업로드가 취소되었습니다.");
+        }
+    }
+
+    // ==========================
+    //  과제 CRUD (교사용)
+    // ==========================
+
+    public static Delivery createAssignment(String userId, String title, String summary) throws IOException {
+        return sendWrite("ASSIGN_CREATE", userId, title, summary);
+    }
+
+    public static Delivery updateAssignment(String userId, String taskId, String title, String summary) throws IOException {
+        return sendWrite("ASSIGN_UPDATE", userId, taskId, title, summary);
+    }
+
+    public static Delivery deleteAssignment(String userId, String taskId) throws IOException {
+        return sendWrite("ASSIGN_DELETE", userId, taskId);
+    }
+
+    // ==========================
+    //  학생 목록 (교사용)
+    // ==========================
+
+    public static List<StudentInfo> fetchStudents(String userId) throws IOException {
+        return cachedList(LmsClient::parseStudent, LmsClient::writeStudent, "STUDENT_LIST", userId);
+    }
+
+    public static VersionedList<StudentInfo> fetchStudentsIfChanged(String userId, String knownVersion) throws IOException {
+        return fetchListIfChanged(LmsClient::parseStudent, "STUDENT_LIST", userId, knownVersion);
+    }
+
+    // 형식: STUDENT|id|name|contact  또는 id|name|contact (fallback)
+    private static StudentInfo parseStudent(ProtocolLine row) throws IOException {
+        int offset = row.fieldIs(0, "STUDENT") ? 1 : 0;
+        int n = row.fieldCount() - offset;
+        if (n >= 1) {
+            String sid = row.field(offset);
+            String name = (n >= 2) ? row.field(offset + 1) : "";
+            String contact = (n >= 3) ? row.field(offset + 2) : "";
+            return new StudentInfo(sid, name, contact);
+        }
+        return null;
+    }
+
+    private static void writeStudent(DiskCache.Rows rows, StudentInfo st) {
+        rows.add("STUDENT", st.studentId, st.name, st.contact);
+    }
+
+    // ==========================
+    //  홈 화면 요약 (한 번 왕복)
+    // ==========================
+
+    // 구버전 서버가 HOME_SUMMARY를 모르면 false로 바꾸고 이후로는 바로 폴백
+    private static volatile boolean homeSummarySupported = true;
+
+    /**
+     * 홈 화면에 필요한 개수 + 앞쪽 topN개 항목을 한 번의 요청으로 가져온다.
+     * 서버가 HOME_SUMMARY를 모르면 ASSIGN_LIST/NOTICE_LIST/VIDEO_LIST를
+     * 한 연결에 몰아 보내고(파이프라이닝) 응답을 차례로 읽어서 같은 요약을 만든다.
+     */
+    public static HomeSummary fetchHomeSummary(String userId, int topN) throws IOException {
+        return FLIGHTS.run(SingleFlight.key("HOME_SUMMARY", userId, topN), () -> loadHomeSummary(userId, topN));
+    }
+
+    private static HomeSummary loadHomeSummary(String userId, int topN) throws IOException {
+        HomeSummary summary = null;
+        if (homeSummarySupported) {
+            try {
+                summary = fetchHomeSummaryDirect(userId, topN);
+            } catch (ServerException e) {
+                if (!"UNKNOWN_COMMAND".equals(e.errorCode)) throw e;
+                homeSummarySupported = false;
+            }
+        }
+        if (summary == null) {
+            summary = fetchHomeSummaryPipelined(userId, topN);
+        }
+        saveHomeSummary(userId, summary);
+        return summary;
+    }
+
+    private static HomeSummary fetchHomeSummaryDirect(String userId, int topN) throws IOException {
+        SummaryRows rows = new SummaryRows();
+        fetchRows(rows, "HOME_SUMMARY", userId, topN);
+        return rows.toSummary();
+    }
+
+    // HOME_SUMMARY 응답 행들 (스냅샷에도 같은 모양으로 남긴다)
+    private static final class SummaryRows implements RowHandler {
+        final int[] summary = {-1, -1, -1, 0};   // 과제수, 공지수, 영상수, 현재주차
+        final List<Assignment> assignments = new ArrayList<>();
+        final List<NoticeItem> notices = new ArrayList<>();
+        final List<VideoItem> videos = new ArrayList<>();
+
+        @Override
+        public void accept(ProtocolLine row) throws IOException {
+            if (row.fieldIs(0, "SUMMARY")) {
+                // SUMMARY|과제수|공지수|영상수|현재주차
+                for (int i = 0; i < summary.length; i++) {
+                    summary[i] = row.intField(i + 1);
+                }
+            } else if (row.fieldIs(0, "ASSIGN")) {
+                Assignment a = parseAssignment(row);
+                if (a != null) assignments.add(a);
+            } else if (row.fieldIs(0, "NOTICE")) {
+                NoticeItem n = parseNotice(row);
+                if (n != null) notices.add(n);
+            } else if (row.fieldIs(0, "VIDEO")) {
+                VideoItem v = parseVideo(row);
+                if (v != null) videos.add(v);
+            }
+        }
+
+        HomeSummary toSummary() {
+            return new HomeSummary(summary[0], summary[1], summary[2], summary[3], assignments, notices, videos);
+        }
+    }
+
+    private static void saveHomeSummary(String userId, HomeSummary s) {
+        DiskCache.Rows rows = new DiskCache.Rows()
+                .add("SUMMARY", s.assignmentCount, s.noticeCount, s.videoCount, s.currentWeek);
+        for (Assignment a : s.recentAssignments) writeAssignment(rows, a);
+        for (NoticeItem n : s.recentNotices) writeNotice(rows, n);
+        for (VideoItem v : s.recentVideos) writeVideo(rows, v);
+        DISK_CACHE.put(userId, "HOME_SUMMARY", rows);
+    }
+
+    // 파이프라이닝으로 받은 세 목록 (실패한 목록은 null)
+    private static final class HomeLists {
+        List<Assignment> assignments;
+        List<NoticeItem> notices;
+        List<VideoItem> videos;
+        boolean complete;   // 세 목록을 한 연결에서 다 받았는지
+    }
+
+    private static HomeSummary fetchHomeSummaryPipelined(String userId, int topN) throws IOException {
+        HomeLists lists = call("HOME_SUMMARY", () -> execute(c -> {
+            HomeLists results = new HomeLists();
+            if (!c.keepAlive) {
+                // 1회용 연결이면 파이프라이닝 불가 → 첫 요청만 여기서 처리
+                c.writeRequest("ASSIGN_LIST", userId);
+                results.assignments = readListOrNull(c, LmsClient::parseAssignment);
+                return results;
+            }
+            // 세 요청을 한 번에 보내 두고, 응답을 보낸 순서대로 읽는다
+            c.queueRequest("ASSIGN_LIST", userId);
+            c.queueRequest("NOTICE_LIST", userId);
+            c.queueRequest("VIDEO_LIST", userId);
+            c.out.flush();
+            results.assignments = readListOrNull(c, LmsClient::parseAssignment);
+            results.notices = readListOrNull(c, LmsClient::parseNotice);
+            results.videos = readListOrNull(c, LmsClient::parseVideo);
+            results.complete = true;
+            return results;
+        }));
+
+        // 구버전 서버(1회용 연결)면 나머지는 따로 요청
+        if (!lists.complete) {
+            lists.notices = fetchListOrNull(LmsClient::parseNotice, "NOTICE_LIST", userId);
+            lists.videos = fetchListOrNull(LmsClient::parseVideo, "VIDEO_LIST", userId);
+        }
+
+        List<Assignment> assignments = lists.assignments;
+        List<NoticeItem> notices = lists.notices;
+        List<VideoItem> videos = lists.videos;
+
+        int week = 0;
+        if (assignments != null) {
+            for (Assignment a : assignments) {
+                week = Math.max(week, lastWeekNumber(a.title));
+            }
+        }
+
+        return new HomeSummary(
+                assignments == null ? -1 : assignments.size(),
+                notices == null ? -1 : notices.size(),
+                videos == null ? -1 : videos.size(),
+                week,
+                assignments == null ? new ArrayList<>() : head(assignments, topN),
+                notices == null ? new ArrayList<>() : head(notices, topN),
+                videos == null ? new ArrayList<>() : head(videos, topN));
+    }
+
+    private static <T> List<T> head(List<T> list, int n) {
+        return new ArrayList<>(list.subList(0, Math.min(n, list.size())));
+    }
+
+    // 제목에서 마지막 [N주차]의 N (없으면 1) - App / 서버와 같은 규칙
+    private static int lastWeekNumber(String title) {
+        if (title == null) return 1;
+        int lastWeek = -1;
+        int idx = 0;
+        while (true) {
+            int open = title.indexOf('[', idx);
+            if (open < 0) break;
+            int close = title.indexOf(']', open + 1);
+            if (close < 0) break;
+            String inside = title.substring(open + 1, close);
+            if (inside.contains("주차")) {
+                try {
+                    lastWeek = Integer.parseInt(inside.replace("주차", "").trim());
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            idx = close + 1;
+        }
+        return lastWeek > 0 ? lastWeek : 1;
+    }
+
+    // ==========================
+    //  비동기 API
+    //  화면 스레드(JavaFX)에서는 이쪽만 호출한다. 실패하면 CompletionException(원인: IOException)으로 끝난다.
+    // ==========================
+
+    public static CompletableFuture<LoginResult> loginAsync(String userId, String password) {
+        return async(() -> login(userId, password));
+    }
+
+    public static CompletableFuture<Delivery> sendChatAsync(String fromId, String toId, String message) {
+        return async(() -> sendChat(fromId, toId, message));
+    }
+
+    public static CompletableFuture<List<ChatMessage>> fetchChatAsync(String userA, String userB) {
+        return async(() -> fetchChat(userA, userB));
+    }
+
+    public static CompletableFuture<ChatDelta> fetchChatSinceAsync(String userA, String userB, long afterId) {
+        return async(() -> fetchChatSince(userA, userB, afterId));
+    }
+
+    public static CompletableFuture<ChatPage> fetchChatPageAsync(String userA, String userB, long beforeId, int limit) {
+        return async(() -> fetchChatPage(userA, userB, beforeId, limit));
+    }
+
+    public static CompletableFuture<List<Assignment>> fetchAssignmentsAsync(String userId) {
+        return async(() -> fetchAssignments(userId));
+    }
+
+    public static CompletableFuture<TransferStats> submitAssignmentFileAsync(String userId, String assignmentId, File file) {
+        return transferAsync(() -> submitAssignmentFile(userId, assignmentId, file));
+    }
+
+    public static CompletableFuture<List<SubmissionInfo>> fetchSubmissionsAsync(String userId, String taskId) {
+        return async(() -> fetchSubmissions(userId, taskId));
+    }
+
+    public static CompletableFuture<Void> downloadSubmissionFileAsync(String userId, String filePath, File destFile) {
+        return transferAsync(() -> {
+            downloadSubmissionFile(userId, filePath, destFile);
+            return null;
+        });
+    }
+
+    public static CompletableFuture<List<NoticeItem>> fetchNoticesAsync(String userId) {
+        return async(() -> fetchNotices(userId));
+    }
+
+    public static CompletableFuture<Delivery> createNoticeAsync(String userId, String content) {
+        return async(() -> createNotice(userId, content));
+    }
+
+    public static CompletableFuture<Delivery> updateNoticeAsync(String userId, String noticeId, String content) {
+        return async(() -> updateNotice(userId, noticeId, content));
+    }
+
+    public static CompletableFuture<Delivery> deleteNoticeAsync(String userId, String noticeId) {
+        return async(() -> deleteNotice(userId, noticeId));
+    }
+
+    public static CompletableFuture<List<VideoItem>> fetchVideosAsync(String userId) {
+        return async(() -> fetchVideos(userId));
+    }
+
+    public static CompletableFuture<Void> deleteVideoAsync(String userId, String videoId) {
+        return async(() -> {
+            deleteVideo(userId, videoId);
+            return null;
+        });
+    }
+
+    public static CompletableFuture<TransferStats> uploadVideoFileAsync(String userId, String weekId, File file) {
+        return transferAsync(() -> uploadVideoFile(userId, weekId, file));
+    }
+
+    public static CompletableFuture<TransferStats> uploadVideoFileAsync(String userId, String weekId, File file, int connections) {
+        return transferAsync(() -> uploadVideoFile(userId, weekId, file, connections));
+    }
+
+    public static CompletableFuture<Delivery> createAssignmentAsync(String userId, String title, String summary) {
+        return async(() -> createAssignment(userId, title, summary));
+    }
+
+    public static CompletableFuture<Delivery> updateAssignmentAsync(String userId, String taskId, String title, String summary) {
+        return async(() -> updateAssignment(userId, taskId, title, summary));
+    }
+
+    public static CompletableFuture<Delivery> deleteAssignmentAsync(String userId, String taskId) {
+        return async(() -> deleteAssignment(userId, taskId));
+    }
+
+    public static CompletableFuture<List<StudentInfo>> fetchStudentsAsync(String userId) {
+        return async(() -> fetchStudents(userId));
+    }
+
+    public static CompletableFuture<HomeSummary> fetchHomeSummaryAsync(String userId, int topN) {
+        return async(() -> fetchHomeSummary(userId, topN));
+    }
+
+    // ==========================
+    //  공용 유틸
+    // ==========================
+
+    @FunctionalInterface
+    private interface IoCall<T> {
+        T call() throws IOException;
+    }
+
+    // 부른 쪽 등급(기본 INTERACTIVE, inBackground 안이면 BACKGROUND)의 자리가 나면 실행한다
+    private static <T> CompletableFuture<T> async(IoCall<T> call) {
+        Priority priority = SUBMIT_PRIORITY.get();
+        return transferAsync(() -> SCHEDULER.run(priority, call::call));
+    }
+
+    // 대용량 전송은 메서드 안에서 BULK 자리를 잡으므로 여기서는 그냥 띄운다
+    private static <T> CompletableFuture<T> transferAsync(IoCall<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, IO_EXECUTOR);
+    }
+
+    // 연결 하나로 주고받는 작업 단위
+    @FunctionalInterface
+    private interface Exchange<T> {
+        T run(ConnectionPool.Connection c) throws IOException;
+    }
+
+    /**
+     * 목록 캐시 설정. ttlMillis 동안 같은 목록은 서버에 다시 묻지 않고, 최대 maxEntries개까지 보관한다.
+     * 0을 주면 캐시를 끈다.
+     */
+    public static void configureListCache(long ttlMillis, int maxEntries) {
+        LIST_CACHE.configure(ttlMillis, maxEntries);
+    }
+
+    // 로그아웃 등에서 캐시를 비운다
+    public static void clearListCache() {
+        LIST_CACHE.clear();
+    }
+
+    /**
+     * submit 안에서 부른 *Async 요청을 BACKGROUND 등급으로 보낸다 (화면에 이미 뭔가 보여 둔 채로 새로 받을 때).
+     * 대용량 전송은 등급이 바뀌지 않는다.
+     */
+    public static void inBackground(Runnable submit) {
+        Priority before = SUBMIT_PRIORITY.get();
+        SUBMIT_PRIORITY.set(Priority.BACKGROUND);
+        try {
+            submit.run();
+        } finally {
+            SUBMIT_PRIORITY.set(before);
+        }
+    }
+
+    /** 등급별 동시 실행 수 (기본 16 / 4 / 2) */
+    public static void configureScheduler(int interactive, int background, int bulk) {
+        SCHEDULER.configure(interactive, background, bulk);
+    }
+
+    /** 대용량 전송 전체가 나눠 쓸 대역폭 (바이트/초, 0이면 제한 없음 = 기본) */
+    public static void configureBulkBandwidth(long bytesPerSecond) {
+        SCHEDULER.configureBulkBandwidth(bytesPerSecond);
+    }
+
+    /** 명령별 호출 수·오류 수·지연 (처음 불린 순서대로) */
+    public static List<CommandMetrics> commandMetrics() {
+        return LIMITER.snapshot();
+    }
+
+    /** 지금 서버로 동시에 보낼 수 있는 요청 수 (서버 상태에 따라 늘었다 줄었다 한다) */
+    public static int concurrencyLimit() {
+        return LIMITER.limit();
+    }
+
+    // 쓰기 뒤: 캐시도, 진행 중인 같은 목록 조회(와 그 목록이 들어가는 홈 요약)도 쓰기 전 것이므로 버린다
+    private static void invalidateList(String command) {
+        LIST_CACHE.invalidate(command);
+        FLIGHTS.forget(command);
+        FLIGHTS.forget("HOME_SUMMARY");
+    }
+
+    /**
+     * 동시에 같은 목록을 부르면 서버에는 한 번만 묻고, 받은 목록은 호출마다 복사해서 준다 (ListCache처럼).
+     */
+    private static <T> List<T> cachedList(RowParser<T> parser, RowWriter<T> writer, String command,
+                                          String userId) throws IOException {
+        return new ArrayList<>(FLIGHTS.run(SingleFlight.key(command, userId),
+                () -> loadList(parser, writer, command, userId)));
+    }
+
+    /**
+     * 캐시에 살아 있으면 그걸 돌려준다. 만료됐지만 목록 버전이 남아 있으면 그 버전으로 조건부 요청을 보내
+     * NOT_MODIFIED면 남은 목록을 다시 살려 쓰고, 아니면 새로 받은 목록을 넣어 둔다.
+     * 서버에 닿지 않으면 스냅샷에 남은 목록을 돌려준다.
+     */
+    private static <T> List<T> loadList(RowParser<T> parser, RowWriter<T> writer, String command,
+                                        String userId) throws IOException {
+        List<T> cached = LIST_CACHE.get(command, userId);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = LIST_CACHE.generation();
+        VersionedList<T> result;
+        try {
+            result = fetchListIfChanged(parser, command, userId, LIST_CACHE.version(command, userId));
+        } catch (IOException e) {
+            // 서버에 닿지 않으면 스냅샷에 남은 목록으로 (없으면 그 오류 그대로)
+            List<T> saved = isUnreachable(e) ? savedList(parser, userId, command) : null;
+            if (saved == null) {
+                throw e;
+            }
+            return saved;
+        }
+        if (result.notModified()) {
+            List<T> same = LIST_CACHE.revalidate(command, userId, generation);
+            if (same != null) {
+                return same;
+            }
+            // 그 사이 캐시에서 밀려났으면 전체를 다시
+            result = fetchListIfChanged(parser, command, userId, null);
+        }
+        LIST_CACHE.put(command, userId, generation, result.items, result.version);
+        saveList(userId, command, result.items, writer);
+        return result.items;
+    }
+
+    // ==========================
+    //  디스크 스냅샷
+    //  saved* 는 서버에 묻지 않고 로그인할 때 열어 둔 스냅샷에서 꺼낸다 (화면 스레드에서 불러도 된다).
+    //  화면은 이걸로 먼저 그리고 fetch*Async 결과로 바꿔 그린다. 스냅샷에 없으면 null.
+    // ==========================
+
+    public static List<Assignment> savedAssignments(String userId) {
+        return withPendingAssignments(userId, savedList(LmsClient::parseAssignment, userId, "ASSIGN_LIST"));
+    }
+
+    public static List<NoticeItem> savedNotices(String userId) {
+        return withPendingNotices(userId, savedList(LmsClient::parseNotice, userId, "NOTICE_LIST"));
+    }
+
+    public static List<VideoItem> savedVideos(String userId) {
+        return savedList(LmsClient::parseVideo, userId, "VIDEO_LIST");
+    }
+
+    public static List<StudentInfo> savedStudents(String userId) {
+        return savedList(LmsClient::parseStudent, userId, "STUDENT_LIST");
+    }
+
+    /** userA가 userB와 나눈 최근 메시지 (마지막으로 대화를 열었을 때의 한 페이지) */
+    public static List<ChatMessage> savedChat(String userA, String userB) {
+        return savedList(LmsClient::parseChat, userA, "CHAT|" + userB);
+    }
+
+    public static HomeSummary savedHomeSummary(String userId) {
+        SummaryRows rows = new SummaryRows();
+        return forEachSavedRow(userId, "HOME_SUMMARY", rows) ? rows.toSummary() : null;
+    }
+
+    /** 스냅샷 폴더를 바꾼다 (null이면 남기지 않는다) */
+    public static void configureDiskCache(Path dir) {
+        DISK_CACHE.configure(dir);
+    }
+
+    // 로그아웃: 스냅샷 파일은 남겨 두고 닫기만 한다 (보류 쓰기는 다음에 같은 사용자로 들어오면 이어서 보낸다)
+    public static void closeDiskCache() {
+        OUTBOX.close();
+        DISK_CACHE.close();
+    }
+
+    // 항목 하나 → 스냅샷 행 (응답 행과 같은 모양이라 RowParser로 다시 읽힌다)
+    @FunctionalInterface
+    private interface RowWriter<T> {
+        void write(DiskCache.Rows rows, T item);
+    }
+
+    private static <T> void saveList(String userId, String key, List<T> items, RowWriter<T> writer) {
+        DiskCache.Rows rows = new DiskCache.Rows();
+        for (T item : items) {
+            writer.write(rows, item);
+        }
+        DISK_CACHE.put(userId, key, rows);
+    }
+
+    private static <T> List<T> savedList(RowParser<T> parser, String userId, String key) {
+        List<T> items = new ArrayList<>();
+        boolean found = forEachSavedRow(userId, key, row -> {
+            T item = parser.parse(row);
+            if (item != null) {
+                items.add(item);
+            }
+        });
+        return found ? items : null;
+    }
+
+    // 스냅샷에 key가 있으면 행들을 handler에 넘기고 true. 없거나 읽을 수 없으면 false
+    private static boolean forEachSavedRow(String userId, String key, RowHandler handler) {
+        byte[] data = DISK_CACHE.get(userId, key);
+        if (data == null) {
+            return false;
+        }
+        ConnectionPool.ConnectionInputStream in = new ConnectionPool.ConnectionInputStream(data, 0);
+        ProtocolLine row = new ProtocolLine();
+        try {
+            int rows = in.readInt();
+            for (int i = 0; i < rows; i++) {
+                row.readBinaryRow(in);
+                handler.accept(row);
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // ==========================
+    //  보류 쓰기 (Outbox)
+    //  서버에 닿지 않아 요청이 아예 나가지 못한 쓰기만 보류한다. 보내다 끊긴 건 서버가 받았는지 알 수 없으니
+    //  예전처럼 오류로 돌려준다 (다시 보내면 두 번 등록될 수 있어서).
+    // ==========================
+
+    /** 보류 쓰기를 보냈거나 서버가 거절했을 때 알림을 받는다 (null이면 끈다) */
+    public static void setOutboxListener(OutboxListener listener) {
+        OUTBOX.setListener(listener);
+    }
+
+    /** 아직 보내지 못한 쓰기 (보낼 순서대로) */
+    public static List<PendingWrite> pendingWrites(String userId) {
+        return OUTBOX.pending(userId);
+    }
+
+    /** 아직 서버에 등록되지 않은 항목의 임시 id면 true (제출 등 서버 id가 있어야 하는 일은 막는다) */
+    public static boolean isPendingId(String id) {
+        return id != null && id.startsWith("~");
+    }
+
+    /** userA가 userB에게 보내려고 보류 중인 메시지. id는 -seq (서버 id와 겹치지 않게), sentAt은 0 */
+    public static List<ChatMessage> pendingChat(String userA, String userB) {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (PendingWrite w : OUTBOX.pending(userA)) {
+            if (w.command.equals("CHAT_POST") && w.args.get(1).equals(userB)) {
+                messages.add(new ChatMessage(-w.seq, userA, userB, w.args.get(2), 0));
+            }
+        }
+        return messages;
+    }
+
+    // 앞서 보류된 게 있으면 순서를 지키려고 바로 보내지 않고 뒤에 붙인다
+    private static Delivery sendWrite(String command, String... args) throws IOException {
+        String userId = args[0];
+        // 임시 id 항목은 보류된 등록과 합칠 수 있을 때만 (Outbox.add가 판단한다)
+        boolean pendingTarget = Outbox.targetsPendingId(command, args);
+        if (!pendingTarget && !OUTBOX.hasPending(userId)) {
+            try {
+                sendDirect(command, args);
+                return Delivery.SENT;
+            } catch (IOException e) {
+                if (!isUnreachable(e) || !OUTBOX.add(userId, command, args)) {
+                    throw e;
+                }
+                return Delivery.QUEUED;
+            }
+        }
+        if (!OUTBOX.add(userId, command, args)) {
+            if (pendingTarget) {
+                throw new IOException(Outbox.PENDING_TARGET_MESSAGE);
+            }
+            sendDirect(command, args);   // 그 사이 로그아웃했다
+            return Delivery.SENT;
+        }
+        return Delivery.QUEUED;
+    }
+
+    // Outbox의 보내는 스레드에서 불린다 (화면 요청보다 뒤로)
+    private static void replayWrite(PendingWrite w) throws IOException {
+        SCHEDULER.run(Priority.BACKGROUND, () -> {
+            sendDirect(w.command, w.args.toArray(new String[0]));
+            return null;
+        });
+    }
+
+    private static void sendDirect(String command, String[] args) throws IOException {
+        try {
+            switch (command) {
+                case "CHAT_POST" -> postChat(args[0], args[1], args[2]);
+                case "NOTICE_DELETE", "ASSIGN_DELETE" -> sendSimpleCommand(command, args);
+                default -> sendSimpleCommandWithBody(command, args);
+            }
+        } finally {
+            if (command.startsWith("NOTICE_")) {
+                invalidateList("NOTICE_LIST");
+            } else if (command.startsWith("ASSIGN_")) {
+                invalidateList("ASSIGN_LIST");
+            } else {
+                FLIGHTS.forget("CHAT_LIST");
+            }
+        }
+    }
+
+    // 연결부터 안 됐다 (요청이 서버에 가지 않았다)
+    static boolean isUnreachable(IOException e) {
+        return e instanceof ConnectException || e instanceof NoRouteToHostException || e instanceof UnknownHostException;
+    }
+
+    // 목록 요청 끝에 마지막 버전을 붙인다 (없으면 빈 값). VERSION 줄은 목록 버전, NOT_MODIFIED면 items == null
+    private static <T> VersionedList<T> fetchListIfChanged(RowParser<T> parser, String command, String userId,
+                                                          String knownVersion) throws IOException {
+        if (listVersionSupported) {
+            String[] version = {null};
+            boolean[] notModified = {false};
+            List<T> items = new ArrayList<>();
+            try {
+                fetchRows(row -> {
+                    if (row.fieldIs(0, "VERSION") && row.fieldCount() == 2) {
+                        version[0] = row.field(1);
+                    } else if (row.fieldIs(0, "NOT_MODIFIED") && row.fieldCount() == 2) {
+                        notModified[0] = true;
+                        version[0] = row.field(1);
+                    } else {
+                        T item = parser.parse(row);
+                        if (item != null) {
+                            items.add(item);
+                        }
+                    }
+                }, command, userId, knownVersion == null ? "" : knownVersion);
+                return new VersionedList<>(notModified[0] ? null : items, version[0]);
+            } catch (ServerException e) {
+                if (!"BAD_REQUEST".equals(e.errorCode)) {
+                    throw e;
+                }
+                listVersionSupported = false;
+            }
+        }
+        return new VersionedList<>(fetchList(parser, command, userId), null);
+    }
+
+    // 작은 명령용 다중화 채널. 서버가 MUX1을 모르면 muxSupported=false로 바꾸고 이후로는 풀 연결만 쓴다
+    private static volatile MuxChannel mux;
+    private static volatile boolean muxSupported = true;
+    private static final ReentrantLock MUX_LOCK = new ReentrantLock();
+
+    // 열려 있는 다중화 채널 (끊겼으면 새로 연다). 쓸 수 없으면 null
+    private static MuxChannel mux() {
+        MuxChannel m = mux;
+        if (m != null && m.isOpen()) {
+            return m;
+        }
+        if (!muxSupported) {
+            return null;
+        }
+        MUX_LOCK.lock();
+        try {
+            m = mux;
+            if (m != null && m.isOpen()) {
+                return m;
+            }
+            ConnectionPool.Connection c = POOL.openMultiplexed();
+            if (c == null) {
+                muxSupported = false;
+                return null;
+            }
+            mux = m = new MuxChannel(c, ConnectionPool.READ_TIMEOUT_MS);
+            return m;
+        } catch (IOException e) {
+            return null;   // 이번 요청은 풀 연결로 (거기서도 안 되면 그 오류가 올라간다)
+        } finally {
+            MUX_LOCK.unlock();
+        }
+    }
+
+    // 응답 한 줄 → 결과 (연결이 끊겼으면 resp == null)
+    @FunctionalInterface
+    private interface LineHandler<T> {
+        T handle(ProtocolLine resp) throws IOException;
+    }
+
+    // 응답이 한 줄인 명령: 다중화 채널이 있으면 거기로, 없으면 풀 연결로 보낸다
+    private static <T> T request(LineHandler<T> handler, String command, Object... args) throws IOException {
+        return call(command, () -> {
+            MuxChannel m = mux();
+            if (m != null) {
+                return handler.handle(m.call(command, args).singleRow());
+            }
+            return execute(c -> {
+                c.writeRequest(command, args);
+                return handler.handle(c.readFields());
+            });
+        });
+    }
+
+    // 제한(LIMITER) 안에서 보내고 지연·결과를 잰다. 서버에 닿지 않았거나 다시 보내도 되는 조회면
+    // 간격(지터 포함)을 늘려 가며 REQUEST_MAX_ATTEMPTS번까지 다시 보낸다. ERR 응답은 다시 보내지 않는다
+    private static <T> T call(String command, IoCall<T> call) throws IOException {
+        return call(command, () -> true, call);
+    }
+
+    // canRetry: 이미 받은 결과를 넘겨 버려서 다시 보내면 안 되는 경우 false
+    private static <T> T call(String command, BooleanSupplier canRetry, IoCall<T> call) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return LIMITER.call(command, true, call::call);
+            } catch (ServerException e) {
+                throw e;
+            } catch (IOException e) {
+                boolean retry = (IDEMPOTENT_COMMANDS.contains(command) || isUnreachable(e))
+                        && !(e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException))
+                        && attempt < REQUEST_MAX_ATTEMPTS
+                        && canRetry.getAsBoolean()
+                        && !Thread.currentThread().isInterrupted();
+                if (!retry) {
+                    throw e;
+                }
+                sleepBeforeRetry(attempt - 1);
+            }
+        }
+    }
+
+    private static void sleepBeforeRetry(int attempt) throws InterruptedIOException {
+        try {
+            Thread.sleep(AdaptiveLimiter.backoffMillis(attempt, RETRY_BASE_MILLIS, RETRY_CAP_MILLIS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("다시 보내기를 기다리다 중단되었습니다.");
+        }
+    }
+
+    // 자리는 다른 데서(BULK) 정하는 전송: 재기만 한다
+    private static <T> T measure(String command, IoCall<T> call) throws IOException {
+        return LIMITER.call(command, false, call::call);
+    }
+
+    // 풀에서 연결을 빌려 작업을 실행하고, 정상 종료면 반납 / 예외면 버린다
+    private static <T> T execute(Exchange<T> exchange) throws IOException {
+        ConnectionPool.Connection c = POOL.borrow();
+        boolean clean = false;
+        try {
+            T result = exchange.run(c);
+            clean = true;
+            return result;
+        } catch (ServerException e) {
+            clean = true;   // ERR 응답까지 다 읽었으니 재사용 가능
+            throw e;
+        } finally {
+            if (clean) {
+                POOL.release(c);
+            } else {
+                POOL.discard(c);
+            }
+        }
+    }
+
+    // 응답 한 줄 → 항목 (해당 없는 줄이면 null)
+    @FunctionalInterface
+    private interface RowParser<T> {
+        T parse(ProtocolLine row) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RowHandler {
+        void accept(ProtocolLine row) throws IOException;
+    }
+
+    // 목록 조회 공통: 요청 하나 보내고 END 전까지의 줄들을 항목으로 바꿔 모은다
+    private static <T> List<T> fetchList(RowParser<T> parser, String command, Object... args) throws IOException {
+        List<T> items = new ArrayList<>();
+        fetchRows(row -> {
+            T item = parser.parse(row);
+            if (item != null) {
+                items.add(item);
+            }
+        }, command, args);
+        return items;
+    }
+
+    // 목록 응답의 줄들을 handler에 넘긴다. 다중화 채널이 있으면 거기로, 없으면 풀 연결로
+    private static void fetchRows(RowHandler handler, String command, Object... args) throws IOException {
+        // 줄을 하나라도 넘긴 뒤 끊기면 다시 보내지 않는다 (handler가 같은 줄을 두 번 받는다)
+        boolean[] started = {false};
+        RowHandler tracked = row -> {
+            started[0] = true;
+            handler.accept(row);
+        };
+        call(command, () -> !started[0], () -> {
+            MuxChannel m = mux();
+            if (m != null) {
+                MuxChannel.Frame frame = m.call(command, args);
+                forEachRow(frame.rows, frame::readRow, tracked);
+                return null;
+            }
+            return execute(c -> {
+                c.writeRequest(command, args);
+                readRows(c, tracked);
+                return null;
+            });
+        });
+    }
+
+    // 서버 오류(ERR)는 null로 돌려준다. 네트워크 오류는 그대로 던진다
+    private static <T> List<T> fetchListOrNull(RowParser<T> parser, String command, Object... args) throws IOException {
+        try {
+            return fetchList(parser, command, args);
+        } catch (ServerException e) {
+            return null;
+        }
+    }
+
+    private static <T> List<T> readList(ConnectionPool.Connection c, RowParser<T> parser) throws IOException {
+        List<T> items = new ArrayList<>();
+        readRows(c, row -> {
+            T item = parser.parse(row);
+            if (item != null) {
+                items.add(item);
+            }
+        });
+        return items;
+    }
+
+    // END 전까지 한 줄씩 handler에 넘긴다 (줄 객체는 재사용되므로 handler 안에서 필요한 값만 꺼낸다)
+    // 바이너리 연결이면 END 대신 프레임 하나에 담긴 행들을 넘긴다
+    private static void readRows(ConnectionPool.Connection c, RowHandler handler) throws IOException {
+        if (c.binary) {
+            int rows = c.readFrameHeader();
+            if (rows < 0) {
+                throw new IOException("서버 응답이 도중에 끊어졌습니다.");
+            }
+            forEachRow(rows, c::readRow, handler);
+            return;
+        }
+        while (true) {
+            ProtocolLine row = c.readFields();
+            if (row == null) {
+                throw new IOException("서버 응답이 도중에 끊어졌습니다.");
+            }
+            if (row.is("END")) {
+                break;
+            }
+            // 오류면 END 없이 ERR 한 줄만 온다
+            if (row.isError()) {
+                throw new ServerException("요청 실패", row.toString());
+            }
+            handler.accept(row);
+            // 조건부 목록 조회에서 바뀐 게 없으면 END 없이 NOT_MODIFIED 한 줄만 온다
+            if (row.fieldIs(0, "NOT_MODIFIED")) {
+                break;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowSource {
+        ProtocolLine next() throws IOException;
+    }
+
+    // 바이너리 응답 프레임의 행들을 handler에 넘긴다. 오류면 ERR 한 행만 온다
+    private static void forEachRow(int rows, RowSource source, RowHandler handler) throws IOException {
+        for (int i = 0; i < rows; i++) {
+            ProtocolLine row = source.next();
+            if (rows == 1 && row.isError()) {
+                throw new ServerException("요청 실패", row.toString());
+            }
+            handler.accept(row);
+        }
+    }
+
+    // 파이프라이닝용: ERR 응답이어도 다음 응답을 계속 읽어야 하므로 예외 대신 null
+    private static <T> List<T> readListOrNull(ConnectionPool.Connection c, RowParser<T> parser) throws IOException {
+        try {
+            return readList(c, parser);
+        } catch (ServerException e) {
+            return null;
+        }
+    }
+
+    private static void sendSimpleCommand(String cmd, String[] args) throws IOException {
+        sendAndExpectOk(cmd, args, false);
+    }
+
+    // 마지막 인자는 text body일 때, 개행 제거 (바이너리 연결은 필드 길이로 구분하니 개행도 그대로 보낸다)
+    private static void sendSimpleCommandWithBody(String cmd, String[] args) throws IOException {
+        sendAndExpectOk(cmd, args, true);
+    }
+
+    private static void sendAndExpectOk(String cmd, String[] args, boolean textBody) throws IOException {
+        call(cmd, () -> {
+            MuxChannel m = mux();
+            if (m != null) {
+                expectOkLine(m.call(cmd, (Object[]) args).singleRow());
+                return null;
+            }
+            return execute(c -> {
+                String[] sent = args;
+                if (textBody && !c.binary && args.length > 0) {
+                    sent = args.clone();
+                    sent[sent.length - 1] = sent[sent.length - 1].replace("\n", " ");
+                }
+                c.writeRequest(cmd, (Object[]) sent);
+                expectOkLine(c.readFields());
+                return null;
+            });
+        });
+    }
+
+    private static void expectOkLine(ProtocolLine resp) throws IOException {
+        if (resp == null) {
+            throw new IOException("서버 응답이 없습니다.");
+        }
+        if (resp.isError()) {
+            throw new ServerException("요청 실패", resp.toString());
+        }
+        // 보통 "OK" 기대
+        if (!resp.is("OK")) {
+            // 혹시 다른 형식이면 그냥 한번에 보고 싶으니 예외로 처리
+            throw new IOException("예상치 못한 응답: " + resp);
+        }
+    }
+
+    /**
+     * 파일 바디를 소켓에 보낸다.
+     * 연결에 SocketChannel이 있으면 FileChannel.transferTo로 커널에서 바로 보내고(zero-copy),
+     * 없으면 예전처럼 버퍼로 읽어서 쓴다. zero-copy로 보냈으면 true.
+     */
+    private static boolean writeFileBody(ConnectionPool.Connection c, File file, long fileSize) throws IOException {
+        try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (fc.size() < fileSize) {
+                throw new FileChangedException(file.getName());
+            }
+            return writeFileRange(c, fc, 0, fileSize);
+        }
+    }
+
+    // 파일의 [position, position+length) 구간만 보낸다 (이어 올리기 조각용)
+    private static boolean writeFileRange(ConnectionPool.Connection c, FileChannel fc, long position, long length) throws IOException {
+        long end = position + length;
+        if (c.channel != null) {
+            c.out.flush();   // 헤더가 버퍼에 남아 있으면 순서가 꼬인다
+            while (position < end) {
+                long slice = Math.min(TRANSFER_SLICE, end - position);
+                SCHEDULER.pace(slice);
+                for (long sliceEnd = position + slice; position < sliceEnd; ) {
+                    long sent = fc.transferTo(position, sliceEnd - position, c.channel);
+                    if (sent <= 0 && position >= fc.size()) {
+                        // 보내는 도중 파일이 줄었다 (그대로 두면 0만 돌려받으며 영원히 돈다)
+                        throw new FileChangedException(null);
+                    }
+                    position += sent;
+                }
+            }
+            return true;
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+        long paced = 0;   // pace로 차례를 받아 둔 데까지
+        while (position < end) {
+            if (position >= paced) {
+                long slice = Math.min(TRANSFER_SLICE, end - position);
+                SCHEDULER.pace(slice);
+                paced = position + slice;
+            }
+            buf.clear();
+            if (end - position < buf.capacity()) {
+                buf.limit((int) (end - position));
             }
-            if (b == '\r') {
-                // \r\n 대응용: CR은 버리고, 다음 read에서 LF가 올 것
-                continue;
+            int read = fc.read(buf, position);
+            if (read == -1) {
+                throw new FileChangedException(null);
             }
-            buf.write(b);
+            c.out.write(buf.array(), 0, read);
+            position += read;
         }
-        return buf.toString(StandardCharsets.UTF_8).trim();
+        c.out.flush();
+        return false;
     }
 }
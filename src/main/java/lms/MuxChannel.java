@@ -0,0 +1,142 @@
+package lms;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 연결 하나로 여러 요청을 동시에 주고받는 다중화 채널 (MUX1).
+ * 요청마다 ID를 붙여 보내고, 읽기 스레드가 응답 프레임의 ID를 보고 기다리던 호출에 넘겨 준다.
+ * 서버는 요청을 각각 처리해서 끝난 순서대로 답하므로, 느린 목록 조회가 채팅 전송을 막지 않는다.
+ * 파일 바디가 뒤따르는 명령(업로드/다운로드)은 프레임 사이에 끼울 수 없어서 풀 연결로 보낸다.
+ */
+final class MuxChannel implements Closeable {
+
+    private static final int FRAME_MAX_SIZE = 16 * 1024 * 1024;
+
+    /** 응답 프레임 하나 (행들은 readRow로 차례로 꺼낸다) */
+    static final class Frame {
+        final int rows;
+        private final ConnectionPool.ConnectionInputStream in;
+        private final ProtocolLine line = new ProtocolLine();
+
+        private Frame(byte[] body) throws IOException {
+            this.in = new ConnectionPool.ConnectionInputStream(body, 0);
+            this.rows = in.readInt();
+        }
+
+        ProtocolLine readRow() throws IOException {
+            line.readBinaryRow(in);
+            return line;
+        }
+
+        // OK|... / ERR|... 처럼 한 줄짜리 응답
+        ProtocolLine singleRow() throws IOException {
+            if (rows != 1) {
+                throw new IOException("예상치 못한 응답 프레임: 행 " + rows + "개");
+            }
+            return readRow();
+        }
+    }
+
+    private final ConnectionPool.Connection conn;
+    private final long timeoutMillis;
+    // 가상 스레드에서 부르므로 synchronized 대신 ReentrantLock (캐리어 스레드에 묶이지 않게)
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Map<Integer, CompletableFuture<Frame>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private volatile boolean closed;
+
+    MuxChannel(ConnectionPool.Connection conn, long timeoutMillis) {
+        this.conn = conn;
+        this.timeoutMillis = timeoutMillis;
+        Thread.ofVirtual().name("lms-mux-reader").start(this::readLoop);
+    }
+
+    boolean isOpen() {
+        return !closed;
+    }
+
+    /** 요청을 보내고 그 요청의 응답 프레임을 기다린다. 다른 스레드의 요청과 동시에 불러도 된다. */
+    Frame call(String command, Object... args) throws IOException {
+        int id = nextId.incrementAndGet() & Integer.MAX_VALUE;
+        CompletableFuture<Frame> future = new CompletableFuture<>();
+        pending.put(id, future);
+        if (closed && pending.remove(id) != null) {
+            throw new IOException("서버 연결이 끊어졌습니다.");
+        }
+
+        writeLock.lock();
+        try {
+            FrameCodec.writeRequest(conn.out, id, command, args);
+            conn.out.flush();
+        } catch (IOException e) {
+            pending.remove(id);
+            close();
+            throw e;
+        } finally {
+            writeLock.unlock();
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            pending.remove(id);
+            throw new SocketTimeoutException("서버 응답 시간이 초과되었습니다: " + command);
+        } catch (InterruptedException e) {
+            pending.remove(id);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(command);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        conn.close();
+        IOException error = new IOException("서버 연결이 끊어졌습니다.");
+        for (Integer id : pending.keySet()) {
+            CompletableFuture<Frame> future = pending.remove(id);
+            if (future != null) {
+                future.completeExceptionally(error);
+            }
+        }
+    }
+
+    // 응답 프레임을 통째로 받아 요청ID로 기다리던 호출에 넘긴다. 연결이 끊기면 기다리던 호출을 모두 실패시킨다
+    private void readLoop() {
+        ConnectionPool.ConnectionInputStream in = conn.in;
+        try {
+            while (in.ensureBuffered()) {
+                int length = in.readInt();
+                if (length < 8 || length > FRAME_MAX_SIZE) {
+                    throw new IOException("잘못된 응답 프레임 (길이 " + length + ")");
+                }
+                int id = in.readInt();
+                byte[] body = new byte[length - 4];
+                in.readFully(body, 0, body.length);
+                CompletableFuture<Frame> future = pending.remove(id);
+                if (future != null) {
+                    future.complete(new Frame(body));
+                }
+            }
+        } catch (IOException ignored) {
+        } finally {
+            close();
+        }
+    }
+}
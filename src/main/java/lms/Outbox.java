@@ -0,0 +1,274 @@
+package lms;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 서버에 닿지 않아 보내지 못한 쓰기(공지/과제 등록·수정, 채팅)를 모아 두었다가 연결되면 순서대로 보낸다.
+ * 목록은 로그인한 사용자의 스냅샷(DiskCache)에 OUTBOX 키로 남기므로 앱을 다시 켜도 이어서 보낸다.
+ * 같은 항목을 여러 번 고치면 마지막 내용 하나만 보내고, 아직 안 보낸 새 항목을 고치면 등록 내용을 바꾼다.
+ * 보내는 스레드는 보낼 게 있을 때만 돌고, 서버에 닿지 않으면(연결부터 안 됨) 간격을 늘려 가며 다시 시도한다.
+ * 서버가 거절(ERR)하면 그 쓰기는 버리고 listener에 알린다 (다시 보내도 같은 결과라서).
+ * 보내다 끊기거나 응답이 늦으면 서버가 받았을 수도 있으니 역시 버리고 알린다 (다시 보내면 두 번 등록된다).
+ */
+final class Outbox {
+
+    /** 한 건 보내기. 거절이면 ServerException, 그 밖의 실패는 IOException (LmsClient.isUnreachable로 가른다) */
+    @FunctionalInterface
+    interface Sender {
+        void send(LmsClient.PendingWrite write) throws IOException;
+    }
+
+    private static final String KEY = "OUTBOX";
+    // 임시 id 항목을 합칠 수 없을 때 (등록을 보내는 중이거나 이미 보냈다)
+    static final String PENDING_TARGET_MESSAGE = "아직 서버에 등록 중인 항목입니다. 목록을 새로 고친 뒤 다시 시도하세요.";
+    private static final long RETRY_MIN_MILLIS = 500;
+    private static final long RETRY_MAX_MILLIS = 10_000;
+
+    // 가상 스레드에서 부르므로 synchronized 대신 ReentrantLock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final DiskCache disk;
+    private final Sender sender;
+    private final List<LmsClient.PendingWrite> writes = new ArrayList<>();
+    private volatile LmsClient.OutboxListener listener;
+    private String userId;   // 지금 열려 있는 사용자 (없으면 null)
+    private long lastSeq;
+    private long sendingSeq;   // 지금 보내는 중인 쓰기 (합치지 않는다)
+    private Thread replayer;
+
+    Outbox(DiskCache disk, Sender sender) {
+        this.disk = disk;
+        this.sender = sender;
+    }
+
+    void setListener(LmsClient.OutboxListener listener) {
+        this.listener = listener;
+    }
+
+    /** 스냅샷에 남은 보류 쓰기를 읽고, 있으면 보내기 시작한다 (스냅샷은 먼저 열어 둔다) */
+    void open(String userId, List<LmsClient.PendingWrite> saved) {
+        lock.lock();
+        try {
+            if (userId.equals(this.userId)) {
+                return;
+            }
+            this.userId = userId;
+            writes.clear();
+            writes.addAll(saved);
+            lastSeq = 0;
+            for (LmsClient.PendingWrite w : saved) {
+                lastSeq = Math.max(lastSeq, w.seq);
+            }
+            startLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 로그아웃: 보내기를 멈춘다. 남은 쓰기는 스냅샷에 있으니 다음에 같은 사용자로 들어오면 이어 보낸다 */
+    void close() {
+        lock.lock();
+        try {
+            userId = null;
+            writes.clear();
+            sendingSeq = 0;
+            if (replayer != null) {
+                replayer.interrupt();
+                replayer = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 보낼 게 남아 있으면 true (새 쓰기는 순서를 지키려고 바로 보내지 않고 뒤에 붙인다) */
+    boolean hasPending(String userId) {
+        lock.lock();
+        try {
+            return userId.equals(this.userId) && !writes.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 보낼 순서대로 (열려 있는 사용자가 아니면 빈 목록) */
+    List<LmsClient.PendingWrite> pending(String userId) {
+        lock.lock();
+        try {
+            return userId.equals(this.userId) ? new ArrayList<>(writes) : List.of();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 쓰기 하나를 보류 목록에 넣는다. 열려 있는 사용자가 아니면 false (보류할 곳이 없다).
+     * 공지/과제의 수정·삭제는 같은 항목의 보류된 쓰기와 합친다.
+     * 임시 id(~seq) 항목의 수정·삭제는 그 등록이 아직 보내지 않은 채 남아 있을 때만 받는다
+     * (보내는 중이거나 이미 보냈으면 서버는 ~seq를 모르니 따로 보내 봐야 거절된다).
+     */
+    boolean add(String userId, String command, String... args) throws IOException {
+        lock.lock();
+        try {
+            if (!userId.equals(this.userId)) {
+                return false;
+            }
+            if (!coalesce(command, args)) {
+                if (targetsPendingId(command, args)) {
+                    throw new IOException(PENDING_TARGET_MESSAGE);
+                }
+                writes.add(new LmsClient.PendingWrite(++lastSeq, command, args));
+            }
+            saveLocked();
+            startLocked();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 같은 항목에 대한 보류 쓰기와 합친다. 합쳐서 새로 붙일 게 없으면 true (보내는 중인 쓰기는 건드리지 않는다)
+    //   수정: 임시 id면 그 등록의 내용을, 아니면 같은 id의 보류된 수정을 바꾼다
+    //   삭제: 임시 id면 그 등록을 지우고 끝, 아니면 같은 id의 보류된 수정을 지우고 삭제를 붙인다
+    private boolean coalesce(String command, String[] args) {
+        String kind = command.startsWith("NOTICE_") ? "NOTICE_" : command.startsWith("ASSIGN_") ? "ASSIGN_" : null;
+        if (kind == null || command.endsWith("_CREATE")) {
+            return false;
+        }
+        String create = kind + "CREATE";
+        String update = kind + "UPDATE";
+        String id = args[1];
+        boolean delete = command.endsWith("_DELETE");
+        for (int i = 0; i < writes.size(); i++) {
+            LmsClient.PendingWrite w = writes.get(i);
+            if (w.seq == sendingSeq) {
+                continue;
+            }
+            if (w.command.equals(create) && w.pendingId().equals(id)) {
+                if (delete) {
+                    writes.remove(i);
+                } else {
+                    // 등록 인자 = 수정 인자에서 id만 뺀 것
+                    String[] merged = new String[args.length - 1];
+                    merged[0] = args[0];
+                    System.arraycopy(args, 2, merged, 1, args.length - 2);
+                    writes.set(i, new LmsClient.PendingWrite(w.seq, create, merged));
+                }
+                return true;
+            }
+            if (w.command.equals(update) && w.args.get(1).equals(id)) {
+                if (delete) {
+                    writes.remove(i--);
+                    continue;
+                }
+                writes.set(i, new LmsClient.PendingWrite(w.seq, command, args));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** 공지/과제의 수정·삭제인데 대상이 임시 id(~seq)면 true */
+    static boolean targetsPendingId(String command, String[] args) {
+        return (command.startsWith("NOTICE_") || command.startsWith("ASSIGN_"))
+                && (command.endsWith("_UPDATE") || command.endsWith("_DELETE"))
+                && LmsClient.isPendingId(args[1]);
+    }
+
+    private void saveLocked() {
+        DiskCache.Rows rows = new DiskCache.Rows();
+        for (LmsClient.PendingWrite w : writes) {
+            Object[] fields = new Object[2 + w.args.size()];
+            fields[0] = w.seq;
+            fields[1] = w.command;
+            for (int i = 0; i < w.args.size(); i++) {
+                fields[2 + i] = w.args.get(i);
+            }
+            rows.add(fields);
+        }
+        disk.put(userId, KEY, rows, true);
+    }
+
+    /** 스냅샷의 OUTBOX 행 하나 (seq|command|args...) */
+    static LmsClient.PendingWrite parse(ProtocolLine row) throws IOException {
+        if (row.fieldCount() < 3) {
+            return null;
+        }
+        String[] args = new String[row.fieldCount() - 2];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = row.field(2 + i);
+        }
+        return new LmsClient.PendingWrite(row.longField(0), row.field(1), args);
+    }
+
+    private void startLocked() {
+        if (replayer == null && !writes.isEmpty()) {
+            String owner = userId;
+            replayer = Thread.ofVirtual().name("lms-outbox").start(() -> replay(owner));
+        }
+    }
+
+    // 맨 앞 쓰기부터 하나씩 보낸다. 다 보냈거나 사용자가 바뀌면 끝낸다
+    private void replay(String owner) {
+        int failures = 0;
+        while (true) {
+            LmsClient.PendingWrite head;
+            lock.lock();
+            try {
+                if (!owner.equals(userId) || replayer != Thread.currentThread()) {
+                    return;
+                }
+                if (writes.isEmpty()) {
+                    replayer = null;
+                    return;
+                }
+                head = writes.get(0);
+                sendingSeq = head.seq;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException failure = null;
+            try {
+                sender.send(head);
+            } catch (IOException e) {
+                if (!LmsClient.isUnreachable(e)) {
+                    failure = e;   // 거절됐거나 보내다 끊겼다: 다시 보내지 않는다
+                } else {
+                    lock.lock();
+                    try {
+                        sendingSeq = 0;   // 쉬는 동안에는 합쳐도 된다
+                    } finally {
+                        lock.unlock();
+                    }
+                    try {
+                        Thread.sleep(AdaptiveLimiter.backoffMillis(failures++, RETRY_MIN_MILLIS, RETRY_MAX_MILLIS));
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            failures = 0;
+
+            lock.lock();
+            try {
+                // 로그아웃으로 멈췄으면(보내다 끊긴 것도 이 때문일 수 있다) 스냅샷에 남겨 두고 끝낸다
+                if (!owner.equals(userId)) {
+                    return;
+                }
+                sendingSeq = 0;
+                writes.removeIf(w -> w.seq == head.seq);
+                saveLocked();
+            } finally {
+                lock.unlock();
+            }
+            LmsClient.OutboxListener l = listener;
+            if (l != null) {
+                l.onDelivered(head, failure);
+            }
+        }
+    }
+}
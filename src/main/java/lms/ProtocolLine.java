@@ -0,0 +1,182 @@
+package lms;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 파이프(|)로 구분된 프로토콜 한 줄 (바이너리 연결이면 프레임의 행 하나).
+ * 연결마다 하나를 두고 줄을 읽을 때마다 다시 채운다 (split/readLine처럼 줄마다 배열·문자열을 만들지 않는다).
+ * 바이트 그대로 들고 있다가 필드를 꺼낼 때 그 필드만 UTF-8로 한 번 디코딩한다.
+ * 다음 줄을 읽으면 내용이 바뀌므로, 남겨 둘 값은 field()로 꺼내 둔다.
+ */
+final class ProtocolLine {
+
+    private byte[] bytes = new byte[256];
+    private int length;
+    // 필드 i는 [starts[i], starts[i+1]-1) 구간 (마지막 필드는 length까지)
+    private int[] starts = new int[16];
+    private int fieldCount;
+
+    /**
+     * 입력 버퍼에서 LF까지 한 줄을 읽는다 (CR은 버림).
+     * 버퍼 안을 직접 훑으므로 바이트마다 read()를 부르지 않는다. 연결이 끊겼고 읽은 게 없으면 false.
+     */
+    boolean read(ConnectionPool.ConnectionInputStream in) throws IOException {
+        length = 0;
+        fieldCount = 1;
+        boolean any = false;
+        while (in.ensureBuffered()) {
+            any = true;
+            byte[] buf = in.buf;
+            int i = in.pos;
+            int end = in.count;
+            while (i < end) {
+                byte b = buf[i++];
+                if (b == '\n') {
+                    in.pos = i;
+                    return true;
+                }
+                if (b == '\r') {
+                    continue;
+                }
+                if (length == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                bytes[length++] = b;
+                if (b == '|') {
+                    if (fieldCount == starts.length) {
+                        starts = Arrays.copyOf(starts, starts.length * 2);
+                    }
+                    starts[fieldCount++] = length;
+                }
+            }
+            in.pos = i;
+        }
+        return any;
+    }
+
+    /**
+     * 바이너리 프레임의 행 하나(u16 필드수 + (u32 길이 + 바이트)*)를 읽는다.
+     * 필드 사이에 | 를 끼워 텍스트 줄과 같은 모양으로 담아 두므로 field/rest/toString은 그대로 쓴다.
+     * 필드 경계는 길이로 정해지니 필드 안에 | 가 있어도 나뉘지 않는다.
+     */
+    void readBinaryRow(ConnectionPool.ConnectionInputStream in) throws IOException {
+        int n = in.readUnsignedShort();
+        length = 0;
+        fieldCount = Math.max(n, 1);
+        if (fieldCount > starts.length) {
+            starts = new int[Integer.highestOneBit(fieldCount) << 1];
+        }
+        starts[0] = 0;
+        for (int i = 0; i < n; i++) {
+            int len = in.readInt();
+            if (len < 0) {
+                throw new IOException("잘못된 응답 프레임 (필드 길이 " + len + ")");
+            }
+            int needed = length + len + 1;
+            if (needed > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, needed));
+            }
+            if (i > 0) {
+                bytes[length++] = '|';
+            }
+            starts[i] = length;
+            in.readFully(bytes, length, len);
+            length += len;
+        }
+    }
+
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    String field(int i) {
+        int start = start(i);
+        return new String(bytes, start, end(i) - start, StandardCharsets.UTF_8);
+    }
+
+    /** i번째 필드부터 줄 끝까지 (split(regex, i+1)의 마지막 칸처럼 안의 | 도 그대로) */
+    String rest(int i) {
+        int start = start(i);
+        return new String(bytes, start, length - start, StandardCharsets.UTF_8);
+    }
+
+    /** i번째 필드가 ascii와 같은지 (문자열을 만들지 않고 비교) */
+    boolean fieldIs(int i, String ascii) {
+        if (i >= fieldCount) {
+            return false;
+        }
+        return regionIs(start(i), end(i), ascii);
+    }
+
+    /** 줄 전체가 ascii와 같은지 (ex. "OK", "END") */
+    boolean is(String ascii) {
+        return regionIs(0, length, ascii);
+    }
+
+    /** ERR|코드|... 형식인지 */
+    boolean isError() {
+        return fieldCount >= 2 && fieldIs(0, "ERR");
+    }
+
+    long longField(int i) throws IOException {
+        if (i >= fieldCount) {
+            throw new IOException("예상치 못한 응답: " + this);
+        }
+        int p = start(i);
+        int end = end(i);
+        while (p < end && bytes[p] == ' ') p++;
+        while (end > p && bytes[end - 1] == ' ') end--;
+        boolean negative = p < end && bytes[p] == '-';
+        if (negative) p++;
+        if (p == end || end - p > 18) {
+            throw new IOException("예상치 못한 응답: " + this);
+        }
+        long value = 0;
+        for (; p < end; p++) {
+            int d = bytes[p] - '0';
+            if (d < 0 || d > 9) {
+                throw new IOException("예상치 못한 응답: " + this);
+            }
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    int intField(int i) throws IOException {
+        long value = longField(i);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IOException("예상치 못한 응답: " + this);
+        }
+        return (int) value;
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int start(int i) {
+        if (i < 0 || i >= fieldCount) {
+            throw new IndexOutOfBoundsException("field " + i + " of " + fieldCount);
+        }
+        return starts[i];
+    }
+
+    private int end(int i) {
+        return (i + 1 < fieldCount) ? starts[i + 1] - 1 : length;
+    }
+
+    private boolean regionIs(int from, int to, String ascii) {
+        if (to - from != ascii.length()) {
+            return false;
+        }
+        for (int k = 0; k < ascii.length(); k++) {
+            if (bytes[from + k] != ascii.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,131 @@
+package lms;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 요청 등급별 동시 실행 수 제한 + 대용량 전송의 대역폭 나눠 쓰기.
+ * 등급마다 자리(동시에 도는 요청 수)가 따로 있어서, 영상 업로드가 자리를 다 차지해도
+ * 화면이 기다리는 목록 조회(INTERACTIVE)는 자기 자리에서 바로 돈다.
+ * 대용량 전송은 조각마다 pace를 불러 화면 요청이 돌고 있으면 잠깐 비켜 주고,
+ * 대역폭 제한이 있으면 모든 대용량 전송이 그 대역폭을 순서대로 나눠 쓴다.
+ */
+final class RequestScheduler {
+
+    // 화면 요청이 끝나기를 조각 하나당 이만큼까지만 기다린다 (전송이 아예 멈추지 않게)
+    private static final long YIELD_MAX_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // 가상 스레드에서 부르므로 synchronized 대신 ReentrantLock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition[] freed;
+    private final Condition interactiveIdle;
+    private final int[] limits = new int[LmsClient.Priority.values().length];
+    private final int[] active = new int[limits.length];
+    private long bulkBytesPerSecond;   // 0이면 제한 없음
+    private long bulkNextFreeNanos;    // 대역폭 제한: 다음 조각을 보내도 되는 시각
+
+    RequestScheduler(int interactive, int background, int bulk) {
+        freed = new Condition[limits.length];
+        for (int i = 0; i < freed.length; i++) {
+            freed[i] = lock.newCondition();
+        }
+        interactiveIdle = lock.newCondition();
+        configure(interactive, background, bulk);
+    }
+
+    /** 등급별 동시 실행 수. 줄이면 이미 돌고 있는 건 두고 새로 오는 것부터 기다린다 */
+    void configure(int interactive, int background, int bulk) {
+        lock.lock();
+        try {
+            limits[LmsClient.Priority.INTERACTIVE.ordinal()] = Math.max(1, interactive);
+            limits[LmsClient.Priority.BACKGROUND.ordinal()] = Math.max(1, background);
+            limits[LmsClient.Priority.BULK.ordinal()] = Math.max(1, bulk);
+            for (Condition c : freed) {
+                c.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 대용량 전송 전체가 나눠 쓸 대역폭 (바이트/초, 0이면 제한 없음) */
+    void configureBulkBandwidth(long bytesPerSecond) {
+        lock.lock();
+        try {
+            bulkBytesPerSecond = Math.max(0, bytesPerSecond);
+            bulkNextFreeNanos = System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** priority 등급에 자리가 날 때까지 기다렸다가 call을 실행한다 */
+    <T> T run(LmsClient.Priority priority, SingleFlight.Call<T> call) throws IOException {
+        int p = priority.ordinal();
+        lock.lock();
+        try {
+            while (active[p] >= limits[p]) {
+                freed[p].await();
+            }
+            active[p]++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("요청 차례를 기다리다 중단되었습니다.");
+        } finally {
+            lock.unlock();
+        }
+        try {
+            return call.call();
+        } finally {
+            lock.lock();
+            try {
+                active[p]--;
+                freed[p].signal();
+                if (priority == LmsClient.Priority.INTERACTIVE && active[p] == 0) {
+                    interactiveIdle.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 대용량 전송이 bytes만큼 보내거나 받기 전에 부른다.
+     * 화면 요청이 돌고 있으면 끝날 때까지(최대 YIELD_MAX) 비켜 주고, 대역폭 제한이 있으면 차례를 기다린다.
+     */
+    void pace(long bytes) throws InterruptedIOException {
+        long waitUntil;
+        lock.lock();
+        try {
+            long remaining = YIELD_MAX_NANOS;
+            while (active[LmsClient.Priority.INTERACTIVE.ordinal()] > 0 && remaining > 0) {
+                remaining = interactiveIdle.awaitNanos(remaining);
+            }
+            if (bulkBytesPerSecond <= 0) {
+                return;
+            }
+            // 보낼 시각을 미리 잡아 두고 (다음 조각은 그 뒤로) 락 밖에서 기다린다
+            long now = System.nanoTime();
+            waitUntil = Math.max(now, bulkNextFreeNanos);
+            bulkNextFreeNanos = waitUntil + bytes * 1_000_000_000L / bulkBytesPerSecond;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("전송이 중단되었습니다.");
+        } finally {
+            lock.unlock();
+        }
+        long sleep = waitUntil - System.nanoTime();
+        if (sleep > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleep);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("전송이 중단되었습니다.");
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package lms;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 같은 조회(명령 + 인자)가 동시에 여러 번 불리면 서버에는 한 번만 보내고 결과나 오류를 같이 받는다.
+ * 먼저 온 호출이 실제로 보내고, 그게 끝나기 전에 같은 키로 온 호출은 그 결과를 기다린다.
+ * 끝난 뒤에 온 호출은 새로 보낸다 (결과를 쥐고 있는 건 ListCache 몫이다).
+ * 쓰기가 끼면 forget으로 그 명령의 진행 중인 조회를 떼어 내서, 쓰기 뒤에 온 호출이 쓰기 전 결과를 받지 않게 한다.
+ */
+final class SingleFlight {
+
+    @FunctionalInterface
+    interface Call<T> {
+        T call() throws IOException;
+    }
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+
+    /** 키 = 명령|인자|인자... (forget이 명령으로 찾는다) */
+    static String key(String command, Object... args) {
+        StringBuilder sb = new StringBuilder(command);
+        for (Object arg : args) {
+            sb.append('|').append(arg);
+        }
+        return sb.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T run(String key, Call<T> call) throws IOException {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = flights.putIfAbsent(key, mine);
+        if (running != null) {
+            return (T) await(running);
+        }
+        T result;
+        try {
+            result = call.call();
+        } catch (IOException | RuntimeException | Error e) {
+            flights.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        flights.remove(key, mine);
+        mine.complete(result);
+        return result;
+    }
+
+    /** command로 진행 중인 조회를 떼어 낸다 (기다리던 호출은 그 결과를 그대로 받는다) */
+    void forget(String command) {
+        String prefix = command + "|";
+        flights.keySet().removeIf(k -> k.startsWith(prefix));
+    }
+
+    private static Object await(CompletableFuture<Object> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("조회를 기다리다 중단되었습니다.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            if (cause instanceof Error err) {
+                throw err;
+            }
+            throw new IOException(cause);
+        }
+    }
+}